@@ -4,6 +4,8 @@ import com.clientservernn.dataTransfer.DataTransfer;
 import javafx.application.Platform;
 import javafx.scene.control.Alert;
 
+import java.text.DecimalFormat;
+
 public class HandlerIn {
 
     int transferCode;
@@ -41,6 +43,7 @@ public class HandlerIn {
                 case LEARN -> learning();
                 case MESSAGE -> doMessage();
                 case RECOGNIZE -> recognizing();
+                case RECOGNIZE_PAGE -> recognizingPage();
                 case USER_DATA -> {}
                 case UPLOAD -> upload();
                 case EDIT -> edit();
@@ -76,10 +79,12 @@ public class HandlerIn {
         String[] messageArray=dataTransferIn.getMessage();
         StringBuilder message=new StringBuilder("");
         if (messageArray!=null) {
+            DecimalFormat decimalFormat=new DecimalFormat("0.###E0");
             message.append(messageArray[0]);
             message.append("\n"+"All possibly results:");
-            for (int i = 1; i < messageArray.length; i++) {
-                message.append("\n").append(messageArray[i]);
+            for (int i = 0; i < dataTransferIn.getPosition() && 2 + 2 * i < messageArray.length; i++) {
+                double score=Double.parseDouble(messageArray[2 + 2 * i]);
+                message.append("\n").append(messageArray[1 + 2 * i]).append(", ").append(decimalFormat.format(score));
             }
         } else {
             message=new StringBuilder("Recognizing error");
@@ -96,6 +101,25 @@ public class HandlerIn {
     }
 
 
+    private void recognizingPage() {
+        String[] messageArray=dataTransferIn.getMessage();
+        StringBuilder message=new StringBuilder("Glyphs: "+dataTransferIn.getPosition());
+        if (messageArray!=null) {
+            for (int i = 0; i < messageArray.length; i++) {
+                message.append("\n").append(i+1).append(": ").append(messageArray[i]);
+            }
+        }
+        final String toAlert= message.toString();
+
+        Platform.runLater(new Runnable() {
+            @Override
+            public void run() {
+                Alert warning=new Alert(Alert.AlertType.INFORMATION, toAlert);
+                warning.show();
+            }
+        });
+    }
+
     private void doMessage() {
 
 
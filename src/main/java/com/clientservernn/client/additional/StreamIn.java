@@ -4,9 +4,9 @@ import com.clientservernn.dataTransfer.DataTransfer;
 import javafx.application.Platform;
 import javafx.scene.control.Alert;
 
+import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.PushbackInputStream;
 import java.net.Socket;
 import java.util.HashMap;
 
@@ -27,7 +27,7 @@ public class StreamIn implements Runnable {
 
     public StreamIn(Socket socket) throws IOException {
         this.socket=socket;
-        this.inputStream=socket.getInputStream();
+        this.inputStream=new BufferedInputStream(socket.getInputStream());
         new Thread(this).start();
 
     }
@@ -52,14 +52,8 @@ public class StreamIn implements Runnable {
         while (!socket.isClosed()){
             try {
                 System.out.println("READ from server message:");
-                PushbackInputStream pushbackInputStream=new PushbackInputStream(inputStream);
-                byte[] first=new byte[1];
-                boolean isEnd=pushbackInputStream.read(first)==-1;
-                if (isEnd) {socket.close();  break;}
-                pushbackInputStream.unread(first);
-                int length=pushbackInputStream.available();
-                byte[] byteIn=pushbackInputStream.readNBytes(length);
-                DataTransfer dataTransfer= DataTransfer.fromByteArray(byteIn);
+                DataTransfer dataTransfer= DataTransfer.read(inputStream);
+                if (dataTransfer==null) {socket.close();  break;}
                 System.out.println("Client get data:"+ dataTransfer);
                 int code=dataTransfer.getTransferCode();
                 HandlerIn handlerIn =getThread(code);
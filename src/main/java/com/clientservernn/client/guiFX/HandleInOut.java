@@ -1,5 +1,6 @@
 package com.clientservernn.client.guiFX;
 import com.clientservernn.client.additional.*;
+import com.clientservernn.dataTransfer.Command;
 import com.clientservernn.dataTransfer.DataTransfer;
 import java.io.DataOutputStream;
 import java.io.IOException;
@@ -19,6 +20,12 @@ public class HandleInOut implements Runnable {
     PriorityQueue<ComparablePair<Integer,Transferable>> priorityQueue;
 
     int serialNumber;
+
+    /**
+     * The version of protocol negotiated with server by {@link Command#USER_DATA},
+     * {@link DataTransfer#serializedVersionID} until server offers newer one.
+     */
+    double version;
     private static HandleInOut instance;
 
     private HandleInOut() {
@@ -26,6 +33,7 @@ public class HandleInOut implements Runnable {
         this.serverChecker = null;
         this.socket=null;
         this.serialNumber=0;
+        this.version=DataTransfer.serializedVersionID;
         thread=new Thread(this);
         thread.start();
     }
@@ -48,6 +56,7 @@ public class HandleInOut implements Runnable {
             throw new RuntimeException(e);
         }
         this.serverChecker = serverChecker;
+        this.version=DataTransfer.serializedVersionID;
     }
 
     public void send(DataTransfer dataTransfer){
@@ -92,6 +101,7 @@ public class HandleInOut implements Runnable {
                     DataTransfer dataTransferOut=transferable==null?null:transferable.getTransferOut();
                     if (dataTransferOut!=null) {
                         dataTransferOut.setTransferCode(currentNumber);
+                        dataTransferOut.setVersion(version);
                         byte[] byteOut=dataTransferOut.toByteArray();
 
                         if (isConnected()) {
@@ -104,6 +114,9 @@ public class HandleInOut implements Runnable {
 
                             DataTransfer dataTransferIn=exeTread.getDataTransferIn();
                             streamIn.remove(currentNumber);
+                            if (dataTransferIn!=null&&dataTransferIn.command==Command.USER_DATA) {
+                                version=DataTransfer.negotiatedVersion(dataTransferIn);
+                            }
 
                             if (dataTransferIn!=null&&transferable.isReceive()) { //&&transferable.isReceive()
                                 transferable.setTransferIn(dataTransferIn);
@@ -0,0 +1,63 @@
+package com.clientservernn.dataTransfer;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The class {@code BufferPool} keeps direct {@link ByteBuffer}s of one size for reuse,
+ * allocation of direct buffer is expensive, so buffers are taken once per connection
+ * and returned back when connection is closed. At most {@code maxPooled} free buffers
+ * are kept, other released buffers are left to garbage collector.
+ *
+ * @author  Yauheni Slabko
+ * @since   1.0
+ */
+final class BufferPool {
+
+    /**
+     * The pool of buffers of {@link TransferChannel}s, each buffer contains
+     * serialized {@link DataTransfer} with standard image and usual message.
+     */
+    static final BufferPool SHARED = new BufferPool(64 * 1024, 256);
+
+    private final int bufferSize;
+    private final int maxPooled;
+    private final ConcurrentLinkedQueue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The number of buffers in {@code buffers}.
+     */
+    private final AtomicInteger pooled = new AtomicInteger();
+
+    BufferPool(int bufferSize, int maxPooled) {
+        this.bufferSize = bufferSize;
+        this.maxPooled = maxPooled;
+    }
+
+    /**
+     * Returns cleared direct buffer of {@code bufferSize} from pool or new one if pool is empty.
+     */
+    ByteBuffer acquire() {
+        ByteBuffer buffer = this.buffers.poll();
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(this.bufferSize);
+        }
+        this.pooled.decrementAndGet();
+        return buffer.clear();
+    }
+
+    /**
+     * Returns {@code buffer} taken by {@code acquire()} to pool. Buffer must not be used after that.
+     */
+    void release(ByteBuffer buffer) {
+        if (!buffer.isDirect() || buffer.capacity() != this.bufferSize) {
+            return;
+        }
+        if (this.pooled.incrementAndGet() <= this.maxPooled) {
+            this.buffers.offer(buffer);
+        } else {
+            this.pooled.decrementAndGet();
+        }
+    }
+}
@@ -8,5 +8,17 @@ package com.clientservernn.dataTransfer;
  * @since   1.0
  */
 public enum Command {
-    DISCONNECT, EDIT, LEARN, MESSAGE, RECOGNIZE, USER_DATA, UPLOAD, EXCEPTION, SAVE
+    DISCONNECT, EDIT, LEARN, MESSAGE,
+    /**
+     * Recognition of one image. Response has number of candidates as position,
+     * conclusion about the best candidate as first message, then character and score
+     * of each candidate, score is written by {@link Double#toString(double)}.
+     */
+    RECOGNIZE,
+    USER_DATA, UPLOAD, EXCEPTION, SAVE,
+    /**
+     * Recognition of page of glyphs created by {@link ImageDataUtil#ofPage(java.util.List)}
+     * in one request.
+     */
+    RECOGNIZE_PAGE
 }
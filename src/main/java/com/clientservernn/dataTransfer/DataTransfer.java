@@ -1,7 +1,9 @@
 package com.clientservernn.dataTransfer;
 
 import java.io.*;
+import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Objects;
 
@@ -22,9 +24,20 @@ public class DataTransfer {
 
 
     /**
-     * The constant holding current version of {@code DataTransfer}
+     * The constant holding current version of {@code DataTransfer}, in which {@code message}
+     * is written as number of strings and each string as its length in bytes and UTF-8 bytes.
+     * Version is negotiated on {@link Command#USER_DATA}: client sends it with
+     * {@code serializedVersionID}, which every server reads, server of this version adds
+     * {@code versionID} to message of response, see {@link #negotiatedVersion(DataTransfer)},
+     * and client uses {@code versionID} only if server offered it.
      */
-    public static final double versionID= 1.01;
+    public static final double versionID= 1.02;
+
+    /**
+     * The constant holding previous version of {@code DataTransfer}, in which {@code message}
+     * is serialized by {@link ObjectOutputStream}. It is still read and written for clients using it.
+     */
+    public static final double serializedVersionID= 1.01;
 
     /**
      * The sum of sizes in bytes of {@code DataTransfer} primitive
@@ -33,6 +46,18 @@ public class DataTransfer {
      */
     private static final int dataLength=Double.BYTES+Integer.BYTES*6;
 
+    /**
+     * The size in bytes of header of serialized {@code DataTransfer}: {@code versionID}
+     * and primitive data fields, body of {@code imageData} and {@code message} follows it.
+     */
+    public static final int HEADER_SIZE=dataLength;
+
+    /**
+     * The max size in bytes of serialized {@code DataTransfer} accepted by {@link #read(InputStream)}.
+     * Larger size in header is considered as broken stream, not as request to allocate memory.
+     */
+    public static final int MAX_SIZE=64*1024*1024;
+
     /**
      * The type of transferred command, determined as  {@code Command} enum constant.
      */
@@ -40,8 +65,9 @@ public class DataTransfer {
 
     /**
      * The transferred {@code ImageData}. Can be a {@code null} if no image data required to transfer.
+     * It is immutable, so it is shared by copies of {@code DataTransfer} and returned without copying.
      */
-    private final ImageData imageData;
+    private final ImmutableImageData imageData;
 
     /**
      * The array of transferred messages. Can be a {@code null} if no message required to transfer.
@@ -59,6 +85,11 @@ public class DataTransfer {
      */
     private final int position;
 
+    /**
+     * The version of protocol used by {@link #toByteArray()}, {@code versionID} by default.
+     */
+    private double version=versionID;
+
 
     /**
      * Allocate a new {@code DataTransfer} with image {@code ImageData}, message {@code String},
@@ -77,7 +108,7 @@ public class DataTransfer {
 
     public DataTransfer(ImageData imageData, Command command, int position, String... message){
         if (imageData!=null) {
-            this.imageData=new ImageData(imageData);
+            this.imageData=ImmutableImageData.of(imageData);
         } else {
             this.imageData=null;
         }
@@ -125,9 +156,58 @@ public class DataTransfer {
     public DataTransfer getCopy(){
         DataTransfer copy=new DataTransfer(this.imageData, this.command, this.position, this.message);
         copy.transferCode=this.transferCode;
+        copy.version=this.version;
         return copy;
     }
 
+    /**
+     * Returns the version of protocol of this {@code DataTransfer}: version it was read
+     * with by {@link #fromByteArray(byte[])}, or version set to write it.
+     * @return  {@code versionID} or {@code serializedVersionID}.
+     */
+    public double getVersion() {
+        return version;
+    }
+
+    /**
+     * Sets the version of protocol used by {@link #toByteArray()}. Response should be written
+     * with version of request, so clients of previous version can read it.
+     * @param version
+     *        {@code versionID} or {@code serializedVersionID}.
+     * @throws IllegalArgumentException if {@code version} is not supported.
+     */
+    public void setVersion(double version) {
+        if (!isSupported(version)) {
+            throw new IllegalArgumentException("Unsupported version: " + version);
+        }
+        this.version = version;
+    }
+
+    /**
+     * Returns {@code true} if given {@code version} can be read and written.
+     */
+    private static boolean isSupported(double version) {
+        return version==versionID||version==serializedVersionID;
+    }
+
+    /**
+     * Returns the version of protocol to use with server, that sent {@code response}
+     * to {@link Command#USER_DATA}. Server of current version offers {@code versionID}
+     * by second string of message, server of previous version echoes only name of user.
+     * @param  response the response of server to {@link Command#USER_DATA}.
+     * @return {@code versionID} if server offered it, else {@code serializedVersionID}.
+     */
+    public static double negotiatedVersion(DataTransfer response) {
+        if (response==null||response.command!=Command.USER_DATA||response.message==null||response.message.length<2) {
+            return serializedVersionID;
+        }
+        try {
+            return Double.parseDouble(response.message[1])>=versionID ? versionID : serializedVersionID;
+        } catch (NumberFormatException | NullPointerException e) {
+            return serializedVersionID;
+        }
+    }
+
 
     /**
      * Returns the {@code transferCode} of this {@code DataTransfer}
@@ -155,15 +235,11 @@ public class DataTransfer {
     }
 
     /**
-     * Returns the copy of {@code imageData} of this {@code DataTransfer}
-     * as a new {@code ImageData} object or {@code null} if {@code imageData} is null.
-     * @return  the copy of {@code imageData} of this object or {@code null}
+     * Returns the {@code imageData} of this {@code DataTransfer} without copying,
+     * it is {@link ImmutableImageData}, or {@code null} if {@code imageData} is null.
+     * @return  the {@code imageData} of this object or {@code null}
      */
-    public ImageData getImageData() {
-        ImageData imageData=null;
-        if (this.imageData!=null) {
-            imageData=new ImageData(this.imageData);
-        }
+    public ImmutableImageData getImageData() {
         return imageData;
     }
 
@@ -209,7 +285,9 @@ public class DataTransfer {
      * dataArray[32->and 32+imageDataSize] - imageData;
      * dataArray[32+imageDataSize->and rest] - message;
      * </pre>
-     * {@code String[] message} of {@code DataTransfer} serialize by ObjectOutputStream.
+     * {@code String[] message} of {@code DataTransfer} of {@code versionID} is written as
+     * number of strings and each string as its length in bytes, or -1 for {@code null},
+     * and UTF-8 bytes, of {@code serializedVersionID} is serialized by ObjectOutputStream.
      * @return  The resultant byte array
      * @throws  IOException if an I/O error occurs while writing stream header
      * by {@code ObjectOutputStream}
@@ -223,10 +301,14 @@ public class DataTransfer {
         byte[] imageByteArray=null;
 
         if(this.message!=null) {
-            ByteArrayOutputStream baos=new ByteArrayOutputStream();
-            ObjectOutputStream oos=new ObjectOutputStream(baos);
-            oos.writeObject(message);
-            messageByteArray=baos.toByteArray();
+            if (this.version==versionID) {
+                messageByteArray=encodeMessage(this.message);
+            } else {
+                ByteArrayOutputStream baos=new ByteArrayOutputStream();
+                ObjectOutputStream oos=new ObjectOutputStream(baos);
+                oos.writeObject(message);
+                messageByteArray=baos.toByteArray();
+            }
             messageByteSize = messageByteArray.length;
         }
         if(this.imageData!=null){
@@ -237,7 +319,7 @@ public class DataTransfer {
 
 
         ByteBuffer byteBuffer= ByteBuffer.allocate(overallSize);
-        byteBuffer.putDouble(versionID);
+        byteBuffer.putDouble(version);
         byteBuffer.putInt(overallSize);
         byteBuffer.putInt(imageByteSize);
         byteBuffer.putInt(messageByteSize);
@@ -256,7 +338,8 @@ public class DataTransfer {
 
     /**
      * Constructs a new {@code DataTransfer} from {@code byte} array source.
-     * Source array required to be created via {@link #toByteArray()} method.
+     * Source array required to be created via {@link #toByteArray()} method
+     * with {@code versionID} or {@code serializedVersionID}.
      * Properties of a new {@code DataTransfer} and source are identical.
      *
      * @param   sourceArray
@@ -288,7 +371,7 @@ public class DataTransfer {
         int position=byteBuffer.getInt();
         int command=byteBuffer.getInt();
 
-        if (version!=versionID||overallSize!=sourceArray.length||command>Command.values().length) {
+        if (!isSupported(version)||overallSize!=sourceArray.length||command>Command.values().length) {
             String exception="Version: "+version+", size: " + overallSize+"command: "+command;
             throw  new IOException("Decode error: "+exception);
         }
@@ -300,7 +383,9 @@ public class DataTransfer {
             imageData=ImageDataUtil.deserialize(imageByteArray);
 
         }
-        if (messageByteSize>0) {
+        if (messageByteSize>0&&version==versionID) {
+            message=decodeMessage(byteBuffer.slice(byteBuffer.position(), messageByteSize));
+        } else if (messageByteSize>0) {
             byte[] messageByteArray=new byte[messageByteSize];
             byteBuffer.get(messageByteArray);
             ByteArrayInputStream bais=new ByteArrayInputStream(messageByteArray);
@@ -315,9 +400,116 @@ public class DataTransfer {
 
         dataTransfer=new DataTransfer(imageData,Command.class.getEnumConstants()[command], position,message);
         dataTransfer.setTransferCode(transferCode);
+        dataTransfer.version=version;
         return dataTransfer;
     }
 
+    /**
+     * Returns {@code message} written as number of strings and each string as its length
+     * in bytes, or -1 for {@code null}, and UTF-8 bytes.
+     */
+    private static byte[] encodeMessage(String[] message) {
+        byte[][] strings=new byte[message.length][];
+        int size=Integer.BYTES*(1+message.length);
+        for (int i = 0; i < message.length; i++) {
+            if (message[i]!=null) {
+                strings[i]=message[i].getBytes(StandardCharsets.UTF_8);
+                size+=strings[i].length;
+            }
+        }
+        ByteBuffer byteBuffer=ByteBuffer.allocate(size);
+        byteBuffer.putInt(message.length);
+        for (byte[] string : strings) {
+            if (string==null) {
+                byteBuffer.putInt(-1);
+            } else {
+                byteBuffer.putInt(string.length);
+                byteBuffer.put(string);
+            }
+        }
+        return byteBuffer.array();
+    }
+
+    /**
+     * Reads {@code message} written by {@code encodeMessage()} from whole {@code byteBuffer}.
+     */
+    private static String[] decodeMessage(ByteBuffer byteBuffer) throws IOException {
+        try {
+            int count=byteBuffer.getInt();
+            if (count<0||count>byteBuffer.remaining()/Integer.BYTES) {
+                throw new IOException("Decode error: message count: "+count);
+            }
+            String[] message=new String[count];
+            for (int i = 0; i < count; i++) {
+                int length=byteBuffer.getInt();
+                if (length>=0) {
+                    if (length>byteBuffer.remaining()) {
+                        throw new IOException("Decode error: message length: "+length);
+                    }
+                    message[i]=new String(byteBuffer.array(), byteBuffer.arrayOffset()+byteBuffer.position(), length, StandardCharsets.UTF_8);
+                    byteBuffer.position(byteBuffer.position()+length);
+                } else if (length!=-1) {
+                    throw new IOException("Decode error: message length: "+length);
+                }
+            }
+            return message;
+        } catch (BufferUnderflowException exception) {
+            throw new IOException("Decode error: message is truncated", exception);
+        }
+    }
+
+
+    /**
+     * Reads exactly one {@code DataTransfer} written by {@link #write(OutputStream)} from
+     * {@code inputStream}. Reads fixed size header first, then exactly {@code overallSize}
+     * from the header minus header size, so several {@code DataTransfer}s sent one after another
+     * and {@code DataTransfer} split into several socket reads are decoded correctly.
+     * Blocks until whole {@code DataTransfer} is read.
+     *
+     * @param   inputStream
+     *          the stream to read from, should be buffered.
+     * @return  a new {@code DataTransfer}, or {@code null} if stream ended before its first byte.
+     * @throws  EOFException
+     *          If stream ended inside of {@code DataTransfer}.
+     * @throws  IOException
+     *          If header is not valid, then stream can not be read further,
+     *          or if {@link #fromByteArray(byte[])} fails, or if an I/O error occurs.
+     */
+    public static DataTransfer read(InputStream inputStream) throws IOException {
+        byte[] header=inputStream.readNBytes(HEADER_SIZE);
+        if (header.length==0) {
+            return null;
+        }
+        if (header.length<HEADER_SIZE) {
+            throw new EOFException("Stream ended inside of header, read: "+header.length);
+        }
+        ByteBuffer byteBuffer=ByteBuffer.wrap(header);
+        double version=byteBuffer.getDouble();
+        int overallSize=byteBuffer.getInt();
+        if (!isSupported(version)||overallSize<HEADER_SIZE||overallSize>MAX_SIZE) {
+            throw new IOException("Decode error: Version: "+version+", size: "+overallSize);
+        }
+        byte[] sourceArray=Arrays.copyOf(header, overallSize);
+        int read=inputStream.readNBytes(sourceArray, HEADER_SIZE, overallSize-HEADER_SIZE);
+        if (read<overallSize-HEADER_SIZE) {
+            throw new EOFException("Stream ended inside of body, read: "+(HEADER_SIZE+read)+" of "+overallSize);
+        }
+        return fromByteArray(sourceArray);
+    }
+
+    /**
+     * Writes this {@code DataTransfer} converted by {@link #toByteArray()} to {@code outputStream}
+     * by one call and flushes it, so it can be read by {@link #read(InputStream)}.
+     *
+     * @param   outputStream
+     *          the stream to write to.
+     * @throws  IOException
+     *          If an I/O error occurs.
+     */
+    public void write(OutputStream outputStream) throws IOException {
+        outputStream.write(this.toByteArray());
+        outputStream.flush();
+    }
 
     @Override
     public String toString() {
@@ -327,7 +519,7 @@ public class DataTransfer {
         str+=", command: "+ this.command.name();
         str+=", position: "+this.position;
         str+=", code: "+transferCode;
-        str+=", version: "+versionID;
+        str+=", version: "+version;
         return str;
     }
 
@@ -4,6 +4,7 @@ package com.clientservernn.dataTransfer;
 import javafx.scene.image.Image;
 import javafx.scene.image.WritableImage;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import static com.clientservernn.dataTransfer.ImageDataUtil.DATA_HEIGHT;
@@ -54,8 +55,17 @@ public class ImageData {
      *         not corresponds image dimensions.
      */
     public ImageData(byte[] imageArgb, int width, int height) {
+        this(imageArgb, width, height, true);
+    }
+
+    /**
+     * Allocates a new {@code ImageData} from data of image same as {@link #ImageData(byte[], int, int)},
+     * if {@code copy} is {@code false} given {@code imageArgb} is used without copying
+     * and must not be changed after that.
+     */
+    ImageData(byte[] imageArgb, int width, int height, boolean copy) {
         if (imageArgb!=null&&width>0&&height>0&&imageArgb.length==width*height) {
-            this.imageArgb = Arrays.copyOf(imageArgb, imageArgb.length);
+            this.imageArgb = copy ? Arrays.copyOf(imageArgb, imageArgb.length) : imageArgb;
             this.width = width;
             this.height = height;
         } else {
@@ -112,6 +122,60 @@ public class ImageData {
         return Arrays.copyOf(imageArgb,imageArgb.length);
     }
 
+    /**
+     * Copies {@code imageArgb} to given {@code target} array without allocation.
+     *
+     * @param  target array not shorter than {@code imageArgb}.
+     * @return {@code target}.
+     * @throws IndexOutOfBoundsException if {@code target} is shorter than {@code imageArgb}.
+     */
+    public byte[] getImageArgb(byte[] target){
+        System.arraycopy(imageArgb, 0, target, 0, imageArgb.length);
+        return target;
+    }
+
+    /**
+     * Returns read-only view of {@code imageArgb} without copying.
+     *
+     * @return read-only {@link ByteBuffer} of {@code imageArgb}.
+     */
+    public ByteBuffer getImageBuffer(){
+        return ByteBuffer.wrap(imageArgb).asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns grayscale color of point (x, y) of image.
+     *
+     * @param  x the x coordinate.
+     * @param  y the y coordinate.
+     * @return color of point.
+     * @throws IndexOutOfBoundsException if point is out of image.
+     */
+    public byte getPixel(int x, int y){
+        if (x<0||x>=width||y<0||y>=height) {
+            throw new IndexOutOfBoundsException("Point ("+x+", "+y+") out of image "+width+"x"+height);
+        }
+        return imageArgb[x*height+y];
+    }
+
+    /**
+     * Returns width of image in pixels.
+     *
+     * @return {@code width}.
+     */
+    public int getWidth(){
+        return width;
+    }
+
+    /**
+     * Returns height of image in pixels.
+     *
+     * @return {@code height}.
+     */
+    public int getHeight(){
+        return height;
+    }
+
 
     /**
      * Returns a string with short description about object.
@@ -4,7 +4,9 @@ import javafx.scene.image.Image;
 
 import java.io.InvalidObjectException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 
 /**
@@ -160,7 +162,58 @@ public abstract class ImageDataUtil extends ImageData {
 
             }
         }
-        return new ImageData(imageARGB, DATA_WIDTH, DATA_HEIGHT);
+        return ImmutableImageData.wrap(imageARGB, DATA_WIDTH, DATA_HEIGHT);
+    }
+
+    /**
+     * Returns {@link  ImageData} represents page of given {@code glyphs} rescaled to standard
+     * dimensions and placed side by side from left to right. Page has height {@code DATA_HEIGHT}
+     * and width {@code DATA_WIDTH} multiplied by number of glyphs, so it is transferred
+     * by one {@link DataTransfer} and is split back by {@link #splitPage(ImageData)}.
+     * Because pixels are stored column by column, data of glyph {@code i} occupies
+     * {@code DATA_WIDTH*DATA_HEIGHT} bytes starting from {@code i*DATA_WIDTH*DATA_HEIGHT}.
+     *
+     * @param   glyphs
+     *          images of glyphs in order of page.
+     * @return  new page {@code ImageData}.
+     * @throws  IllegalArgumentException
+     *          If {@code glyphs} is null or empty.
+     */
+    public static ImageData ofPage(List<ImageData> glyphs) {
+        if (glyphs==null||glyphs.isEmpty()) {
+            //Non valid data.
+            throw new IllegalArgumentException("Non valid data.");
+        }
+        int glyphSize=DATA_WIDTH*DATA_HEIGHT;
+        byte[] imageARGB=new byte[glyphs.size()*glyphSize];
+        for (int i = 0; i < glyphs.size(); i++) {
+            System.arraycopy(getStandard(glyphs.get(i)).imageArgb, 0, imageARGB, i*glyphSize, glyphSize);
+        }
+        return new ImageData(imageARGB, glyphs.size()*DATA_WIDTH, DATA_HEIGHT);
+    }
+
+    /**
+     * Returns standard {@link  ImageData}s of glyphs of {@code page} created by
+     * {@link #ofPage(List)} in order of page.
+     *
+     * @param   page
+     *          page of glyphs.
+     * @return  list of new standard {@code ImageData}.
+     * @throws  IllegalArgumentException
+     *          If {@code page} is null or its height is not {@code DATA_HEIGHT}
+     *          or its width is not multiple of {@code DATA_WIDTH}.
+     */
+    public static List<ImageData> splitPage(ImageData page) {
+        if (page==null||page.height!=DATA_HEIGHT||page.width%DATA_WIDTH!=0) {
+            //Non valid data.
+            throw new IllegalArgumentException("Non valid data.");
+        }
+        int glyphSize=DATA_WIDTH*DATA_HEIGHT;
+        List<ImageData> glyphs=new ArrayList<>(page.width/DATA_WIDTH);
+        for (int offset = 0; offset < page.imageArgb.length; offset += glyphSize) {
+            glyphs.add(ImmutableImageData.wrap(Arrays.copyOfRange(page.imageArgb, offset, offset+glyphSize), DATA_WIDTH, DATA_HEIGHT));
+        }
+        return glyphs;
     }
 
     /**
@@ -214,7 +267,7 @@ public abstract class ImageDataUtil extends ImageData {
             //Non valid data.
             throw new InvalidObjectException("Non valid data.");
         }
-        return new ImageData(imageArgb,width,height);
+        return ImmutableImageData.wrap(imageArgb,width,height);
     }
 
 
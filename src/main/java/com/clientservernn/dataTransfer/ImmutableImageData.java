@@ -0,0 +1,66 @@
+package com.clientservernn.dataTransfer;
+
+import java.util.Arrays;
+
+/**
+ * This class represents immutable {@link ImageData}. Its {@code imageArgb} is never
+ * exposed to changes, so instance can be shared between threads and objects without
+ * defensive copies: {@link DataTransfer} keeps and returns it as is, and pixels
+ * are read by {@link #getImageBuffer()}, {@link #getPixel(int, int)}
+ * or {@link #getImageArgb(byte[])}.
+ *
+ * @author  Yauheni Slabko
+ * @since   1.0
+ */
+public final class ImmutableImageData extends ImageData {
+
+    private ImmutableImageData(byte[] imageArgb, int width, int height) {
+        super(imageArgb, width, height, false);
+    }
+
+    /**
+     * Returns immutable {@code ImageData} with data of given {@code imageData},
+     * given {@code imageData} itself if it is immutable, else its copy.
+     *
+     * @param  imageData
+     *         source {@code ImageData}
+     * @return immutable {@code ImageData}.
+     * @throws IllegalArgumentException
+     *         If {@code imageData} is null.
+     */
+    public static ImmutableImageData of(ImageData imageData) {
+        if (imageData instanceof ImmutableImageData immutableImageData) {
+            return immutableImageData;
+        }
+        if (imageData==null) {
+            //Non valid data.
+            throw new IllegalArgumentException("Non valid data.");
+        }
+        return new ImmutableImageData(Arrays.copyOf(imageData.imageArgb, imageData.imageArgb.length), imageData.width, imageData.height);
+    }
+
+    /**
+     * Returns immutable {@code ImageData} with copy of given data of image.
+     *
+     * @param  imageArgb
+     *         Source array
+     * @param  width
+     *         The initial width
+     * @param  height
+     *         The initial height
+     * @return immutable {@code ImageData}.
+     * @throws IllegalArgumentException
+     *         same as {@link ImageData#ImageData(byte[], int, int)}.
+     */
+    public static ImmutableImageData of(byte[] imageArgb, int width, int height) {
+        return new ImmutableImageData(imageArgb==null ? null : Arrays.copyOf(imageArgb, imageArgb.length), width, height);
+    }
+
+    /**
+     * Returns immutable {@code ImageData} using given {@code imageArgb} without copying,
+     * array must not be referenced by caller after that.
+     */
+    static ImmutableImageData wrap(byte[] imageArgb, int width, int height) {
+        return new ImmutableImageData(imageArgb, width, height);
+    }
+}
@@ -0,0 +1,645 @@
+package com.clientservernn.dataTransfer;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * The class {@code TransferChannel} reads and writes serialized {@link DataTransfer}s
+ * over byte channel of one connection, same format as {@link DataTransfer#toByteArray()}.
+ * Frames are read into and written from direct buffers taken from {@link BufferPool}
+ * for the whole connection, so socket channel reads and writes them without copying
+ * through heap arrays, and reading or writing of usual frame does not allocate buffers.
+ * Fields of last read frame are read from buffer in place, pixels of image are copied
+ * only once, into {@link ImageData} of {@link #toDataTransfer()}.
+ * Frames larger than pooled buffer are read and written through heap buffer of their size.
+ * Reading runs ahead of current frame, so frames sent one after another are read
+ * by few channel reads. Reading and writing use separate buffers, so one thread can read
+ * frames while other thread writes them, each of them should be used by one thread at once.
+ * Over non-blocking channel frames are read by {@link #poll()} and written by {@link #write(DataTransfer)}
+ * and {@link #flush()}, which return when channel has no more bytes to read or can not accept more bytes.
+ * Buffers are taken from pool at first use, over non-blocking channel they are returned to pool while
+ * connection has no incomplete frames, so idle connections take no buffers.
+ *
+ * @author  Yauheni Slabko
+ * @since   1.0
+ */
+public final class TransferChannel implements Closeable {
+
+    private static final Command[] COMMANDS = Command.values();
+
+    private final ReadableByteChannel inChannel;
+    private final WritableByteChannel outChannel;
+
+    /**
+     * The pooled buffer of read frames, bytes of last read frame start at index 0
+     * followed by {@code filled - frameSize} bytes of next frames.
+     */
+    private ByteBuffer readBuffer;
+    private ByteBuffer writeBuffer;
+
+    /**
+     * The number of read bytes in {@code readBuffer}.
+     */
+    private int filled;
+
+    /**
+     * The buffer containing last read frame at index 0, {@code readBuffer} or heap buffer of large frame.
+     */
+    private ByteBuffer frame;
+    private int frameSize;
+
+    /**
+     * The heap buffer of frame larger than {@code readBuffer} that is partly read by {@code poll()}.
+     */
+    private ByteBuffer largeFrame;
+
+    /**
+     * The buffer of written frame which bytes are not accepted by non-blocking channel yet.
+     */
+    private ByteBuffer pending;
+
+    /**
+     * The {@code true} if {@code poll()} reached end of channel.
+     */
+    private boolean ended;
+
+    /**
+     * The {@code true} after {@code close()}.
+     */
+    private boolean closed;
+
+    private double version;
+    private int imageSize;
+    private int messageSize;
+    private int transferCode;
+    private int position;
+    private Command command;
+    private int width;
+    private int height;
+
+    /**
+     * The buffer for bytes of strings of message, reused for all strings.
+     */
+    private byte[] stringBytes = new byte[256];
+
+    /**
+     * Allocate the new {@code TransferChannel} reading and writing given {@code channel}.
+     *
+     * @param  channel the channel of connection.
+     * @throws NullPointerException if {@code channel} is null.
+     */
+    public TransferChannel(ByteChannel channel) {
+        this(channel, channel);
+    }
+
+    /**
+     * Allocate the new {@code TransferChannel} reading {@code inChannel} and writing {@code outChannel}.
+     *
+     * @param  inChannel  the channel to read from.
+     * @param  outChannel the channel to write to.
+     * @throws NullPointerException if any param is null.
+     */
+    public TransferChannel(ReadableByteChannel inChannel, WritableByteChannel outChannel) {
+        this.inChannel = Objects.requireNonNull(inChannel);
+        this.outChannel = Objects.requireNonNull(outChannel);
+    }
+
+    /**
+     * Takes {@code readBuffer} from pool if it is not taken yet.
+     */
+    private void acquireReadBuffer() {
+        if (this.closed) {
+            throw new IllegalStateException("TransferChannel is closed");
+        }
+        if (this.readBuffer == null) {
+            this.readBuffer = BufferPool.SHARED.acquire();
+        }
+    }
+
+    /**
+     * Returns {@code readBuffer} to pool if it contains no bytes.
+     */
+    private void releaseIdleReadBuffer() {
+        if (this.readBuffer != null && this.filled == 0 && this.frame == null) {
+            BufferPool.SHARED.release(this.readBuffer);
+            this.readBuffer = null;
+        }
+    }
+
+    /**
+     * Reads next frame, blocks until it is read whole. Previous frame and its image view
+     * are not valid after that.
+     *
+     * @return {@code true} if frame is read, {@code false} if channel ended before its first byte.
+     * @throws EOFException if channel ended inside of frame.
+     * @throws IOException if header is not valid, then channel can not be read further,
+     * or if an I/O error occurs.
+     */
+    public boolean read() throws IOException {
+        this.acquireReadBuffer();
+        this.discardFrame();
+        if (!this.fill(DataTransfer.HEADER_SIZE)) {
+            return false;
+        }
+        int overallSize = this.readHeader();
+        if (overallSize <= this.readBuffer.capacity()) {
+            if (!this.fill(overallSize)) {
+                throw new EOFException("Stream ended inside of body");
+            }
+            this.frame = this.readBuffer;
+        } else {
+            this.frame = this.startLargeFrame(overallSize);
+            readFully(this.inChannel, this.frame);
+        }
+        this.readImageHeader(overallSize);
+        return true;
+    }
+
+    /**
+     * Reads bytes available in non-blocking channel without waiting for next ones and returns
+     * {@code true} if next frame is read whole, same as {@code read()} reads it. Bytes of incomplete
+     * frame are kept until next call. Frames that are already read ahead are returned without
+     * reading channel, so method should be called until it returns {@code false} before waiting
+     * for channel to be readable. Previous frame and its image view are not valid after that.
+     *
+     * @return {@code true} if frame is read, {@code false} if frame is incomplete
+     * or channel ended before its first byte, see {@link #isEnded()}.
+     * @throws EOFException if channel ended inside of frame.
+     * @throws IOException if header is not valid, then channel can not be read further,
+     * or if an I/O error occurs.
+     */
+    public boolean poll() throws IOException {
+        int overallSize;
+        if (this.largeFrame == null) {
+            this.acquireReadBuffer();
+            this.discardFrame();
+            if (!this.fillAvailable(DataTransfer.HEADER_SIZE)) {
+                this.releaseIdleReadBuffer();
+                return false;
+            }
+            overallSize = this.readHeader();
+            if (overallSize <= this.readBuffer.capacity()) {
+                if (!this.fillAvailable(overallSize)) {
+                    return false;
+                }
+                this.frame = this.readBuffer;
+                this.readImageHeader(overallSize);
+                return true;
+            }
+            this.largeFrame = this.startLargeFrame(overallSize);
+            this.releaseIdleReadBuffer();
+        }
+        while (this.largeFrame.hasRemaining()) {
+            int read = this.inChannel.read(this.largeFrame);
+            if (read < 0) {
+                this.ended = true;
+                throw new EOFException("Stream ended inside of DataTransfer, read: " + this.largeFrame.position());
+            }
+            if (read == 0) {
+                return false;
+            }
+        }
+        this.frame = this.largeFrame;
+        this.largeFrame = null;
+        this.readImageHeader(this.frame.capacity());
+        return true;
+    }
+
+    /**
+     * Returns {@code true} if {@code poll()} reached end of channel, no frames follow.
+     * @return {@code true} if channel ended.
+     */
+    public boolean isEnded() {
+        return this.ended;
+    }
+
+    /**
+     * Reads and validates header of next frame at start of {@code readBuffer}.
+     * Returns size of frame.
+     */
+    private int readHeader() throws IOException {
+        ByteBuffer buffer = this.readBuffer;
+        this.version = buffer.getDouble(0);
+        int overallSize = buffer.getInt(8);
+        this.imageSize = buffer.getInt(12);
+        this.messageSize = buffer.getInt(16);
+        this.transferCode = buffer.getInt(20);
+        this.position = buffer.getInt(24);
+        int command = buffer.getInt(28);
+        if ((this.version != DataTransfer.versionID && this.version != DataTransfer.serializedVersionID)
+                || overallSize < DataTransfer.HEADER_SIZE || overallSize > DataTransfer.MAX_SIZE
+                || this.imageSize < 0 || this.messageSize < 0
+                || (long) DataTransfer.HEADER_SIZE + this.imageSize + this.messageSize != overallSize
+                || command < 0 || command >= COMMANDS.length) {
+            throw new IOException("Decode error: Version: " + this.version + ", size: " + overallSize + ", command: " + command);
+        }
+        this.command = COMMANDS[command];
+        return overallSize;
+    }
+
+    /**
+     * Returns heap buffer for frame larger than {@code readBuffer} with bytes of frame
+     * that are already read, {@code readBuffer} is emptied.
+     */
+    private ByteBuffer startLargeFrame(int overallSize) {
+        ByteBuffer buffer = ByteBuffer.allocate(overallSize);
+        buffer.put(this.readBuffer.limit(this.filled).position(0));
+        this.filled = 0;
+        return buffer;
+    }
+
+    /**
+     * Sets size of read {@code frame} and reads and validates header of its image.
+     */
+    private void readImageHeader(int overallSize) throws IOException {
+        this.frameSize = overallSize;
+        this.width = 0;
+        this.height = 0;
+        if (this.imageSize > 0) {
+            this.width = this.frame.getInt(DataTransfer.HEADER_SIZE);
+            this.height = this.frame.getInt(DataTransfer.HEADER_SIZE + Integer.BYTES);
+            if (this.width <= 0 || this.height <= 0
+                    || (long) this.width * this.height + Integer.BYTES * 2 != this.imageSize) {
+                throw new IOException("Decode error: image " + this.width + "x" + this.height + ", size: " + this.imageSize);
+            }
+        }
+    }
+
+    /**
+     * Removes last read frame from {@code readBuffer}, next frames are moved to its start.
+     */
+    private void discardFrame() {
+        if (this.frameSize > 0 && this.frame == this.readBuffer) {
+            this.readBuffer.limit(this.filled).position(this.frameSize);
+            this.readBuffer.compact();
+            this.filled -= this.frameSize;
+        }
+        this.frame = null;
+        this.frameSize = 0;
+    }
+
+    /**
+     * Reads channel until {@code readBuffer} contains at least {@code size} bytes.
+     * Returns {@code false} if channel ended before any byte was read.
+     */
+    private boolean fill(int size) throws IOException {
+        while (this.filled < size) {
+            this.readBuffer.limit(this.readBuffer.capacity()).position(this.filled);
+            int read = this.inChannel.read(this.readBuffer);
+            if (read < 0) {
+                if (this.filled == 0) {
+                    return false;
+                }
+                throw new EOFException("Stream ended inside of DataTransfer, read: " + this.filled);
+            }
+            this.filled += read;
+        }
+        return true;
+    }
+
+    /**
+     * Reads available bytes of channel until {@code readBuffer} contains at least {@code size} bytes.
+     * Returns {@code false} if channel has no more bytes now or ended before any byte was read.
+     */
+    private boolean fillAvailable(int size) throws IOException {
+        while (this.filled < size) {
+            this.readBuffer.limit(this.readBuffer.capacity()).position(this.filled);
+            int read = this.inChannel.read(this.readBuffer);
+            if (read < 0) {
+                this.ended = true;
+                if (this.filled == 0) {
+                    return false;
+                }
+                throw new EOFException("Stream ended inside of DataTransfer, read: " + this.filled);
+            }
+            if (read == 0) {
+                return false;
+            }
+            this.filled += read;
+        }
+        return true;
+    }
+
+    private static void readFully(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Stream ended inside of DataTransfer, read: " + buffer.position());
+            }
+        }
+    }
+
+    private void checkFrame() {
+        if (this.frame == null) {
+            throw new IllegalStateException("No frame is read");
+        }
+    }
+
+    /**
+     * Returns version of protocol of last read frame.
+     * @return {@link DataTransfer#versionID} or {@link DataTransfer#serializedVersionID}.
+     * @throws IllegalStateException if no frame is read.
+     */
+    public double getVersion() {
+        this.checkFrame();
+        return this.version;
+    }
+
+    /**
+     * Returns command of last read frame.
+     * @return command.
+     * @throws IllegalStateException if no frame is read.
+     */
+    public Command getCommand() {
+        this.checkFrame();
+        return this.command;
+    }
+
+    /**
+     * Returns transfer code of last read frame.
+     * @return transfer code.
+     * @throws IllegalStateException if no frame is read.
+     */
+    public int getTransferCode() {
+        this.checkFrame();
+        return this.transferCode;
+    }
+
+    /**
+     * Returns position of last read frame.
+     * @return position.
+     * @throws IllegalStateException if no frame is read.
+     */
+    public int getPosition() {
+        this.checkFrame();
+        return this.position;
+    }
+
+    /**
+     * Returns width of image of last read frame.
+     * @return width, 0 if frame has no image.
+     * @throws IllegalStateException if no frame is read.
+     */
+    public int getImageWidth() {
+        this.checkFrame();
+        return this.width;
+    }
+
+    /**
+     * Returns height of image of last read frame.
+     * @return height, 0 if frame has no image.
+     * @throws IllegalStateException if no frame is read.
+     */
+    public int getImageHeight() {
+        this.checkFrame();
+        return this.height;
+    }
+
+    /**
+     * Returns message of last read frame.
+     * @return message, {@code null} if frame has no message.
+     * @throws IOException if message is not valid.
+     * @throws IllegalStateException if no frame is read.
+     */
+    public String[] getMessage() throws IOException {
+        this.checkFrame();
+        if (this.messageSize == 0) {
+            return null;
+        }
+        if (this.version != DataTransfer.versionID) {
+            return this.toDataTransfer().getMessage();
+        }
+        int offset = DataTransfer.HEADER_SIZE + this.imageSize;
+        int end = offset + this.messageSize;
+        if (this.messageSize < Integer.BYTES) {
+            throw new IOException("Decode error: message is truncated");
+        }
+        int count = this.frame.getInt(offset);
+        offset += Integer.BYTES;
+        if (count < 0 || count > (end - offset) / Integer.BYTES) {
+            throw new IOException("Decode error: message count: " + count);
+        }
+        String[] message = new String[count];
+        for (int i = 0; i < count; i++) {
+            if (end - offset < Integer.BYTES) {
+                throw new IOException("Decode error: message is truncated");
+            }
+            int length = this.frame.getInt(offset);
+            offset += Integer.BYTES;
+            if (length == -1) {
+                continue;
+            }
+            if (length < 0 || length > end - offset) {
+                throw new IOException("Decode error: message length: " + length);
+            }
+            if (this.stringBytes.length < length) {
+                this.stringBytes = new byte[Math.max(length, this.stringBytes.length * 2)];
+            }
+            this.frame.get(offset, this.stringBytes, 0, length);
+            message[i] = new String(this.stringBytes, 0, length, StandardCharsets.UTF_8);
+            offset += length;
+        }
+        return message;
+    }
+
+    /**
+     * Returns last read frame as new {@link DataTransfer}, same as
+     * {@link DataTransfer#fromByteArray(byte[])} returns for its bytes.
+     * @return a new {@code DataTransfer}.
+     * @throws IOException if frame is not valid.
+     * @throws IllegalStateException if no frame is read.
+     */
+    public DataTransfer toDataTransfer() throws IOException {
+        this.checkFrame();
+        if (this.version != DataTransfer.versionID) {
+            byte[] sourceArray = new byte[this.frameSize];
+            this.frame.get(0, sourceArray);
+            return DataTransfer.fromByteArray(sourceArray);
+        }
+        ImageData imageData = null;
+        if (this.imageSize > 0) {
+            byte[] imageArgb = new byte[this.width * this.height];
+            this.frame.get(DataTransfer.HEADER_SIZE + Integer.BYTES * 2, imageArgb);
+            imageData = ImmutableImageData.wrap(imageArgb, this.width, this.height);
+        }
+        DataTransfer dataTransfer = new DataTransfer(imageData, this.command, this.position, this.getMessage());
+        dataTransfer.setTransferCode(this.transferCode);
+        return dataTransfer;
+    }
+
+    /**
+     * Writes {@code dataTransfer} same as {@link DataTransfer#write(java.io.OutputStream)},
+     * frame is encoded straight into pooled direct buffer. Frame of {@link DataTransfer#serializedVersionID}
+     * is written from {@link DataTransfer#toByteArray()}. If channel is non-blocking, bytes that
+     * channel does not accept at once are written by {@link #flush()}.
+     *
+     * @param  dataTransfer the {@code DataTransfer} to write.
+     * @return {@code true} if frame is written whole.
+     * @throws IOException if an I/O error occurs.
+     * @throws IllegalStateException if previous frame is not written whole.
+     */
+    public boolean write(DataTransfer dataTransfer) throws IOException {
+        if (this.closed) {
+            throw new IllegalStateException("TransferChannel is closed");
+        }
+        if (this.pending != null) {
+            throw new IllegalStateException("Previous DataTransfer is not written");
+        }
+        if (dataTransfer.getVersion() != DataTransfer.versionID) {
+            this.pending = ByteBuffer.wrap(dataTransfer.toByteArray());
+            return this.flush();
+        }
+        ImageData imageData = dataTransfer.getImageData();
+        String[] message = dataTransfer.getMessage();
+        int imageByteSize = imageData == null ? 0 : Integer.BYTES * 2 + imageData.imageArgb.length;
+        long messageByteSize = 0;
+        if (message != null) {
+            messageByteSize = Integer.BYTES * (1L + message.length);
+            for (String string : message) {
+                messageByteSize += string == null ? 0 : utf8Length(string);
+            }
+        }
+        long overallSize = DataTransfer.HEADER_SIZE + imageByteSize + messageByteSize;
+        if (overallSize > Integer.MAX_VALUE) {
+            throw new IOException("DataTransfer is too large: " + overallSize);
+        }
+        if (this.writeBuffer == null) {
+            this.writeBuffer = BufferPool.SHARED.acquire();
+        }
+        ByteBuffer buffer = overallSize <= this.writeBuffer.capacity()
+                ? this.writeBuffer.clear() : ByteBuffer.allocate((int) overallSize);
+        buffer.putDouble(DataTransfer.versionID);
+        buffer.putInt((int) overallSize);
+        buffer.putInt(imageByteSize);
+        buffer.putInt((int) messageByteSize);
+        buffer.putInt(dataTransfer.getTransferCode());
+        buffer.putInt(dataTransfer.getPosition());
+        buffer.putInt(dataTransfer.command.ordinal());
+        if (imageData != null) {
+            buffer.putInt(imageData.width);
+            buffer.putInt(imageData.height);
+            buffer.put(imageData.imageArgb);
+        }
+        if (message != null) {
+            buffer.putInt(message.length);
+            for (String string : message) {
+                if (string == null) {
+                    buffer.putInt(-1);
+                } else {
+                    buffer.putInt(utf8Length(string));
+                    putUtf8(buffer, string);
+                }
+            }
+        }
+        this.pending = buffer.flip();
+        return this.flush();
+    }
+
+    /**
+     * Writes bytes of last frame that are not written yet. Over blocking channel
+     * returns when frame is written whole, over non-blocking channel when channel
+     * does not accept more bytes.
+     *
+     * @return {@code true} if frame is written whole or there is nothing to write.
+     * @throws IOException if an I/O error occurs.
+     */
+    public boolean flush() throws IOException {
+        ByteBuffer buffer = this.pending;
+        if (buffer == null) {
+            return true;
+        }
+        boolean blocking = !(this.outChannel instanceof SelectableChannel channel) || channel.isBlocking();
+        while (buffer.hasRemaining()) {
+            if (this.outChannel.write(buffer) == 0 && !blocking) {
+                return false;
+            }
+        }
+        this.pending = null;
+        if (!blocking && this.writeBuffer != null) {
+            BufferPool.SHARED.release(this.writeBuffer);
+            this.writeBuffer = null;
+        }
+        return true;
+    }
+
+    /**
+     * Returns length of {@code string} in UTF-8 bytes, same as length of
+     * {@code string.getBytes(StandardCharsets.UTF_8)}.
+     */
+    static int utf8Length(String string) {
+        int length = 0;
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < string.length() && Character.isLowSurrogate(string.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                //unpaired surrogate is replaced by '?'
+                length += 1;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Puts UTF-8 bytes of {@code string} to {@code buffer}, same bytes as
+     * {@code string.getBytes(StandardCharsets.UTF_8)} without creating array.
+     */
+    static void putUtf8(ByteBuffer buffer, String string) {
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | c >> 6));
+                buffer.put((byte) (0x80 | c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < string.length() && Character.isLowSurrogate(string.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, string.charAt(++i));
+                buffer.put((byte) (0xF0 | codePoint >> 18));
+                buffer.put((byte) (0x80 | codePoint >> 12 & 0x3F));
+                buffer.put((byte) (0x80 | codePoint >> 6 & 0x3F));
+                buffer.put((byte) (0x80 | codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                buffer.put((byte) '?');
+            } else {
+                buffer.put((byte) (0xE0 | c >> 12));
+                buffer.put((byte) (0x80 | c >> 6 & 0x3F));
+                buffer.put((byte) (0x80 | c & 0x3F));
+            }
+        }
+    }
+
+    /**
+     * Returns buffers to pool, channel is not closed. {@code TransferChannel} must not be used after that.
+     */
+    @Override
+    public void close() {
+        if (!this.closed) {
+            this.closed = true;
+            if (this.readBuffer != null) {
+                BufferPool.SHARED.release(this.readBuffer);
+            }
+            if (this.writeBuffer != null) {
+                BufferPool.SHARED.release(this.writeBuffer);
+            }
+            this.readBuffer = null;
+            this.writeBuffer = null;
+            this.frame = null;
+            this.largeFrame = null;
+            this.pending = null;
+        }
+    }
+}
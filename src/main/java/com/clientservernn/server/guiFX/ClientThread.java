@@ -3,17 +3,15 @@ package com.clientservernn.server.guiFX;
 
 import com.clientservernn.dataTransfer.Command;
 import com.clientservernn.dataTransfer.DataTransfer;
+import com.clientservernn.dataTransfer.TransferChannel;
 import javafx.application.Platform;
 import javafx.scene.control.Alert;
 
-import java.io.DataOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.io.PushbackInputStream;
 import java.lang.reflect.Method;
 import java.net.Socket;
 import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
 import java.nio.channels.SocketChannel;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
@@ -130,13 +128,16 @@ public class ClientThread implements Runnable {
 
     /**
      * Work cycle of clientThread. ClientThread blocked until
-     * some input is available. After gets input from client, reading all byte data from {@code inputStream}
-     * and convert it to {@link DataTransfer} instance {@code dataTransfer}. Puts incoming {@code dataTransfer}
+     * some input is available. After gets input from client, reads exactly one {@link DataTransfer}
+     * instance {@code dataTransfer} by {@link TransferChannel} over {@link SocketChannel} of {@code socket},
+     * next requests sent by client meanwhile stay in its pooled buffer. Response is returned by
+     * {@link #respond(ClientItem, DataTransfer)}, which puts incoming {@code dataTransfer}
      * and client name in {@link CommandHandler#getResponseMethod(String, DataTransfer)} method and gets from it
      * static {@link Method} method which uses to get a {@code dataTransfer} response.
      * In my program, access level is configured depending on the client's name.
      * Response {@code dataTransfer} returned from invoke {@link Method} method with incoming {@code dataTransfer}
      * argument.
+     * Response is written with version of protocol of request, see {@link DataTransfer#setVersion(double)}.
      * If any {@link Exception} occurred when {@code method} invokes, response {@code dataTransfer} sets
      * with {@link Command#EXCEPTION}.
      * If any other {@link IOException} or {@link Exception} occurred {@code ClientThread} stops.
@@ -146,42 +147,24 @@ public class ClientThread implements Runnable {
      */
     public void run() {
 
-        try(OutputStream outputStream = this.socket.getOutputStream();
-            InputStream inputStream = this.socket.getInputStream()) {
-            DataOutputStream dataOutputStream = new DataOutputStream(outputStream);
-            PushbackInputStream pushbackInputStream = new PushbackInputStream(inputStream);
+        try(TransferChannel transferChannel = this.openChannel()) {
             while(!this.socket.isClosed()) {
                 try {
                     System.out.println("READ from client message:");
-                    byte[] first = new byte[1];
-                    boolean isEndStream = pushbackInputStream.read(first) == -1;
-                    if (isEndStream) {
+                    if (!transferChannel.read()) {
                         this.stop();
                     } else {
-                        pushbackInputStream.unread(first);
-                        byte[] byteIn = pushbackInputStream.readNBytes(pushbackInputStream.available());
-                        DataTransfer dataTransfer = DataTransfer.fromByteArray(byteIn);
+                        DataTransfer dataTransfer = transferChannel.toDataTransfer();
                         System.out.println("Server get data:" + dataTransfer);
-                        this.clientItem.setLastTransfer(dataTransfer);
-                        int transferCode=dataTransfer.getTransferCode();
-                        //Only for studying how it works.
-                        Method method= CommandHandler.getResponseMethod(clientItem.getName(),dataTransfer);
-                        try {
-                            dataTransfer= (DataTransfer) method.invoke(null, dataTransfer);
-                        } catch (Exception e) {
-                            dataTransfer=new DataTransfer(null, Command.EXCEPTION,e.getMessage());
-                        }
-                        dataTransfer.setTransferCode(transferCode);
+                        dataTransfer = respond(this.clientItem, dataTransfer);
                         System.out.println("Server send data:" + dataTransfer);
-                        switch (dataTransfer.command) {
-                            case DISCONNECT -> this.stop();
-                            case EXCEPTION -> ExceptionHandler.setException(dataTransfer.toString(), new Exception(dataTransfer.getMessage(0)));
-                            case USER_DATA -> this.clientItem.setName(dataTransfer.getMessage(0));//Sets a new name to client.
+                        if (dataTransfer.command == Command.DISCONNECT) {
+                            this.stop();
                         }
 
                         this.refresher.call(); //refreshing clients table.
                         if (!this.socket.isClosed()) {
-                            dataOutputStream.write(dataTransfer.toByteArray());
+                            transferChannel.write(dataTransfer);
                         }
                     }
                 } catch (Exception exception) {
@@ -198,5 +181,50 @@ public class ClientThread implements Runnable {
 
     }
 
+    /**
+     * Returns response {@link DataTransfer} to {@code dataTransfer} received from client of {@code clientItem}.
+     * Sets {@code dataTransfer} as last transfer of client, puts it and client name
+     * in {@link CommandHandler#getResponseMethod(String, DataTransfer)} method and invokes returned method.
+     * If any {@link Exception} occurred when method invokes, response is set with {@link Command#EXCEPTION}.
+     * Response has transfer code and version of protocol of request. If response command is EXCEPTION
+     * adds exception to {@link ExceptionHandler}, if it is USER_DATA sets a new name to client.
+     * Used by {@code ClientThread} and by connections of {@link SelectorLoop}.
+     *
+     * @param  clientItem   the client sent request.
+     * @param  dataTransfer the request.
+     * @return response to client.
+     */
+    static DataTransfer respond(ClientItem clientItem, DataTransfer dataTransfer) {
+        clientItem.setLastTransfer(dataTransfer);
+        int transferCode=dataTransfer.getTransferCode();
+        double version=dataTransfer.getVersion();
+        //Only for studying how it works.
+        Method method= CommandHandler.getResponseMethod(clientItem.getName(),dataTransfer);
+        try {
+            dataTransfer= (DataTransfer) method.invoke(null, dataTransfer);
+        } catch (Exception e) {
+            dataTransfer=new DataTransfer(null, Command.EXCEPTION,e.getMessage());
+        }
+        dataTransfer.setTransferCode(transferCode);
+        dataTransfer.setVersion(version);
+        switch (dataTransfer.command) {
+            case EXCEPTION -> ExceptionHandler.setException(dataTransfer.toString(), new Exception(dataTransfer.getMessage(0)));
+            case USER_DATA -> clientItem.setName(dataTransfer.getMessage(0));//Sets a new name to client.
+        }
+        return dataTransfer;
+    }
+
+    /**
+     * Returns {@link TransferChannel} over channel of {@code socket}, or over its streams
+     * if socket is not opened by channel.
+     */
+    private TransferChannel openChannel() throws IOException {
+        SocketChannel channel = this.socket.getChannel();
+        if (channel != null) {
+            return new TransferChannel(channel);
+        }
+        return new TransferChannel(Channels.newChannel(this.socket.getInputStream()), Channels.newChannel(this.socket.getOutputStream()));
+    }
+
    
 }
@@ -10,12 +10,22 @@ import com.clientservernn.dataTransfer.ImageData;
 import com.clientservernn.dataTransfer.ImageDataUtil;
 import com.clientservernn.server.neuralNetwork.NetworkCommander;
 import com.clientservernn.server.neuralNetwork.NetworkItem;
+import com.clientservernn.server.neuralNetwork.RecognitionDispatcher;
+import com.clientservernn.server.neuralNetwork.RecognitionResult;
+import com.clientservernn.server.neuralNetwork.TopCandidates;
+import com.clientservernn.server.neuralNetwork.Topology;
 import com.clientservernn.server.utilities.FileManager;
 import com.clientservernn.server.utilities.RawCharData;
 import javafx.util.Pair;
+import java.io.IOException;
 import java.lang.reflect.Method;
+import java.nio.file.Files;
 import java.text.DecimalFormat;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * The class {@code CommandHandler} represents class that manages
@@ -33,11 +43,46 @@ import java.util.*;
 public final class CommandHandler {
 
     /**
-     * The {@link EnumMap} that contains all loaded {@code NetworkCommander} instances
+     * The {@link ConcurrentMap} that contains all loaded {@code NetworkCommander} instances
      * with enum {@link CharsetList} keys.
+     * Map is read by client threads during recognition and changed from
+     * server GUI, so it is concurrent and ordered by keys as {@link EnumMap}.
      */
-    public static EnumMap<CharsetList, NetworkCommander> networkList = new EnumMap<>(CharsetList.class);
+    public static final ConcurrentMap<CharsetList, NetworkCommander> networkList = new ConcurrentSkipListMap<>();
 
+    /**
+     * The {@link RecognitionDispatcher} gathering recognition requests of all client threads
+     * into batches, it is created by {@link Server#start(int)} and closed by {@link Server#stop()},
+     * {@code null} until server is started.
+     */
+    static volatile RecognitionDispatcher dispatcher;
+
+    /**
+     * The min score of character to be listed in response to recognition.
+     * Scores are probabilities for networks trained by cross-entropy and outputs
+     * of sigmoid otherwise, in both cases they are in range [0, 1].
+     */
+    static final double LISTED_SCORE = 0.001;
+
+    /**
+     * The max number of characters listed in response to recognition.
+     */
+    static final int CANDIDATES = 10;
+
+    /**
+     * The min score of most probable character to be reported as definite.
+     */
+    static final double DEFINITE_SCORE = 0.9;
+
+    /**
+     * The min score of most probable character to be reported as possible.
+     */
+    static final double POSSIBLE_SCORE = 0.5;
+
+    /**
+     * The min score of most probable character to be reported at all.
+     */
+    static final double SMALL_SCORE = 0.1;
 
     private CommandHandler() {
     }
@@ -60,15 +105,43 @@ public final class CommandHandler {
 
     /**
      * Creates a new {@code NetworkCommander} instance
-     * of given {@code charset}, if it was not created yet.
-     * And put this new instance in {@code networkList}
+     * of given {@code charset} with {@link Topology} loaded from configuration
+     * of charset, if it was not created yet. If charset has saved model of the same
+     * topology, trained weights are loaded from it, else network starts untrained
+     * and the reason is added to {@link ExceptionHandler}.
+     * And put this new instance in {@code networkList}.
+     * {@link ConcurrentSkipListMap#computeIfAbsent} is not atomic, so network is created
+     * outside of map and put only if charset has no network yet, other created network is discarded.
      *
      * @param  charset given {@code CharsetList} instance for a network creation.
      */
     public static void uploadNetwork(CharsetList charset) {
-        if(!networkList.containsKey(charset)) {
-            NetworkCommander networkCommander = new NetworkCommander(charset);
-            networkList.put(charset, networkCommander);
+        if (networkList.containsKey(charset)) {
+            return;
+        }
+        NetworkCommander networkCommander = new NetworkCommander(charset, Topology.load(charset));
+        try {
+            networkCommander.loadModel();
+        } catch (IOException exception) {
+            String source = ExceptionHandler.getSource(CommandHandler.class, "uploadNetwork()", charset);
+            ExceptionHandler.setException(source, exception);
+        }
+        networkList.putIfAbsent(charset, networkCommander);
+    }
+
+    /**
+     * Uploads networks of all charsets that have saved models.
+     */
+    public static void uploadSavedNetworks() {
+        for (CharsetList charset : CharsetList.values()) {
+            try {
+                if (Files.exists(FileManager.getModelPath(charset.name()))) {
+                    uploadNetwork(charset);
+                }
+            } catch (IOException exception) {
+                String source = ExceptionHandler.getSource(CommandHandler.class, "uploadSavedNetworks()", charset);
+                ExceptionHandler.setException(source, exception);
+            }
         }
     }
 
@@ -139,13 +212,16 @@ public final class CommandHandler {
 
         /**
          * Returns {@link DataTransfer} with confirmation that the name is accepted
+         * and {@link DataTransfer#versionID} offered to the client, see
+         * {@link DataTransfer#negotiatedVersion(DataTransfer)}.
          * @param  dataTransferIn request received from the client.
          * @return {@link DataTransfer} with confirmation that the name is accepted.
          */
         @UserRestrictions
          static DataTransfer user_data(DataTransfer dataTransferIn) {
-            String[] username = dataTransferIn.getMessage();
-            return new DataTransfer(null, Command.USER_DATA, username);
+            String username = dataTransferIn.getMessage()==null||dataTransferIn.getMessage().length==0
+                    ? null : dataTransferIn.getMessage(0);
+            return new DataTransfer(null, Command.USER_DATA, username, String.valueOf(DataTransfer.versionID));
         }
 
         /**
@@ -235,58 +311,105 @@ public final class CommandHandler {
         /**
          * Performs recognition of given {@link ImageData} from received {@code dataTransfer}.
          * If charset is indicated recognition performs only in network of given charset,
-         * else in all loaded networks.
-         * Returns {@link DataTransfer} with message about recognition result.
+         * else in all loaded networks. Image is recognized through {@link CommandHandler#dispatcher}
+         * in batch with images of other clients, all networks recognize it in parallel and
+         * their {@link TopCandidates} are merged without locks as soon as each network finishes.
+         * Returns {@link DataTransfer} with conclusion about recognition result and at most
+         * {@code CANDIDATES} characters with numeric scores in layout of {@link Command#RECOGNIZE}.
          * @param  dataTransferIn request received from the client.
          * @return {@link DataTransfer} with message about recognition result.
          */
         @UserRestrictions
         static DataTransfer recognize(DataTransfer dataTransferIn) {
-            String charset= dataTransferIn.getMessage(0);
-            HashMap<String, Double> map=new HashMap<>();
             ImageData imageData = ImageDataUtil.getStandard(dataTransferIn.getImageData());
-            if (Arrays.stream(CharsetList.values()).anyMatch(charsetList -> charsetList.name().equalsIgnoreCase(charset))) {
-                CharsetList charsetList = CharsetList.valueOf(charset);
-                //recognizing in given network
-                map = (networkList.get(charsetList)).checkAll(imageData);
-            } else { //recognizing all loaded networks
-                for (NetworkCommander network:networkList.values()) {
-                    HashMap<String, Double> tempMap=  network.checkAll(imageData);
-                    map.putAll(tempMap);
-                }
+            RecognitionDispatcher dispatcher = CommandHandler.dispatcher;
+            if (dispatcher == null) {
+                throw new IllegalStateException("Server is not started");
             }
+            AtomicReference<TopCandidates> candidates = new AtomicReference<>(TopCandidates.empty(CANDIDATES));
+            CompletableFuture.allOf(dispatcher.submitAll(getNetworks(dataTransferIn.getMessage(0)), imageData,
+                            result -> candidates.accumulateAndGet(TopCandidates.of(result, CANDIDATES), TopCandidates::merge))
+                    .toArray(CompletableFuture[]::new)).join();
+            TopCandidates top = candidates.get();
 
-            DecimalFormat decimalFormat=new DecimalFormat("0.###E0" );
-            double max = 0.0;
-            ArrayList<String>  message = new ArrayList<>();
-            Iterator<String> iterator = map.keySet().iterator();
-            String probCharacter="";
-
-            while(iterator.hasNext()) {
-                String key = iterator.next();
-                double prob = map.get(key);
-                if (prob>4.5569512622227484E-305){
-                    message.add(key + ", " + decimalFormat.format(prob));
-                }
-                if (prob > max) {
-                    max = prob;
-                    probCharacter = key;
-                }
+            int listed = 0;
+            while (listed < top.size() && top.getScore(listed) >= LISTED_SCORE) {
+                listed++;
             }
+            String[] message = new String[1 + 2 * listed];
+            for (int i = 0; i < listed; i++) {
+                message[1 + 2 * i] = top.getCharacter(i);
+                message[2 + 2 * i] = Double.toString(top.getScore(i));
+            }
+
+            double max = top.size() > 0 ? top.getScore(0) : 0.0;
+            String probCharacter = top.size() > 0 ? top.getCharacter(0) : "";
+            String maxString = new DecimalFormat("0.###E0").format(max);
 
-            String maxString=decimalFormat.format(max);
-            if (max > 0.9) {
+            if (max >= DEFINITE_SCORE) {
                 probCharacter = "It is definitely letter: " + probCharacter + ", probability is: " + maxString;
-            } else if (max > Float.MIN_VALUE) {
+            } else if (max >= POSSIBLE_SCORE) {
                 probCharacter = "It is can be letter: " + probCharacter + ", probability is: " + maxString;
-            } else if (max > Double.MIN_VALUE*Long.MAX_VALUE) {
+            } else if (max >= SMALL_SCORE) {
                 probCharacter = "There is exist small probability, that letter is: " + probCharacter + ", probability is: " + maxString;
             } else {
                 probCharacter = "I do not know that, probability is: " + maxString;
             }
-            message.add(0, probCharacter);
+            message[0] = probCharacter;
+
+            return new DataTransfer(null, Command.RECOGNIZE, listed, message);
+        }
 
-            return new DataTransfer(null, Command.RECOGNIZE, message.toArray(String[]::new));
+        /**
+         * Performs recognition of page of glyphs created by {@link ImageDataUtil#ofPage(List)}
+         * from received {@code dataTransfer}. All glyphs are recognized by each network
+         * in one batch. If charset is indicated recognition performs only in network
+         * of given charset, else in all loaded networks.
+         * Returns {@link DataTransfer} with number of glyphs as position and message
+         * with most probable character and its score for each glyph in order of page,
+         * or empty string for glyph if there is no loaded network.
+         * @param  dataTransferIn request received from the client.
+         * @return {@link DataTransfer} with message about recognition results.
+         */
+        @UserRestrictions
+        static DataTransfer recognize_page(DataTransfer dataTransferIn) {
+            List<ImageData> glyphs;
+            try {
+                glyphs = ImageDataUtil.splitPage(dataTransferIn.getImageData());
+            } catch (IllegalArgumentException exception) {
+                return new DataTransfer(null, Command.EXCEPTION, "Page is not a row of standard glyphs");
+            }
+            DecimalFormat decimalFormat = new DecimalFormat("0.###E0");
+            double[] max = new double[glyphs.size()];
+            String[] message = new String[glyphs.size()];
+            Arrays.fill(message, "");
+            for (NetworkCommander network : getNetworks(dataTransferIn.getMessage(0))) {
+                List<RecognitionResult> results = network.recognizeAll(glyphs);
+                for (int i = 0; i < results.size(); i++) {
+                    RecognitionResult result = results.get(i);
+                    int best = result.getBestIndex();
+                    if (best >= 0 && (message[i].isEmpty() || result.getScore(best) > max[i])) {
+                        max[i] = result.getScore(best);
+                        message[i] = result.getCharacter(best) + ", " + decimalFormat.format(max[i]);
+                    }
+                }
+            }
+            return new DataTransfer(null, Command.RECOGNIZE_PAGE, glyphs.size(), message);
+        }
+
+        /**
+         * Returns networks used for recognition: network of given {@code charset} if it is
+         * the name of charset and network is loaded, else all loaded networks.
+         * @param  charset name of charset in any case or {@code null}.
+         * @return list of networks.
+         */
+        private static List<NetworkCommander> getNetworks(String charset) {
+            if (Arrays.stream(CharsetList.values()).anyMatch(charsetList -> charsetList.name().equalsIgnoreCase(charset))) {
+                //recognizing in given network, it can be removed by server at any moment
+                NetworkCommander network = networkList.get(CharsetList.valueOf(charset.toUpperCase(Locale.ROOT)));
+                return network != null ? List.of(network) : List.of();
+            }
+            return new ArrayList<>(networkList.values());
         }
 
         /**
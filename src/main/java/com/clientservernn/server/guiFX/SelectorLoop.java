@@ -0,0 +1,383 @@
+package com.clientservernn.server.guiFX;
+
+import com.clientservernn.dataTransfer.Command;
+import com.clientservernn.dataTransfer.DataTransfer;
+import com.clientservernn.dataTransfer.TransferChannel;
+
+import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The class {@code SelectorLoop} is core of {@link Server} in {@link ServerMode#SELECTOR} mode.
+ * One thread accepts clients of {@link ServerSocketChannel} and reads their non-blocking channels
+ * by {@link Selector}, each connection reads frames into pooled buffers of its {@link TransferChannel}.
+ * Decoded requests are performed by bounded pool of worker threads same as by {@link ClientThread},
+ * see {@link ClientThread#respond(ClientItem, DataTransfer)}, and worker writes response.
+ * Connection is not read while its request is performed, so requests of one client are performed
+ * one after another and responses are sent in order of requests. Response that channel does not
+ * accept at once is written when channel becomes writable. If queue of workers is full, client gets
+ * response with {@link Command#EXCEPTION} at once. So idle clients take only their buffers,
+ * and number of threads does not depend on number of clients.
+ * Accepts, requests and closes only mark table of clients as changed, selector thread refreshes
+ * it at most once per {@code REFRESH_INTERVAL}, so refresh does not cost per request.
+ *
+ * @author  Yauheni Slabko
+ * @since   1.0
+ */
+final class SelectorLoop implements Runnable {
+
+    /**
+     * The min time between refreshes of table of clients in milliseconds.
+     */
+    static final long REFRESH_INTERVAL = 250L;
+
+    private final ServerSocketChannel serverChannel;
+    private final Selector selector;
+
+    /**
+     * The workers performing requests of clients.
+     */
+    private final ThreadPoolExecutor workers;
+
+    /**
+     * The {@link Callable} task, that method call() performs refresh content in
+     * the table {@link javafx.scene.control.TableView} of connected clients.
+     */
+    private final Callable<Void> refresher;
+
+    /**
+     * The connections of all connected clients.
+     */
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+
+    /**
+     * The connections which requests are performed by workers, they are read again by selector thread.
+     */
+    private final Queue<Connection> handled = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The {@code true} if clients changed since last refresh of table.
+     */
+    private final AtomicBoolean changed = new AtomicBoolean();
+
+    /**
+     * The time of last refresh of table in nanoseconds, used by selector thread only.
+     */
+    private long lastRefresh = System.nanoTime();
+
+    /**
+     * Allocate the new {@code SelectorLoop} accepting clients of {@code serverChannel}.
+     * Loop is started by running it in a new thread.
+     *
+     * @param  serverChannel the bound server channel, it is switched to non-blocking mode.
+     * @param  refresher     given {@link Callable} task.
+     * @param  workers       the number of worker threads.
+     * @param  queueCapacity the max number of requests waiting for workers.
+     * @throws IOException if an I/O error occurs when opening selector.
+     * @throws NullPointerException if {@code serverChannel} or {@code refresher} is null.
+     * @throws IllegalArgumentException if {@code workers} or {@code queueCapacity} is not positive.
+     */
+    SelectorLoop(ServerSocketChannel serverChannel, Callable<Void> refresher, int workers, int queueCapacity) throws IOException {
+        this.serverChannel = Objects.requireNonNull(serverChannel);
+        this.refresher = Objects.requireNonNull(refresher);
+        AtomicInteger index = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "SelectorWorker-" + index.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.selector = Selector.open();
+        this.serverChannel.configureBlocking(false);
+        this.serverChannel.register(this.selector, SelectionKey.OP_ACCEPT);
+    }
+
+    /**
+     * Work cycle of selector thread, runs until {@code serverChannel} is closed.
+     * Accepts clients, reads their requests and writes responses that were not written
+     * by workers whole. Connections which requests are performed by workers are read again.
+     * Selector wakes up at least once per {@code REFRESH_INTERVAL} to refresh changed table of clients.
+     * After cycle all connections are closed and workers are stopped.
+     * If any {@link IOException} of selector occurred add it to {@link ExceptionHandler}.
+     */
+    @Override
+    public void run() {
+        try {
+            while (this.serverChannel.isOpen()) {
+                this.selector.select(REFRESH_INTERVAL);
+                Connection connection;
+                while ((connection = this.handled.poll()) != null) {
+                    connection.resume();
+                }
+                Iterator<SelectionKey> keys = this.selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    try {
+                        if (key.isAcceptable()) {
+                            this.accept();
+                        } else if (key.isWritable()) {
+                            ((Connection) key.attachment()).flush();
+                        } else if (key.isReadable()) {
+                            ((Connection) key.attachment()).read();
+                        }
+                    } catch (CancelledKeyException exception) {
+                        //connection is closed
+                    }
+                }
+                this.refreshIfChanged();
+            }
+        } catch (IOException exception) {
+            if (this.serverChannel.isOpen()) {
+                ExceptionHandler.setException(this.toString(), exception);
+            }
+        } catch (ClosedSelectorException exception) {
+            //loop is closed
+        } finally {
+            this.shutdown();
+        }
+    }
+
+    /**
+     * Accepts all clients waiting for connection.
+     */
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = this.serverChannel.accept()) != null) {
+            try {
+                channel.configureBlocking(false);
+                this.connections.add(new Connection(channel));
+            } catch (IOException exception) {
+                channel.close();
+                ExceptionHandler.setException(this.toString(), exception);
+            }
+        }
+        this.changed.set(true);
+    }
+
+    /**
+     * Performs refresh of the table of connected clients if clients changed
+     * and {@code REFRESH_INTERVAL} passed since last refresh.
+     */
+    private void refreshIfChanged() {
+        long now = System.nanoTime();
+        if (now - this.lastRefresh < TimeUnit.MILLISECONDS.toNanos(REFRESH_INTERVAL) || !this.changed.getAndSet(false)) {
+            return;
+        }
+        this.lastRefresh = now;
+        this.refresh();
+    }
+
+    /**
+     * Performs refresh of the table of connected clients.
+     */
+    private void refresh() {
+        try {
+            this.refresher.call();
+        } catch (Exception exception) {
+            ExceptionHandler.setException(this.toString(), exception);
+        }
+    }
+
+    /**
+     * Closes all connections and stops workers.
+     */
+    private void shutdown() {
+        this.workers.shutdownNow();
+        try {
+            this.workers.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+        this.connections.forEach(Connection::close);
+        if (this.changed.getAndSet(false)) {
+            this.refresh();
+        }
+        try {
+            this.serverChannel.close();
+            this.selector.close();
+        } catch (IOException exception) {
+            ExceptionHandler.setException(this.toString(), exception);
+        }
+    }
+
+    /**
+     * Stops the loop, closes {@code serverChannel} and wakes up selector thread,
+     * which closes all connections.
+     *
+     * @throws IOException if an I/O error occurs when closing {@code serverChannel}.
+     */
+    void close() throws IOException {
+        this.serverChannel.close();
+        this.selector.wakeup();
+    }
+
+    /**
+     * Returns {@link HashSet} with copies of {@link ClientItem} instances of all connected clients.
+     * @return {@link HashSet} with {@link ClientItem} instances.
+     */
+    HashSet<ClientItem> getClientItems() {
+        HashSet<ClientItem> clientItems = new HashSet<>();
+        for (Connection connection : this.connections) {
+            clientItems.add(new ClientItem(connection.clientItem));
+        }
+        return clientItems;
+    }
+
+    /**
+     * Returns the number of connected clients.
+     * @return the number of connections.
+     */
+    int getConnectionCount() {
+        return this.connections.size();
+    }
+
+    /**
+     * The connection of one client. It is read and closed by selector thread, its request
+     * is performed by worker and then it is returned to selector thread through {@code handled}.
+     */
+    private final class Connection {
+
+        private final SocketChannel channel;
+        private final SelectionKey key;
+        private final TransferChannel transferChannel;
+        private final ClientItem clientItem;
+
+        /**
+         * The {@code true} if response is written whole.
+         */
+        private boolean flushed = true;
+
+        /**
+         * The {@code true} if connection must be closed after request.
+         */
+        private boolean closing;
+
+        private Connection(SocketChannel channel) throws IOException {
+            this.channel = channel;
+            this.clientItem = new ClientItem(channel.socket());
+            this.transferChannel = new TransferChannel(channel);
+            try {
+                this.key = channel.register(SelectorLoop.this.selector, SelectionKey.OP_READ, this);
+            } catch (IOException exception) {
+                this.transferChannel.close();
+                throw exception;
+            }
+        }
+
+        /**
+         * Reads next request and passes it to workers, connection is not read until request is performed.
+         * Closes connection if client closed it.
+         */
+        private void read() {
+            try {
+                if (this.transferChannel.poll()) {
+                    DataTransfer request = this.transferChannel.toDataTransfer();
+                    this.key.interestOps(0);
+                    try {
+                        SelectorLoop.this.workers.execute(() -> this.handle(request));
+                    } catch (RejectedExecutionException exception) {
+                        DataTransfer response = new DataTransfer(null, Command.EXCEPTION, "Server is busy");
+                        response.setTransferCode(request.getTransferCode());
+                        response.setVersion(request.getVersion());
+                        this.flushed = this.transferChannel.write(response);
+                        this.resume();
+                    }
+                } else if (this.transferChannel.isEnded()) {
+                    this.close();
+                }
+            } catch (IOException exception) {
+                ExceptionHandler.setException(this.clientItem.getIpAddress(), exception);
+                this.close();
+            }
+        }
+
+        /**
+         * Performs {@code request} by worker thread and writes response,
+         * then returns connection to selector thread.
+         */
+        private void handle(DataTransfer request) {
+            try {
+                DataTransfer response = ClientThread.respond(this.clientItem, request);
+                if (response.command == Command.DISCONNECT) {
+                    this.closing = true;
+                } else {
+                    this.flushed = this.transferChannel.write(response);
+                }
+                SelectorLoop.this.changed.set(true);
+            } catch (Exception exception) {
+                this.closing = true;
+                ExceptionHandler.setException(this.clientItem.getIpAddress(), exception);
+            } finally {
+                SelectorLoop.this.handled.add(this);
+                SelectorLoop.this.selector.wakeup();
+            }
+        }
+
+        /**
+         * Continues connection after request: waits for writing of response
+         * if it is not written whole, else reads next request.
+         */
+        private void resume() {
+            if (this.closing) {
+                this.close();
+            } else if (!this.flushed) {
+                this.key.interestOps(SelectionKey.OP_WRITE);
+            } else {
+                this.key.interestOps(SelectionKey.OP_READ);
+                //next requests may be already read ahead
+                this.read();
+            }
+        }
+
+        /**
+         * Writes rest of response when channel becomes writable.
+         */
+        private void flush() {
+            try {
+                this.flushed = this.transferChannel.flush();
+                if (this.flushed) {
+                    this.resume();
+                }
+            } catch (IOException exception) {
+                ExceptionHandler.setException(this.clientItem.getIpAddress(), exception);
+                this.close();
+            }
+        }
+
+        /**
+         * Closes channel of client and returns buffers to pool.
+         */
+        private void close() {
+            if (SelectorLoop.this.connections.remove(this)) {
+                this.key.cancel();
+                try {
+                    this.channel.close();
+                } catch (IOException exception) {
+                    ExceptionHandler.setException(this.clientItem.getIpAddress(), exception);
+                }
+                this.transferChannel.close();
+                SelectorLoop.this.changed.set(true);
+            }
+        }
+    }
+}
@@ -2,6 +2,7 @@
 package com.clientservernn.server.guiFX;
 
 
+import com.clientservernn.server.neuralNetwork.RecognitionDispatcher;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.ServerSocket;
@@ -9,6 +10,7 @@ import java.net.Socket;
 import java.net.SocketAddress;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Objects;
@@ -17,7 +19,10 @@ import java.util.concurrent.Callable;
 
 /**
  * The class {@code Server} represents server in client-server network.
- * Also class enable multi-thread connection.
+ * Also class enable multi-thread connection. Clients are served by core
+ * chosen by {@link ServerMode}: by thread of each client or by {@link SelectorLoop}.
+ * While server is started recognition requests of clients are gathered into batches
+ * by {@link RecognitionDispatcher} of {@link CommandHandler}.
  *
  * @author  Yauheni Slabko
  * @since   1.0
@@ -43,7 +48,53 @@ public class Server implements Runnable {
     private final Callable<Void> refresher;
 
     /**
-     * Allocate the new {@code Server} with given {@link Callable} {@code refresher}.
+     * The core serving clients.
+     */
+    private final ServerMode mode;
+
+    /**
+     * The {@link SelectorLoop} serving clients in {@link ServerMode#SELECTOR} mode while server is started.
+     */
+    private volatile SelectorLoop selectorLoop;
+
+    /**
+     * The max time of waiting for next recognition requests of batch.
+     */
+    private final Duration window;
+
+    /**
+     * The max number of images in one batch of recognition.
+     */
+    private final int maxBatch;
+
+    /**
+     * The max number of weights of network recognized without batching.
+     */
+    private final long cheapWeights;
+
+    /**
+     * The {@link RecognitionDispatcher} of clients while server is started.
+     */
+    private volatile RecognitionDispatcher dispatcher;
+
+    /**
+     * The max number of clients waiting for acceptance.
+     */
+    static final int BACKLOG = 1024;
+
+    /**
+     * The number of worker threads of {@link SelectorLoop}.
+     */
+    static final int WORKERS = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+    /**
+     * The max number of requests of {@link SelectorLoop} waiting for workers.
+     */
+    static final int QUEUE_CAPACITY = 4096;
+
+    /**
+     * Allocate the new {@code Server} with given {@link Callable} {@code refresher},
+     * each client is served by its own {@link ClientThread}.
      * Server not starting automatically.
      *
      * @param  refresher
@@ -51,8 +102,57 @@ public class Server implements Runnable {
      * @throws NullPointerException if {@code refresher} is null.
      */
     public Server(Callable<Void> refresher) {
+        this(refresher, ServerMode.THREAD_PER_CLIENT);
+    }
+
+    /**
+     * Allocate the new {@code Server} with given {@link Callable} {@code refresher},
+     * clients are served by core of given {@code mode}.
+     * Server not starting automatically.
+     *
+     * @param  refresher
+     *         given {@link Callable} task.
+     * @param  mode
+     *         the core serving clients.
+     * @throws NullPointerException if any parameter is null.
+     */
+    public Server(Callable<Void> refresher, ServerMode mode) {
+        this(refresher, mode, RecognitionDispatcher.DEFAULT_WINDOW, RecognitionDispatcher.DEFAULT_MAX_BATCH,
+                RecognitionDispatcher.DEFAULT_CHEAP_WEIGHTS);
+    }
+
+    /**
+     * Allocate the new {@code Server} with given {@link Callable} {@code refresher},
+     * clients are served by core of given {@code mode}, recognition requests are gathered
+     * into batches with given settings of {@link RecognitionDispatcher}.
+     * Server not starting automatically.
+     *
+     * @param  refresher
+     *         given {@link Callable} task.
+     * @param  mode
+     *         the core serving clients.
+     * @param  window
+     *         the max time of waiting for next recognition requests of batch.
+     * @param  maxBatch
+     *         the max number of images in one batch.
+     * @param  cheapWeights
+     *         the max number of weights of network recognized without batching.
+     * @throws NullPointerException if any parameter is null.
+     * @throws IllegalArgumentException if {@code window} or {@code cheapWeights} is negative
+     * or {@code maxBatch} is not positive.
+     */
+    public Server(Callable<Void> refresher, ServerMode mode, Duration window, int maxBatch, long cheapWeights) {
         Objects.requireNonNull(refresher);
+        Objects.requireNonNull(mode);
+        if (window.isNegative() || maxBatch < 1 || cheapWeights < 0) {
+            throw new IllegalArgumentException("Malformed settings of recognition: window " + window
+                    + ", maxBatch " + maxBatch + ", cheapWeights " + cheapWeights);
+        }
         this.refresher = refresher;
+        this.mode = mode;
+        this.window = window;
+        this.maxBatch = maxBatch;
+        this.cheapWeights = cheapWeights;
         this.clientArrayList = new ArrayList<>();
         this.socket = null;
     }
@@ -60,7 +160,8 @@ public class Server implements Runnable {
     /**
      * Performs starting {@code Server} on given {@code port}
      * and returns port if no exceptions occurred.
-     * Starts the server thread.
+     * Starts the server thread, in {@link ServerMode#SELECTOR} mode thread of {@link SelectorLoop},
+     * and {@link RecognitionDispatcher} of {@link CommandHandler}.
      * @param  port given port for {@link ServerSocket}.
      * @return {@code port} number on which this {@code socket} is listening.
      *
@@ -73,8 +174,27 @@ public class Server implements Runnable {
         if (this.socket != null && !this.socket.isClosed()) {
             throw new IOException("Server is already started");
         } else {
-            this.socket = new ServerSocket(port);
-            new Thread(this).start();
+            //Socket is opened by channel, so sockets of clients have channels for TransferChannel.
+            ServerSocketChannel channel = ServerSocketChannel.open();
+            SelectorLoop selectorLoop = null;
+            try {
+                channel.bind(new InetSocketAddress(port), BACKLOG);
+                if (this.mode == ServerMode.SELECTOR) {
+                    selectorLoop = new SelectorLoop(channel, this.refresher, WORKERS, QUEUE_CAPACITY);
+                }
+            } catch (IOException exception) {
+                channel.close();
+                throw exception;
+            }
+            this.dispatcher = new RecognitionDispatcher(this.window, this.maxBatch, this.cheapWeights);
+            CommandHandler.dispatcher = this.dispatcher;
+            this.socket = channel.socket();
+            if (selectorLoop != null) {
+                this.selectorLoop = selectorLoop;
+                new Thread(selectorLoop, "SelectorLoop").start();
+            } else {
+                new Thread(this).start();
+            }
         }
 
         return socket.getLocalPort();
@@ -83,16 +203,23 @@ public class Server implements Runnable {
     /**
      * Performs stopping the {@code Server}.
      * Stops all {@link ClientThread} in {@code clientArrayList} and
-     * clear {@code clientArrayList}.
+     * clear {@code clientArrayList}, or stops {@link SelectorLoop} with its clients.
+     * Closes {@link RecognitionDispatcher} of {@link CommandHandler}, requests that are
+     * not recognized yet fail.
      *
      * @throws IOException if an I/O error occurs when closing the socket
      * or server is not started.
      */
     public void stop() throws IOException {
         if (this.socket != null && !this.socket.isClosed()) {
+            if (this.selectorLoop != null) {
+                this.selectorLoop.close();
+                this.selectorLoop = null;
+            }
             clientArrayList.forEach(ClientThread::stop);
             clientArrayList.clear();
             this.socket.close();
+            this.dispatcher.close();
         } else {
             throw new IOException("Server is not started");
         }
@@ -103,13 +230,17 @@ public class Server implements Runnable {
      * represents all current connected {@link ClientThread} instances.
      * @return {@link HashSet} with {@link ClientItem} instances
      * represents all current connected {@link ClientThread} instances
-     * from {@code clientArrayList}.
+     * from {@code clientArrayList} and clients of {@link SelectorLoop}.
      */
    public HashSet<ClientItem> getClientItems(){
        HashSet<ClientItem> clientItems=new HashSet<>();//for educational purposes only use HashSet
        for (ClientThread clientThread : clientArrayList) {
            clientItems.add(clientThread.getClientItem());
        }
+       SelectorLoop selectorLoop = this.selectorLoop;
+       if (selectorLoop != null) {
+           clientItems.addAll(selectorLoop.getClientItems());
+       }
        return clientItems;
    }
 
@@ -143,7 +274,10 @@ public class Server implements Runnable {
                 this.refresher.call();
             } catch (IOException exception) {
                 this.clientArrayList.clear();
-                ExceptionHandler.setException(this.toString(),exception);
+                if (!this.socket.isClosed()) {
+                    //socket is not closed by stop()
+                    ExceptionHandler.setException(this.toString(),exception);
+                }
             } catch (Exception exception) {
                 ExceptionHandler.setException(this.toString(),exception);
             }
@@ -4,10 +4,13 @@ package com.clientservernn.server.guiFX;
 import com.clientservernn.common.CharsetList;
 import com.clientservernn.common.Dialogues;
 import com.clientservernn.dataTransfer.DataTransfer;
+import com.clientservernn.server.neuralNetwork.EpochStatistics;
 import com.clientservernn.server.neuralNetwork.NetworkCommander;
 import com.clientservernn.server.neuralNetwork.NetworkItem;
+import com.clientservernn.server.neuralNetwork.RecognitionDispatcher;
 import java.io.IOException;
 import java.net.URL;
+import java.time.Duration;
 import java.util.*;
 
 import javafx.application.Application;
@@ -35,6 +38,29 @@ import javafx.stage.WindowEvent;
 public class ServerController extends Application implements Initializable {
     private static int serverPort = 3340;
 
+    /**
+     * The core of server, set by application parameter {@code --serverMode=SELECTOR}.
+     */
+    private static ServerMode serverMode = ServerMode.THREAD_PER_CLIENT;
+
+    /**
+     * The max time of waiting for next recognition requests of batch,
+     * set by application parameter {@code --recognitionWindow=<milliseconds>}.
+     */
+    private static Duration recognitionWindow = RecognitionDispatcher.DEFAULT_WINDOW;
+
+    /**
+     * The max number of images in one batch of recognition,
+     * set by application parameter {@code --maxBatch=<images>}.
+     */
+    private static int maxBatch = RecognitionDispatcher.DEFAULT_MAX_BATCH;
+
+    /**
+     * The max number of weights of network recognized without batching,
+     * set by application parameter {@code --cheapWeights=<weights>}.
+     */
+    private static long cheapWeights = RecognitionDispatcher.DEFAULT_CHEAP_WEIGHTS;
+
     ExceptionHandler exceptionHandler;
 
     private Server server;
@@ -66,6 +92,7 @@ public class ServerController extends Application implements Initializable {
     public TableColumn<NetworkItem, String> networkColumn3;
     public TableColumn<NetworkItem, String> networkColumn4;
     public TableColumn<NetworkItem, Boolean> networkColumn5;
+    public TableColumn<NetworkItem, String> networkColumn6;
 
 
     public ServerController() {
@@ -77,6 +104,29 @@ public class ServerController extends Application implements Initializable {
     }
 
     public void start(Stage stage) throws Exception {
+        String mode = this.getParameters().getNamed().get("serverMode");
+        IllegalArgumentException modeException = null;
+        if (mode != null) {
+            try {
+                serverMode = ServerMode.valueOf(mode.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException exception) {
+                //mistyped mode does not stop server, default core is used
+                modeException = exception;
+                serverMode = ServerMode.THREAD_PER_CLIENT;
+            }
+        }
+        IllegalArgumentException recognitionException = null;
+        try {
+            recognitionWindow = Duration.ofMillis(this.parseParameter("recognitionWindow", RecognitionDispatcher.DEFAULT_WINDOW.toMillis(), 0));
+            maxBatch = (int) this.parseParameter("maxBatch", RecognitionDispatcher.DEFAULT_MAX_BATCH, 1);
+            cheapWeights = this.parseParameter("cheapWeights", RecognitionDispatcher.DEFAULT_CHEAP_WEIGHTS, 0);
+        } catch (IllegalArgumentException exception) {
+            //malformed settings do not stop server, default settings are used
+            recognitionException = exception;
+            recognitionWindow = RecognitionDispatcher.DEFAULT_WINDOW;
+            maxBatch = RecognitionDispatcher.DEFAULT_MAX_BATCH;
+            cheapWeights = RecognitionDispatcher.DEFAULT_CHEAP_WEIGHTS;
+        }
         FXMLLoader fxmlLoader = new FXMLLoader(ServerController.class.getResource("ServerGui.fxml"));
         Scene scene = new Scene(fxmlLoader.load(), 900.0, 600.0);
         stage.setTitle("Server panel NN");
@@ -89,6 +139,38 @@ public class ServerController extends Application implements Initializable {
             }
         });
         stage.show();
+        if (modeException != null) {
+            ExceptionHandler.setException(this.toString(), modeException);
+            Alert alert = new Alert(AlertType.WARNING, "Unknown server mode \"" + mode + "\", "
+                    + serverMode + " is used. Modes: " + Arrays.toString(ServerMode.values()));
+            alert.show();
+        }
+        if (recognitionException != null) {
+            ExceptionHandler.setException(this.toString(), recognitionException);
+            Alert alert = new Alert(AlertType.WARNING, recognitionException.getMessage() + ", default settings of recognition are used.");
+            alert.show();
+        }
+    }
+
+    /**
+     * Returns value of named application parameter {@code name} or {@code defaultValue}
+     * if parameter is missing.
+     *
+     * @throws IllegalArgumentException if value is malformed, less than {@code minimum}
+     * or greater than {@link Integer#MAX_VALUE}.
+     */
+    private long parseParameter(String name, long defaultValue, long minimum) {
+        String value = this.getParameters().getNamed().get(name);
+        long result;
+        try {
+            result = value == null ? defaultValue : Long.parseLong(value.trim());
+        } catch (NumberFormatException exception) {
+            throw new IllegalArgumentException("Malformed parameter " + name + ": " + value, exception);
+        }
+        if (result < minimum || result > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Parameter " + name + " is out of range: " + result);
+        }
+        return result;
     }
 
 
@@ -104,10 +186,14 @@ public class ServerController extends Application implements Initializable {
         this.networkColumn3.setCellValueFactory(new PropertyValueFactory<>("trainDate"));
         this.networkColumn4.setCellValueFactory(new PropertyValueFactory<>("lastModified"));
         this.networkColumn5.setCellValueFactory(new PropertyValueFactory<>("access"));
+        this.networkColumn6.setCellValueFactory(new PropertyValueFactory<>("topology"));
         this.exceptionsColumn1.setCellValueFactory(new PropertyValueFactory<>("date"));
         this.exceptionsColumn2.setCellValueFactory(new PropertyValueFactory<>("source"));
         this.exceptionsColumn3.setCellValueFactory(new PropertyValueFactory<>("exception"));
         this.exceptionHandler = new ExceptionHandler(this.exceptionsTable);
+        //trained networks are ready for recognition without training
+        CommandHandler.uploadSavedNetworks();
+        this.refreshNetworksTable();
     }
 
 
@@ -115,7 +201,7 @@ public class ServerController extends Application implements Initializable {
         DialogHandler dialogHandler = new DialogHandler(Dialogues.SERVER_START);
         String result = dialogHandler.getDialog().orElse(null);
         if (result != null) {
-            server = new Server(this::handleRefreshAction);
+            server = new Server(this::handleRefreshAction, serverMode, recognitionWindow, maxBatch, cheapWeights);
             try {
                 serverPort = server.start(Integer.parseInt(result));
                 serverStatus.setText("Server on, port: " + serverPort);
@@ -229,14 +315,26 @@ public class ServerController extends Application implements Initializable {
             public void run() {
                 networkCommander.refreshTrainData();
                 for(int i = 0; i <  iterations; ++i) {
-                    networkCommander.train();
-                    final String progress = String.format("%.2f %s", (double)i * 100.0 / (double)iterations, " %");
+                    EpochStatistics statistics = networkCommander.train();
+                    final String progress = String.format("%.2f %s, %s", (double)i * 100.0 / (double)iterations, " %", statistics);
                     Platform.runLater(new Runnable() {
                         public void run() {
                             networkItem.setProgress(progress);
                             ServerController.this.networkTable.refresh();
                         }
                     });
+                    //validation loss does not improve any more
+                    if (networkCommander.isConverged()) {
+                        break;
+                    }
+                }
+                //network with best validation loss is published, last epochs can be worse
+                networkCommander.restoreBest();
+                try {
+                    networkCommander.saveModel();
+                } catch (IOException exception) {
+                    String source = ExceptionHandler.getSource(ServerController.class, "trainNetwork()", networkCommander.getCharset());
+                    ExceptionHandler.setException(source, exception);
                 }
 
                 try {
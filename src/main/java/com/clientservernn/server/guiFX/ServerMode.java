@@ -0,0 +1,22 @@
+package com.clientservernn.server.guiFX;
+
+/**
+ * The enum {@code ServerMode} contains cores of {@link Server}, which accept clients
+ * and perform their requests.
+ *
+ * @author  Yauheni Slabko
+ * @since   1.0
+ */
+public enum ServerMode {
+
+    /**
+     * Each client is served by its own {@link ClientThread}, which blocks on reading of socket.
+     */
+    THREAD_PER_CLIENT,
+
+    /**
+     * All clients are served by one {@link SelectorLoop} thread with non-blocking channels,
+     * requests are performed by bounded pool of worker threads. Idle clients take no threads.
+     */
+    SELECTOR
+}
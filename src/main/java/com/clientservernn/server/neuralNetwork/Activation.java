@@ -0,0 +1,54 @@
+package com.clientservernn.server.neuralNetwork;
+
+import java.util.Objects;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * The interface {@code Activation} represents activation function of neurons
+ * with its derivative. Derivative receives both weighted sum of neuron and output of
+ * activation function for it, already computed on forward pass, so functions
+ * like sigmoid calculate derivative from output without evaluating function again.
+ *
+ * @see Sigmoid
+ * @see TableSigmoid
+ *
+ * @author  Yauheni Slabko
+ * @since   1.0
+ */
+public interface Activation {
+
+    /**
+     * Returns value of activation function for weighted sum {@code x}.
+     */
+    double apply(double x);
+
+    /**
+     * Returns derivative of activation function at {@code x}.
+     *
+     * @param x      the weighted sum of neuron.
+     * @param output the value of {@code apply(x)}.
+     */
+    double derivative(double x, double output);
+
+    /**
+     * Returns activation made of function and its derivative depending only on weighted sum,
+     * {@code output} is not used by derivative of such activation.
+     *
+     * @throws NullPointerException if any param is null.
+     */
+    static Activation of(DoubleUnaryOperator function, DoubleUnaryOperator derivative) {
+        Objects.requireNonNull(function);
+        Objects.requireNonNull(derivative);
+        return new Activation() {
+            @Override
+            public double apply(double x) {
+                return function.applyAsDouble(x);
+            }
+
+            @Override
+            public double derivative(double x, double output) {
+                return derivative.applyAsDouble(x);
+            }
+        };
+    }
+}
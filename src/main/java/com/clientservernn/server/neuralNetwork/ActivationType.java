@@ -0,0 +1,34 @@
+package com.clientservernn.server.neuralNetwork;
+
+/**
+ * This enum contains activation functions that can be selected for layers
+ * in configuration of {@link Topology}.
+ *
+ * @author  Yauheni Slabko
+ * @since   1.0
+ */
+public enum ActivationType {
+    /**
+     * Exact logistic function, {@link Sigmoid}.
+     */
+    SIGMOID {
+        @Override
+        public Activation newActivation() {
+            return new Sigmoid();
+        }
+    },
+    /**
+     * Table approximation of logistic function, {@link TableSigmoid}.
+     */
+    TABLE_SIGMOID {
+        @Override
+        public Activation newActivation() {
+            return new TableSigmoid();
+        }
+    };
+
+    /**
+     * Returns {@link Activation} of this type.
+     */
+    public abstract Activation newActivation();
+}
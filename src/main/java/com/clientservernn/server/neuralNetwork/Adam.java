@@ -0,0 +1,63 @@
+package com.clientservernn.server.neuralNetwork;
+
+/**
+ * The class {@code Adam} is adaptive moment estimation: each parameter is changed by
+ * moving average of gradients divided by square root of moving average of squared gradients,
+ * both corrected for bias of first steps. State is the two averages of each parameter.
+ * Typical learning rate is about 0.001.
+ *
+ * @author  Yauheni Slabko
+ * @since   1.0
+ */
+public final class Adam implements Optimizer {
+
+    private final double beta1;
+    private final double beta2;
+    private final double epsilon;
+
+    /**
+     * Allocate the new {@code Adam} with usual decays 0.9 and 0.999.
+     */
+    public Adam() {
+        this(0.9, 0.999, 1e-8);
+    }
+
+    /**
+     * Allocate the new {@code Adam}.
+     *
+     * @param beta1   the decay of average of gradients, in range [0, 1).
+     * @param beta2   the decay of average of squared gradients, in range [0, 1).
+     * @param epsilon the small positive number added to denominator.
+     * @throws IllegalArgumentException if any param is out of range.
+     */
+    public Adam(double beta1, double beta2, double epsilon) {
+        if (!(beta1 >= 0.0 && beta1 < 1.0 && beta2 >= 0.0 && beta2 < 1.0 && epsilon > 0.0)) {
+            throw new IllegalArgumentException("Illegal Adam parameters: " + beta1 + ", " + beta2 + ", " + epsilon);
+        }
+        this.beta1 = beta1;
+        this.beta2 = beta2;
+        this.epsilon = epsilon;
+    }
+
+    @Override
+    public int stateArrays() {
+        return 2;
+    }
+
+    @Override
+    public void update(double[] parameters, double[] gradients, double scale, double[][] state, double learningRate, long step) {
+        double[] mean = state[0];
+        double[] variance = state[1];
+        //Bias correction is folded into step size.
+        double correction1 = 1.0 - Math.pow(this.beta1, step);
+        double correction2 = 1.0 - Math.pow(this.beta2, step);
+        double stepSize = learningRate * Math.sqrt(correction2) / correction1;
+        double epsilon = this.epsilon * Math.sqrt(correction2);
+        for (int i = 0; i < parameters.length; i++) {
+            double gradient = scale * gradients[i];
+            mean[i] = this.beta1 * mean[i] + (1.0 - this.beta1) * gradient;
+            variance[i] = this.beta2 * variance[i] + (1.0 - this.beta2) * gradient * gradient;
+            parameters[i] += stepSize * mean[i] / (Math.sqrt(variance[i]) + epsilon);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.clientservernn.server.neuralNetwork;
+
+/**
+ * The class {@code EpochStatistics} contains results of one training epoch
+ * of {@link NetworkCommander} measured on validation data.
+ * If there is no validation data loss and accuracy are {@code NaN}.
+ * Instance is immutable.
+ *
+ * @author  Yauheni Slabko
+ * @since   1.0
+ */
+public final class EpochStatistics {
+    private final int epoch;
+    private final double loss;
+    private final double accuracy;
+    private final boolean improved;
+
+    /**
+     * Allocate the new {@code EpochStatistics}.
+     *
+     * @param epoch    the number of epoch since start of training, starting from 1.
+     * @param loss     the mean loss on validation data.
+     * @param accuracy the part of correctly recognized validation samples.
+     * @param improved {@code true} if loss is the best since start of training.
+     */
+    public EpochStatistics(int epoch, double loss, double accuracy, boolean improved) {
+        this.epoch = epoch;
+        this.loss = loss;
+        this.accuracy = accuracy;
+        this.improved = improved;
+    }
+
+    public int getEpoch() {
+        return this.epoch;
+    }
+
+    public double getLoss() {
+        return this.loss;
+    }
+
+    public double getAccuracy() {
+        return this.accuracy;
+    }
+
+    public boolean isImproved() {
+        return this.improved;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("epoch %d, loss %.4f, accuracy %.4f%s", this.epoch, this.loss, this.accuracy, this.improved ? ", best" : "");
+    }
+}
@@ -0,0 +1,171 @@
+package com.clientservernn.server.neuralNetwork;
+
+import com.clientservernn.server.utilities.RawCharData;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * The class {@code FloatNetwork} represents single precision copy of trained
+ * {@link Network} used only for recognition. Weights, inputs and outputs of layers
+ * are {@code float}, which halves memory traffic and doubles width of SIMD operations
+ * compared to source network. Training is performed by source network in double precision,
+ * after training new {@code FloatNetwork} should be created.
+ * Instance is immutable after creation and can be used for recognition by any number
+ * of threads at once, buffers of recognition are kept per thread.
+ *
+ * @param <T> the type of objects operated by the {@code FloatNetwork}
+ * @see Precision
+ *
+ * @author  Yauheni Slabko
+ * @since   1.0
+ */
+public final class FloatNetwork<T> implements Recognizer {
+
+    /**
+     * The numbers of neurons of weighted layers.
+     */
+    private final int[] sizes;
+    private final int inputSize;
+
+    /**
+     * The row-major weight matrices of weighted layers, same layout as {@link Layer#weights}.
+     */
+    private final float[][] weights;
+    private final float[][] biases;
+    private final Activation[] activations;
+
+    /**
+     * The {@code true} if output layer is softmax layer.
+     */
+    private final boolean softmax;
+
+    /**
+     * The scaling of features of source network, {@code null} if image data is used as is.
+     */
+    private final double[][] inputScaling;
+
+    /**
+     * The buffers of recognition, one set per thread: input buffer at index 0
+     * and outputs of weighted layer {@code i} at index {@code i+1}.
+     */
+    private final ThreadLocal<float[][]> buffers = ThreadLocal.withInitial(this::newBuffers);
+
+    /**
+     * Allocate the new {@code FloatNetwork} with weights of given {@code network} rounded to {@code float}.
+     *
+     * @param network the source network.
+     */
+    public FloatNetwork(Network<T> network) {
+        List<Layer> layers = network.getLayers();
+        int size = layers.size() - 1;
+        this.inputSize = layers.get(0).numNeurons;
+        this.sizes = new int[size];
+        this.weights = new float[size][];
+        this.biases = new float[size][];
+        this.activations = new Activation[size];
+        for (int i = 0; i < size; i++) {
+            Layer layer = layers.get(i + 1);
+            this.sizes[i] = layer.numNeurons;
+            this.weights[i] = toFloats(layer.weights);
+            this.biases[i] = toFloats(layer.biases);
+            this.activations[i] = layer.activation;
+        }
+        this.softmax = layers.get(size).softmax;
+        this.inputScaling = network.getInputScaling();
+    }
+
+    /**
+     * Allocate the new {@code FloatNetwork} with weights of given mapped {@code network} rounded to {@code float}.
+     *
+     * @param network the source network.
+     */
+    FloatNetwork(MappedNetwork network) {
+        int size = network.layerCount();
+        this.inputSize = network.inputSize;
+        this.sizes = new int[size];
+        this.weights = new float[size][];
+        this.biases = new float[size][];
+        for (int i = 0; i < size; i++) {
+            this.biases[i] = toFloats(network.readBiases(i));
+            this.weights[i] = toFloats(network.readWeights(i));
+            this.sizes[i] = this.biases[i].length;
+        }
+        this.activations = network.topology.newActivations();
+        this.softmax = network.topology.getLoss() == Loss.CROSS_ENTROPY;
+        this.inputScaling = network.readInputScaling();
+    }
+
+    private static float[] toFloats(double[] doubles) {
+        float[] floats = new float[doubles.length];
+        for (int i = 0; i < doubles.length; i++) {
+            floats[i] = (float) doubles[i];
+        }
+        return floats;
+    }
+
+    private float[][] newBuffers() {
+        float[][] buffers = new float[this.sizes.length + 1][];
+        buffers[0] = new float[this.inputSize];
+        for (int i = 0; i < this.sizes.length; i++) {
+            buffers[i + 1] = new float[this.sizes[i]];
+        }
+        return buffers;
+    }
+
+    /**
+     * Returns outputs of network for given {@code input}.
+     * Result is buffer of current thread that is overwritten by next call.
+     */
+    float[] getOutputs(float[] input) {
+        float[][] buffers = this.buffers.get();
+        float[] result = input;
+        int inputs = this.inputSize;
+        for (int l = 0; l < this.sizes.length; l++) {
+            float[] outputs = buffers[l + 1];
+            boolean softmax = this.softmax && l == this.sizes.length - 1;
+            for (int n = 0; n < outputs.length; n++) {
+                float sum = this.biases[l][n] + Util.dotProduct(this.weights[l], n * inputs, result, inputs);
+                outputs[n] = softmax ? sum : (float) this.activations[l].apply(sum);
+            }
+            if (softmax) {
+                Util.softmax(outputs);
+            }
+            result = outputs;
+            inputs = outputs.length;
+        }
+        return result;
+    }
+
+    public HashMap<T, Double> getCheck(byte[] imageData, Function<double[], HashMap<T, Double>> interpret) {
+        double[] result = new double[this.sizes[this.sizes.length - 1]];
+        this.getCheck(imageData, result);
+        return interpret.apply(result);
+    }
+
+    /**
+     * Puts {@code imageData} on network input and writes outputs of network
+     * to given {@code result} array. Uses buffers of current thread and does not
+     * allocate memory.
+     *
+     * @param imageData the image data.
+     * @param result    the array for outputs, length is equal to size of output layer.
+     */
+    @Override
+    public void getCheck(byte[] imageData, double[] result) {
+        float[] input = this.buffers.get()[0];
+        RawCharData.getFloatsArrayRefactored(imageData, input);
+        if (this.inputScaling != null) {
+            double[] minimums = this.inputScaling[0];
+            double[] differences = this.inputScaling[1];
+            for (int i = 0; i < input.length; i++) {
+                input[i] = (float) Math.min(1.0, Math.max(0.0, (input[i] - minimums[i]) / differences[i]));
+            }
+        }
+        float[] outputs = this.getOutputs(input);
+        for (int i = 0; i < outputs.length; i++) {
+            result[i] = outputs[i];
+        }
+    }
+}
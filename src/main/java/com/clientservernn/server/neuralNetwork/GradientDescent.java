@@ -0,0 +1,27 @@
+package com.clientservernn.server.neuralNetwork;
+
+/**
+ * The class {@code GradientDescent} is plain stochastic gradient descent:
+ * parameters are changed by gradients multiplied by learning rate. Has no state.
+ *
+ * @author  Yauheni Slabko
+ * @since   1.0
+ */
+public final class GradientDescent implements Optimizer {
+
+    /**
+     * Allocate the new {@code GradientDescent}.
+     */
+    public GradientDescent() {
+    }
+
+    @Override
+    public int stateArrays() {
+        return 0;
+    }
+
+    @Override
+    public void update(double[] parameters, double[] gradients, double scale, double[][] state, double learningRate, long step) {
+        Util.addScaled(parameters, 0, gradients, 0, learningRate * scale, parameters.length);
+    }
+}
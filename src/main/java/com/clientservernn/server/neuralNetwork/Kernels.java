@@ -0,0 +1,45 @@
+package com.clientservernn.server.neuralNetwork;
+
+/**
+ * The interface {@code Kernels} contains vector operations that are the
+ * hottest code of training and recognition. Implementation is selected
+ * once at startup by {@link Util}.
+ *
+ * @see ScalarKernels
+ * @see VectorKernels
+ *
+ * @author  Yauheni Slabko
+ * @since   1.0
+ */
+interface Kernels {
+
+    /**
+     * Returns sum of products of {@code length} elements of {@code xs} starting from {@code xOffset}
+     * and {@code length} elements of {@code ys} starting from {@code yOffset}.
+     */
+    double dotProduct(double[] xs, int xOffset, double[] ys, int yOffset, int length);
+
+    /**
+     * Writes to {@code results[0..3]} sums of products of {@code length} elements of {@code xs}
+     * starting from {@code xOffset} and first {@code length} elements of each of four vectors
+     * {@code ys[yIndex..yIndex+3]}. Each element of {@code xs} is loaded once for four products.
+     */
+    void dotProduct4(double[] xs, int xOffset, double[][] ys, int yIndex, int length, double[] results);
+
+    /**
+     * Single precision variant of {@link #dotProduct(double[], int, double[], int, int)}.
+     */
+    float dotProduct(float[] xs, int xOffset, float[] ys, int yOffset, int length);
+
+    /**
+     * Variant of {@link #dotProduct(double[], int, double[], int, int)} for 8-bit integers
+     * of quantized network, products are summed exactly in {@code int}.
+     */
+    int dotProduct(byte[] xs, int xOffset, byte[] ys, int yOffset, int length);
+
+    /**
+     * Adds {@code length} elements of {@code source} starting from {@code sourceOffset}
+     * multiplied by {@code scale} to elements of {@code target} starting from {@code targetOffset}.
+     */
+    void addScaled(double[] target, int targetOffset, double[] source, int sourceOffset, double scale, int length);
+}
@@ -1,11 +1,9 @@
 package com.clientservernn.server.neuralNetwork;
 
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 import java.util.Optional;
 import java.util.Random;
-import java.util.function.DoubleUnaryOperator;
 
 
 /**
@@ -13,63 +11,256 @@ import java.util.function.DoubleUnaryOperator;
  * Implementation borrowed from David Kopec:
  * <a href="https://github.com/davecom/ClassicComputerScienceProblemsInJava">
  *     https://github.com/davecom/ClassicComputerScienceProblemsInJava</a>
+ * Modified to keep weights of all neurons of the layer in one contiguous
+ * row-major matrix {@code weights} with bias vector instead of
+ * separate {@code Neuron} objects, forward and backward passes are tight loops
+ * over this matrix. State of the pass (outputs, weighted sums, deltas, gradients)
+ * is not stored in layer and passed to methods as arrays of {@link Workspace},
+ * so {@code outputs()} only reads layer and can be called from several threads at once.
  *
  * @author David Kopec
+ * @author Yauheni Slabko
  * @since 1.0
  */
 public class Layer {
-    public Optional<Layer> previousLayer;
-    public List<Neuron> neurons = new ArrayList<>();
-    public double[] outputCache;
+    /**
+     * The number of inputs processed together by {@link #outputs(double[][], double[][], int)},
+     * their arrays stay in cache while rows of weights are read.
+     */
+    static final int BATCH_BLOCK = 32;
 
-    public Layer(Optional<Layer> previousLayer, int numNeurons, double learningRate, DoubleUnaryOperator activationFunction, DoubleUnaryOperator derivativeActivationFunction) {
+    public final Optional<Layer> previousLayer;
+
+    /**
+     * The number of neurons of this layer, equals to rows of {@code weights}.
+     */
+    public final int numNeurons;
+
+    /**
+     * The number of inputs of each neuron, equals to columns of {@code weights}.
+     * Is 0 for input layer.
+     */
+    public final int numInputs;
+
+    /**
+     * The weight matrix of layer in row-major order. Weight of input {@code i}
+     * of neuron {@code n} stored at index {@code n*numInputs+i}.
+     */
+    public final double[] weights;
+    public final double[] biases;
+    public final double learningRate;
+    public final Activation activation;
+
+    /**
+     * The {@code true} if layer is output layer with softmax outputs trained by cross-entropy,
+     * then {@code activation} is not used.
+     */
+    public final boolean softmax;
+
+    /**
+     * The {@link Optimizer} updating weights by accumulated gradients.
+     */
+    public final Optimizer optimizer;
+
+    /**
+     * The state arrays of {@code optimizer} for {@code weights} and {@code biases}.
+     */
+    private final double[][] weightsState;
+    private final double[][] biasesState;
+
+    /**
+     * The number of updates by {@code applyGradients()}.
+     */
+    private long step;
+
+    public Layer(Optional<Layer> previousLayer, int numNeurons, double learningRate, Activation activation, Random random) {
+        this(previousLayer, numNeurons, learningRate, activation, false, new GradientDescent(), random);
+    }
+
+    /**
+     * Allocate the new {@code Layer}, if {@code softmax} is {@code true} layer is output layer
+     * with softmax outputs trained by cross-entropy. Weights are updated by given {@code optimizer}.
+     */
+    public Layer(Optional<Layer> previousLayer, int numNeurons, double learningRate, Activation activation, boolean softmax, Optimizer optimizer, Random random) {
         this.previousLayer = previousLayer;
-        Random random = new Random();
-        for(int i = 0; i < numNeurons; ++i) {
-            double[] randomWeights = null;
-            if (previousLayer.isPresent()) {
-                randomWeights = random.doubles((previousLayer.get()).neurons.size()).toArray();
+        this.numNeurons = numNeurons;
+        this.numInputs = previousLayer.map(layer -> layer.numNeurons).orElse(0);
+        this.learningRate = learningRate;
+        this.activation = activation;
+        this.softmax = softmax;
+        this.optimizer = optimizer;
+        //Weights are initialized symmetrically around zero with range depending on number of
+        //inputs and outputs (Xavier initialization), so weighted sums do not saturate activation
+        //function and outputs of neurons stay distinguishable in single precision.
+        if (this.numInputs > 0) {
+            double limit = Math.sqrt(6.0 / (this.numInputs + numNeurons));
+            this.weights = random.doubles((long) numNeurons * this.numInputs, -limit, limit).toArray();
+        } else {
+            this.weights = new double[0];
+        }
+        this.biases = new double[numNeurons];
+        this.weightsState = new double[optimizer.stateArrays()][this.weights.length];
+        this.biasesState = new double[optimizer.stateArrays()][numNeurons];
+    }
+
+    /**
+     * Allocate the new {@code Layer} with copy of weights and biases of {@code source}
+     * connected to given {@code previousLayer}.
+     *
+     * @param source        the copied layer.
+     * @param previousLayer the previous layer of copy, has the same number of neurons as
+     *                      previous layer of {@code source}.
+     */
+    public Layer(Layer source, Optional<Layer> previousLayer) {
+        this.previousLayer = previousLayer;
+        this.numNeurons = source.numNeurons;
+        this.numInputs = source.numInputs;
+        this.learningRate = source.learningRate;
+        this.activation = source.activation;
+        this.softmax = source.softmax;
+        this.optimizer = source.optimizer;
+        this.step = source.step;
+        this.weights = source.weights.clone();
+        this.biases = source.biases.clone();
+        this.weightsState = copy(source.weightsState);
+        this.biasesState = copy(source.biasesState);
+    }
+
+    private static double[][] copy(double[][] arrays) {
+        double[][] copy = new double[arrays.length][];
+        for (int i = 0; i < arrays.length; i++) {
+            copy[i] = arrays[i].clone();
+        }
+        return copy;
+    }
+
+    /**
+     * Calculates outputs of layer for given {@code inputs}.
+     *
+     * @param inputs       outputs of previous layer.
+     * @param weightedSums array for weighted sums of neurons, activation function not applied.
+     * @param outputs      array for outputs of neurons.
+     */
+    public void outputs(double[] inputs, double[] weightedSums, double[] outputs) {
+        for (int n = 0; n < this.numNeurons; n++) {
+            weightedSums[n] = this.biases[n] + Util.dotProduct(this.weights, n * this.numInputs, inputs, this.numInputs);
+        }
+        if (this.softmax) {
+            Util.softmax(weightedSums, outputs);
+            return;
+        }
+        for (int n = 0; n < this.numNeurons; n++) {
+            outputs[n] = this.activation.apply(weightedSums[n]);
+        }
+    }
+
+    /**
+     * Calculates outputs of layer for each of {@code count} first {@code inputs}.
+     * Neurons are iterated in outer loop, so each row of {@code weights} is read once
+     * per block of {@code BATCH_BLOCK} inputs and stays in cache, instead of reading
+     * whole matrix once per input. Row is multiplied by four inputs at once, so each
+     * loaded weight is used four times.
+     *
+     * @param inputs  outputs of previous layer for each input of batch.
+     * @param outputs arrays for outputs of neurons for each input of batch.
+     * @param count   number of inputs of batch.
+     */
+    public void outputs(double[][] inputs, double[][] outputs, int count) {
+        double[] sums = new double[4];
+        for (int from = 0; from < count; from += BATCH_BLOCK) {
+            int to = Math.min(count, from + BATCH_BLOCK);
+            for (int n = 0; n < this.numNeurons; n++) {
+                int offset = n * this.numInputs;
+                int s = from;
+                for (; s + 4 <= to; s += 4) {
+                    Util.dotProduct4(this.weights, offset, inputs, s, this.numInputs, sums);
+                    for (int i = 0; i < 4; i++) {
+                        outputs[s + i][n] = this.biases[n] + sums[i];
+                    }
+                }
+                for (; s < to; s++) {
+                    outputs[s][n] = this.biases[n] + Util.dotProduct(this.weights, offset, inputs[s], this.numInputs);
+                }
+            }
+        }
+        for (int s = 0; s < count; s++) {
+            if (this.softmax) {
+                Util.softmax(outputs[s], outputs[s]);
+                continue;
+            }
+            for (int n = 0; n < this.numNeurons; n++) {
+                outputs[s][n] = this.activation.apply(outputs[s][n]);
             }
-            Neuron neuron = new Neuron(randomWeights, learningRate, activationFunction, derivativeActivationFunction);
-            this.neurons.add(neuron);
         }
+    }
 
-        this.outputCache = new double[numNeurons];
+    public void calculateDeltasForOutputLayer(double[] expected, double[] weightedSums, double[] outputs, double[] deltas) {
+        if (this.softmax) {
+            //Gradient of cross-entropy by weighted sums of softmax layer.
+            for (int n = 0; n < this.numNeurons; ++n) {
+                deltas[n] = expected[n] - outputs[n];
+            }
+            return;
+        }
+        for (int n = 0; n < this.numNeurons; ++n) {
+            deltas[n] = this.activation.derivative(weightedSums[n], outputs[n]) * (expected[n] - outputs[n]);
+        }
     }
 
-    public double[] outputs(double[] inputs) {
-        if (this.previousLayer.isPresent()) {
-            this.outputCache = this.neurons.stream().mapToDouble((n) -> n.output(inputs)).toArray();
-        } else {
-            this.outputCache = inputs;
+    public void calculateDeltasForHiddenLayer(Layer nextLayer, double[] nextDeltas, double[] weightedSums, double[] outputs, double[] deltas) {
+        //Sums of weights and deltas of next layer accumulated row by row
+        //to read next layer matrix sequentially.
+        Arrays.fill(deltas, 0.0);
+        for (int n = 0; n < nextLayer.numNeurons; n++) {
+            Util.addScaled(deltas, 0, nextLayer.weights, n * nextLayer.numInputs, nextDeltas[n], this.numNeurons);
+        }
+        for (int i = 0; i < this.numNeurons; i++) {
+            deltas[i] *= this.activation.derivative(weightedSums[i], outputs[i]);
         }
-        return this.outputCache;
     }
 
-    public void calculateDeltasForOutputLayer(double[] expected) {
-        for(int n = 0; n < this.neurons.size(); ++n) {
-            (this.neurons.get(n)).delta = (this.neurons.get(n)).derivativeActivationFunction.applyAsDouble((this.neurons.get(n)).outputCache) * (expected[n] - this.outputCache[n]);
+    public void updateWeights(double[] inputs, double[] deltas) {
+        for (int n = 0; n < this.numNeurons; n++) {
+            double step = this.learningRate * deltas[n];
+            Util.addScaled(this.weights, n * this.numInputs, inputs, 0, step, this.numInputs);
+            this.biases[n] += step;
         }
     }
 
-    public void calculateDeltasForHiddenLayer(Layer nextLayer) {
-        for (int i = 0; i < neurons.size(); i++) {
-            int index = i;
-            double[] nextWeights = nextLayer.neurons.stream().mapToDouble(n -> n.weights[index]).toArray();
-            double[] nextDeltas = nextLayer.neurons.stream().mapToDouble(n -> n.delta).toArray();
-            double sumWeightsAndDeltas = Util.dotProduct(nextWeights, nextDeltas);
-            neurons.get(i).delta = neurons.get(i).derivativeActivationFunction
-                    .applyAsDouble(neurons.get(i).outputCache) * sumWeightsAndDeltas;
+    /**
+     * Adds gradients of pass to {@code weightGradients} and {@code biasGradients}
+     * without changing weights.
+     */
+    public void accumulateGradients(double[] inputs, double[] deltas, double[] weightGradients, double[] biasGradients) {
+        for (int n = 0; n < this.numNeurons; n++) {
+            Util.addScaled(weightGradients, n * this.numInputs, inputs, 0, deltas[n], this.numInputs);
+            biasGradients[n] += deltas[n];
         }
     }
 
+    /**
+     * Updates weights by {@code optimizer} with gradients averaged over {@code batchSize}
+     * accumulated passes and resets accumulated gradients.
+     *
+     * @param batchSize number of passes accumulated in gradients.
+     */
+    public void applyGradients(double[] weightGradients, double[] biasGradients, int batchSize) {
+        double scale = 1.0 / batchSize;
+        this.step++;
+        this.optimizer.update(this.weights, weightGradients, scale, this.weightsState, this.learningRate, this.step);
+        this.optimizer.update(this.biases, biasGradients, scale, this.biasesState, this.learningRate, this.step);
+        Arrays.fill(weightGradients, 0.0);
+        Arrays.fill(biasGradients, 0.0);
+    }
+
 
     @Override
     public String toString() {
-        String layerDescription = "Layer, neurons: \n";
-        for (int i = 0; i < neurons.size(); i++) {
-            layerDescription=layerDescription.concat(neurons.get(i).toString()).concat("\n");
+        StringBuilder layerDescription = new StringBuilder("Layer, neurons: \n");
+        for (int n = 0; n < this.numNeurons; n++) {
+            double[] row = Arrays.copyOfRange(this.weights, n * this.numInputs, (n + 1) * this.numInputs);
+            layerDescription.append("Neuron, weights: ").append(Arrays.toString(row)).append("\n");
         }
-        return layerDescription;
+        return layerDescription.toString();
     }
 }
@@ -0,0 +1,22 @@
+package com.clientservernn.server.neuralNetwork;
+
+/**
+ * This enum contains loss functions minimized by training of {@link Network}.
+ *
+ * @author  Yauheni Slabko
+ * @since   1.0
+ */
+public enum Loss {
+    /**
+     * Squared error of outputs of output layer with its own activation. Error signal
+     * of output layer is multiplied by derivative of activation, so it vanishes when
+     * activation saturates.
+     */
+    SQUARED_ERROR,
+    /**
+     * Cross-entropy of outputs of softmax output layer, activation of output layer
+     * is replaced by softmax. Error signal of output layer is difference of expected
+     * and actual outputs, and outputs are probabilities of classes with sum 1.
+     */
+    CROSS_ENTROPY
+}
@@ -0,0 +1,207 @@
+package com.clientservernn.server.neuralNetwork;
+
+import com.clientservernn.server.utilities.RawCharData;
+
+import java.io.IOException;
+import java.nio.DoubleBuffer;
+import java.util.List;
+
+/**
+ * The class {@code MappedNetwork} represents trained model read from memory-mapped
+ * {@link ModelFile} and used only for recognition. Weights, biases and scaling of features
+ * are not copied on heap, they are read from mapped file viewed as {@link DoubleBuffer}
+ * at indexes of arrays in file, so loading does not depend on size of model and processes
+ * serving the same model share its pages in page cache of operating system.
+ * Rows of weights are multiplied by inputs straight from mapped file by absolute gets,
+ * see {@link Util#dotProduct(DoubleBuffer, int, double[], int)}, weights are never copied on heap.
+ * Instance is immutable and can be used for recognition by any number of threads at once,
+ * buffers of recognition are kept per thread.
+ *
+ * @see ModelFile#map(java.nio.file.Path)
+ *
+ * @author  Yauheni Slabko
+ * @since   1.0
+ */
+final class MappedNetwork implements Recognizer {
+
+    final long trainDate;
+    final Topology topology;
+    final List<String> characters;
+    final int inputSize;
+
+    /**
+     * The mapped model file in byte order of its arrays.
+     */
+    private final DoubleBuffer buffer;
+
+    /**
+     * The index of minimums of features in {@code buffer}, differences follow them,
+     * -1 if model has no scaling of features.
+     */
+    private final int scalingOffset;
+
+    /**
+     * The numbers of neurons of weighted layers.
+     */
+    private final int[] sizes;
+
+    /**
+     * The indexes of row-major weight matrices of weighted layers in {@code buffer},
+     * biases of layer follow its matrix.
+     */
+    private final int[] weightOffsets;
+    private final Activation[] activations;
+
+    /**
+     * The {@code true} if output layer is softmax layer.
+     */
+    private final boolean softmax;
+
+    /**
+     * The buffers of recognition, one set per thread: input buffer at index 0,
+     * outputs of weighted layer {@code i} at index {@code i+1}.
+     */
+    private final ThreadLocal<double[][]> buffers = ThreadLocal.withInitial(this::newBuffers);
+
+    MappedNetwork(long trainDate, Topology topology, List<String> characters, int inputSize,
+                  DoubleBuffer buffer, int scalingOffset, int[] sizes, int[] weightOffsets) throws IOException {
+        this.trainDate = trainDate;
+        this.topology = topology;
+        this.characters = List.copyOf(characters);
+        this.inputSize = inputSize;
+        this.buffer = buffer;
+        this.scalingOffset = scalingOffset;
+        this.sizes = sizes;
+        this.weightOffsets = weightOffsets;
+        this.activations = topology.newActivations();
+        if (this.activations.length != sizes.length) {
+            throw new IOException("Model does not match its topology " + topology);
+        }
+        this.softmax = topology.getLoss() == Loss.CROSS_ENTROPY;
+    }
+
+    private double[][] newBuffers() {
+        double[][] buffers = new double[this.sizes.length + 1][];
+        buffers[0] = new double[this.inputSize];
+        for (int i = 0; i < this.sizes.length; i++) {
+            buffers[i + 1] = new double[this.sizes[i]];
+        }
+        return buffers;
+    }
+
+    /**
+     * Returns number of inputs of weighted layer {@code layer}.
+     */
+    private int inputs(int layer) {
+        return layer == 0 ? this.inputSize : this.sizes[layer - 1];
+    }
+
+    /**
+     * Returns outputs of network for given {@code input}.
+     * Result is buffer of current thread that is overwritten by next call.
+     */
+    double[] getOutputs(double[] input) {
+        double[][] buffers = this.buffers.get();
+        double[] result = input;
+        for (int l = 0; l < this.sizes.length; l++) {
+            double[] outputs = buffers[l + 1];
+            int inputs = this.inputs(l);
+            int offset = this.weightOffsets[l];
+            int biasOffset = offset + this.sizes[l] * inputs;
+            for (int n = 0; n < outputs.length; n++) {
+                outputs[n] = this.buffer.get(biasOffset + n) + Util.dotProduct(this.buffer, offset + n * inputs, result, inputs);
+            }
+            if (this.softmax && l == this.sizes.length - 1) {
+                Util.softmax(outputs, outputs);
+            } else {
+                for (int n = 0; n < outputs.length; n++) {
+                    outputs[n] = this.activations[l].apply(outputs[n]);
+                }
+            }
+            result = outputs;
+        }
+        return result;
+    }
+
+    @Override
+    public void getCheck(byte[] imageData, double[] result) {
+        double[] input = this.buffers.get()[0];
+        RawCharData.getDoublesArrayRefactored(imageData, input);
+        if (this.scalingOffset >= 0) {
+            int differencesOffset = this.scalingOffset + this.inputSize;
+            for (int i = 0; i < input.length; i++) {
+                double minimum = this.buffer.get(this.scalingOffset + i);
+                double difference = this.buffer.get(differencesOffset + i);
+                input[i] = Math.min(1.0, Math.max(0.0, (input[i] - minimum) / difference));
+            }
+        }
+        double[] outputs = this.getOutputs(input);
+        System.arraycopy(outputs, 0, result, 0, outputs.length);
+    }
+
+    /**
+     * Returns number of weighted layers.
+     */
+    int layerCount() {
+        return this.sizes.length;
+    }
+
+    /**
+     * Returns heap copy of weights of weighted layer {@code layer} in row-major order.
+     */
+    double[] readWeights(int layer) {
+        return this.readDoubles(this.weightOffsets[layer], this.sizes[layer] * this.inputs(layer));
+    }
+
+    /**
+     * Returns heap copy of biases of weighted layer {@code layer}.
+     */
+    double[] readBiases(int layer) {
+        int matrixSize = this.sizes[layer] * this.inputs(layer);
+        return this.readDoubles(this.weightOffsets[layer] + matrixSize, this.sizes[layer]);
+    }
+
+    /**
+     * Returns heap copy of scaling of features or {@code null}.
+     */
+    double[][] readInputScaling() {
+        if (this.scalingOffset < 0) {
+            return null;
+        }
+        return new double[][]{this.readDoubles(this.scalingOffset, this.inputSize),
+                this.readDoubles(this.scalingOffset + this.inputSize, this.inputSize)};
+    }
+
+    private double[] readDoubles(int offset, int length) {
+        double[] values = new double[length];
+        this.buffer.get(offset, values);
+        return values;
+    }
+
+    /**
+     * Returns numbers of neurons of layers of model, first is input layer,
+     * same as {@link Topology#layerStructure(int, int)}.
+     */
+    int[] layerStructure() {
+        int[] structure = new int[this.sizes.length + 1];
+        structure[0] = this.inputSize;
+        System.arraycopy(this.sizes, 0, structure, 1, this.sizes.length);
+        return structure;
+    }
+
+    /**
+     * Copies weights and scaling of features of this model to {@code network},
+     * which is used for further training.
+     *
+     * @param network the network with {@code layerStructure()} of this model.
+     */
+    void copyTo(Network<?> network) {
+        List<Layer> layers = network.getLayers();
+        for (int i = 1; i < layers.size(); i++) {
+            Layer layer = layers.get(i);
+            System.arraycopy(this.readWeights(i - 1), 0, layer.weights, 0, layer.weights.length);
+            System.arraycopy(this.readBiases(i - 1), 0, layer.biases, 0, layer.biases.length);
+        }
+        network.setInputScaling(this.readInputScaling());
+    }
+}
@@ -0,0 +1,310 @@
+package com.clientservernn.server.neuralNetwork;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.TreeSet;
+
+/**
+ * The class {@code ModelFile} represents trained model of one charset stored in binary file:
+ * topology, characters in order of outputs, scaling of input features and weights of layers.
+ * Numbers of header are written in big-endian order by {@link DataOutputStream},
+ * arrays of doubles in {@code ORDER}, native byte order of writing machine:
+ * <pre>
+ * int     magic number {@code MAGIC}
+ * int     format version {@code VERSION}
+ * int     encoding of weights, 0 is {@code double}
+ * int     byte order of arrays, 0 is big-endian, 1 is little-endian
+ * long    date of training in milliseconds
+ * UTF     topology as lines "key=value" of {@link Topology#toProperties()}
+ * int     number of characters, then UTF of each character
+ * int     size of input layer
+ * int     1 if scaling of features is present, else 0
+ *         zero padding to multiple of 8 bytes, then minimums and differences of features (doubles)
+ * int     number of weighted layers, then for each layer:
+ *         int neurons, int inputs, zero padding to multiple of 8 bytes,
+ *         weights in row-major order (doubles), biases (doubles)
+ * </pre>
+ * Arrays of doubles start at offsets aligned to 8 bytes, so they are read by {@link MappedNetwork}
+ * from mapped file directly, without swapping of bytes on machine with the same byte order.
+ * Files of version 1 have no field of byte order, their arrays are big-endian.
+ * State of optimizer is not stored, training after loading starts with new state.
+ *
+ * @author  Yauheni Slabko
+ * @since   1.0
+ */
+final class ModelFile {
+
+    static final int MAGIC = 0x4E4E4D4C;
+    static final int VERSION = 2;
+    static final int ENCODING_DOUBLE = 0;
+    static final int BIG_ENDIAN = 0;
+    static final int LITTLE_ENDIAN = 1;
+
+    /**
+     * The byte order of written arrays.
+     */
+    static final ByteOrder ORDER = ByteOrder.nativeOrder();
+
+    /**
+     * The size of buffer converting arrays to bytes.
+     */
+    private static final int CHUNK = 8192;
+
+    final long trainDate;
+    final Topology topology;
+    final List<String> characters;
+    final int inputSize;
+
+    /**
+     * The scaling of features or {@code null}.
+     */
+    final double[][] inputScaling;
+
+    /**
+     * The weights and biases of weighted layers, first is first hidden layer.
+     */
+    final double[][] weights;
+    final double[][] biases;
+
+    ModelFile(long trainDate, Topology topology, List<String> characters, int inputSize, double[][] inputScaling, double[][] weights, double[][] biases) {
+        this.trainDate = trainDate;
+        this.topology = topology;
+        this.characters = List.copyOf(characters);
+        this.inputSize = inputSize;
+        this.inputScaling = inputScaling;
+        this.weights = weights;
+        this.biases = biases;
+    }
+
+    /**
+     * Returns model with weights and scaling of features of given {@code network}.
+     * Arrays of network are referenced, not copied, so network must not be trained
+     * until model is written.
+     */
+    static ModelFile of(Network<?> network, long trainDate, Topology topology, List<String> characters) {
+        List<Layer> layers = network.getLayers();
+        double[][] weights = new double[layers.size() - 1][];
+        double[][] biases = new double[layers.size() - 1][];
+        for (int i = 1; i < layers.size(); i++) {
+            weights[i - 1] = layers.get(i).weights;
+            biases[i - 1] = layers.get(i).biases;
+        }
+        return new ModelFile(trainDate, topology, characters, layers.get(0).numNeurons, network.getInputScaling(), weights, biases);
+    }
+
+    /**
+     * Writes this model to temporary file and then moves it to {@code path},
+     * so readers never see partly written file. Existing file is not replaced,
+     * it may be mapped by loaded model, see {@link com.clientservernn.server.utilities.FileManager#newModelPath(String)}.
+     *
+     * @throws IOException if file can not be written or {@code path} exists.
+     */
+    void write(Path path) throws IOException {
+        if (Files.exists(path)) {
+            throw new FileAlreadyExistsException(path.toString());
+        }
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        ByteBuffer chunk = ByteBuffer.allocate(CHUNK).order(ORDER);
+        try (CountingOutputStream counter = new CountingOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)));
+             DataOutputStream output = new DataOutputStream(counter)) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(ENCODING_DOUBLE);
+            output.writeInt(ORDER == ByteOrder.BIG_ENDIAN ? BIG_ENDIAN : LITTLE_ENDIAN);
+            output.writeLong(this.trainDate);
+            output.writeUTF(toText(this.topology.toProperties()));
+            output.writeInt(this.characters.size());
+            for (String character : this.characters) {
+                output.writeUTF(character);
+            }
+            output.writeInt(this.inputSize);
+            output.writeInt(this.inputScaling != null ? 1 : 0);
+            if (this.inputScaling != null) {
+                pad(output, counter.count);
+                writeDoubles(output, this.inputScaling[0], chunk);
+                writeDoubles(output, this.inputScaling[1], chunk);
+            }
+            output.writeInt(this.weights.length);
+            for (int i = 0; i < this.weights.length; i++) {
+                int neurons = this.biases[i].length;
+                output.writeInt(neurons);
+                output.writeInt(neurons == 0 ? 0 : this.weights[i].length / neurons);
+                pad(output, counter.count);
+                writeDoubles(output, this.weights[i], chunk);
+                writeDoubles(output, this.biases[i], chunk);
+            }
+        }
+        try {
+            Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException exception) {
+            Files.move(temporary, path);
+        } catch (IOException exception) {
+            Files.deleteIfExists(temporary);
+            throw exception;
+        }
+    }
+
+    /**
+     * Maps model file at {@code path} to memory read-only and returns network reading
+     * weights from mapped file. Only header is parsed, arrays are not read.
+     * File must not be replaced or deleted while network is used.
+     *
+     * @throws IOException if file can not be read, is not model file, has unsupported version
+     * or is truncated.
+     */
+    static MappedNetwork map(Path path) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Model file is too large: " + path);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a model file: " + path);
+            }
+            int version = buffer.getInt();
+            if (version != 1 && version != VERSION) {
+                throw new IOException("Unsupported model version " + version + ": " + path);
+            }
+            int encoding = buffer.getInt();
+            if (encoding != ENCODING_DOUBLE) {
+                throw new IOException("Unsupported weights encoding " + encoding + ": " + path);
+            }
+            int order = version == 1 ? BIG_ENDIAN : buffer.getInt();
+            if (order != BIG_ENDIAN && order != LITTLE_ENDIAN) {
+                throw new IOException("Unsupported byte order " + order + ": " + path);
+            }
+            long trainDate = buffer.getLong();
+            Properties properties = new Properties();
+            properties.load(new StringReader(readUTF(buffer)));
+            Topology topology;
+            try {
+                topology = Topology.parse(properties);
+            } catch (IllegalArgumentException exception) {
+                throw new IOException("Malformed topology in model file: " + path, exception);
+            }
+            int characterCount = buffer.getInt();
+            List<String> characters = new ArrayList<>();
+            for (int i = 0; i < characterCount; i++) {
+                characters.add(readUTF(buffer));
+            }
+            int inputSize = buffer.getInt();
+            int scalingOffset = -1;
+            if (buffer.getInt() == 1) {
+                scalingOffset = skipDoubles(buffer, 2L * inputSize, path);
+            }
+            int layers = buffer.getInt();
+            if (layers < 0) {
+                throw new IOException("Negative number of layers: " + path);
+            }
+            int[] sizes = new int[layers];
+            int[] weightOffsets = new int[layers];
+            for (int i = 0; i < layers; i++) {
+                sizes[i] = buffer.getInt();
+                int inputs = buffer.getInt();
+                if (inputs != (i == 0 ? inputSize : sizes[i - 1])) {
+                    throw new IOException("Layers of model are not connected: " + path);
+                }
+                weightOffsets[i] = skipDoubles(buffer, (long) sizes[i] * inputs + sizes[i], path);
+            }
+            DoubleBuffer doubles = buffer.position(0)
+                    .order(order == BIG_ENDIAN ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+            return new MappedNetwork(trainDate, topology, characters, inputSize, doubles, scalingOffset, sizes, weightOffsets);
+        } catch (BufferUnderflowException exception) {
+            throw new IOException("Truncated model file: " + path, exception);
+        }
+    }
+
+    /**
+     * Reads string written by {@link DataOutputStream#writeUTF(String)} at position of {@code buffer}.
+     */
+    private static String readUTF(ByteBuffer buffer) throws IOException {
+        int length = Short.toUnsignedInt(buffer.getShort(buffer.position()));
+        byte[] bytes = new byte[Short.BYTES + length];
+        buffer.get(bytes);
+        return new DataInputStream(new ByteArrayInputStream(bytes)).readUTF();
+    }
+
+    /**
+     * Skips padding and {@code count} doubles at position of {@code buffer}.
+     *
+     * @return index of first skipped double in file viewed as array of doubles.
+     * @throws IOException if doubles exceed limit of {@code buffer}.
+     */
+    private static int skipDoubles(ByteBuffer buffer, long count, Path path) throws IOException {
+        int offset = (buffer.position() + Double.BYTES - 1) / Double.BYTES * Double.BYTES;
+        if (count < 0 || offset > buffer.limit() || count > (buffer.limit() - offset) / Double.BYTES) {
+            throw new IOException("Truncated model file: " + path);
+        }
+        buffer.position(offset + (int) (count * Double.BYTES));
+        return offset / Double.BYTES;
+    }
+
+    /**
+     * Returns properties as sorted lines "key=value", without date comment of {@link Properties#store},
+     * so equal models are written to equal files.
+     */
+    private static String toText(Properties properties) {
+        StringBuilder text = new StringBuilder();
+        for (String key : new TreeSet<>(properties.stringPropertyNames())) {
+            text.append(key).append('=').append(properties.getProperty(key)).append('\n');
+        }
+        return text.toString();
+    }
+
+    private static void pad(DataOutputStream output, long position) throws IOException {
+        for (long i = position; i % Double.BYTES != 0; i++) {
+            output.writeByte(0);
+        }
+    }
+
+    /**
+     * Writes {@code values} in byte order of {@code chunk} by parts of size of {@code chunk}.
+     */
+    private static void writeDoubles(DataOutputStream output, double[] values, ByteBuffer chunk) throws IOException {
+        DoubleBuffer doubles = chunk.clear().asDoubleBuffer();
+        for (int i = 0; i < values.length; i += doubles.capacity()) {
+            int length = Math.min(doubles.capacity(), values.length - i);
+            doubles.put(0, values, i, length);
+            output.write(chunk.array(), 0, length * Double.BYTES);
+        }
+    }
+
+    /**
+     * The stream counting written bytes, used for alignment of arrays.
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            this.out.write(b);
+            this.count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            this.out.write(b, off, len);
+            this.count += len;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.clientservernn.server.neuralNetwork;
+
+/**
+ * The class {@code Momentum} is gradient descent with momentum: velocity is
+ * decayed by {@code momentum} and increased by gradient on each update, parameters
+ * are changed by velocity multiplied by learning rate. State is velocity of each parameter.
+ *
+ * @author  Yauheni Slabko
+ * @since   1.0
+ */
+public final class Momentum implements Optimizer {
+
+    private final double momentum;
+
+    /**
+     * Allocate the new {@code Momentum} with momentum 0.9.
+     */
+    public Momentum() {
+        this(0.9);
+    }
+
+    /**
+     * Allocate the new {@code Momentum}.
+     *
+     * @param momentum the decay of velocity, in range [0, 1).
+     * @throws IllegalArgumentException if {@code momentum} is out of range.
+     */
+    public Momentum(double momentum) {
+        if (!(momentum >= 0.0 && momentum < 1.0)) {
+            throw new IllegalArgumentException("Momentum must be in range [0, 1): " + momentum);
+        }
+        this.momentum = momentum;
+    }
+
+    @Override
+    public int stateArrays() {
+        return 1;
+    }
+
+    @Override
+    public void update(double[] parameters, double[] gradients, double scale, double[][] state, double learningRate, long step) {
+        double[] velocity = state[0];
+        for (int i = 0; i < parameters.length; i++) {
+            velocity[i] = this.momentum * velocity[i] + scale * gradients[i];
+            parameters[i] += learningRate * velocity[i];
+        }
+    }
+}
@@ -7,10 +7,14 @@ package com.clientservernn.server.neuralNetwork;
 
 import com.clientservernn.server.utilities.RawCharData;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.function.DoubleUnaryOperator;
 import java.util.function.Function;
 
@@ -22,71 +26,380 @@ import java.util.function.Function;
  * Implementation borrowed from David Kopec:
  * <a href="https://github.com/davecom/ClassicComputerScienceProblemsInJava">
  *     https://github.com/davecom/ClassicComputerScienceProblemsInJava</a>
+ * Recognition does not change state of network: weights are only read and
+ * state of pass is kept in {@link Workspace} of calling thread, so any number of
+ * threads can recognize with one network at the same time without locking.
+ * Training changes weights and must not run concurrently with other training.
  * @param <T> the type of objects operated by the {@code Network}
  *
  * @author David Kopec
  * @author Yauheni Slabko
  * @since 1.0
  */
-public class Network<T> {
+public class Network<T> implements Recognizer {
+
+    /**
+     * The number of samples of mini-batch processed by one fork-join task
+     * in {@link #train(List, List, int, ForkJoinPool)}. Batch is always split
+     * in same parts regardless of pool parallelism, so results of training
+     * do not depend on number of workers.
+     */
+    static final int PARALLEL_LEAF_SIZE = 8;
+
     private final List<Layer> layers = new ArrayList<>();
+
+    /**
+     * The {@link Optimizer} of all layers.
+     */
+    private final Optimizer optimizer;
+
+    /**
+     * The scaling of features of training data applied to image data before recognition,
+     * {@code null} if image data is used as is. Arrays are not changed after setting.
+     */
+    private volatile double[][] inputScaling;
+
+    /**
+     * The {@link Workspace} of single thread training.
+     */
+    private final Workspace workspace;
+
+    /**
+     * The workspaces of fork-join tasks, workspace {@code i} used by
+     * task of {@code i}-th part of mini-batch.
+     */
+    private Workspace[] leafWorkspaces = new Workspace[0];
+
+    /**
+     * The workspaces of recognition, one per thread, so recognition does not
+     * allocate memory after first call in thread.
+     */
+    private final ThreadLocal<Workspace> checkWorkspaces = ThreadLocal.withInitial(() -> new Workspace(this.layers, false));
+
+    /**
+     * The outputs of layers for batch recognition, one set per thread: outputs of layer {@code l}
+     * for each image of batch at index {@code l}, except output layer, which writes to results.
+     * Arrays are grown to size of the largest batch of thread.
+     */
+    private final ThreadLocal<double[][][]> batchOutputs = ThreadLocal.withInitial(() -> new double[this.layers.size() - 1][0][]);
+
     public Network(int[] layerStructure, double learningRate, DoubleUnaryOperator activationFunction, DoubleUnaryOperator derivativeActivationFunction) {
-        Layer inputLayer = new Layer(Optional.empty(), layerStructure[0], learningRate, activationFunction, derivativeActivationFunction);
+        this(layerStructure, learningRate, activationFunction, derivativeActivationFunction, new Random());
+    }
+
+    /**
+     * Allocate the new {@code Network} with weights initialized by given {@code random},
+     * networks created with equally seeded {@code random} have the same weights.
+     */
+    public Network(int[] layerStructure, double learningRate, DoubleUnaryOperator activationFunction, DoubleUnaryOperator derivativeActivationFunction, Random random) {
+        this(layerStructure, learningRate, Activation.of(activationFunction, derivativeActivationFunction), random);
+    }
+
+    /**
+     * Allocate the new {@code Network} with given {@link Activation} of all layers and
+     * weights initialized by given {@code random}.
+     */
+    public Network(int[] layerStructure, double learningRate, Activation activation, Random random) {
+        this(layerStructure, learningRate, fill(activation, layerStructure.length - 1), random);
+    }
+
+    /**
+     * Allocate the new {@code Network} with weights initialized by given {@code random}.
+     * Activation {@code i} of {@code activations} is used by layer {@code i+1},
+     * input layer has no activation.
+     *
+     * @throws IllegalArgumentException if number of activations is not equal to number of weighted layers.
+     */
+    public Network(int[] layerStructure, double learningRate, Activation[] activations, Random random) {
+        this(layerStructure, learningRate, activations, Loss.SQUARED_ERROR, random);
+    }
+
+    /**
+     * Allocate the new {@code Network} trained by given {@code loss}, for {@link Loss#CROSS_ENTROPY}
+     * output layer is softmax layer and last of {@code activations} is not used.
+     *
+     * @throws IllegalArgumentException if number of activations is not equal to number of weighted layers.
+     */
+    public Network(int[] layerStructure, double learningRate, Activation[] activations, Loss loss, Random random) {
+        this(layerStructure, learningRate, activations, loss, new GradientDescent(), random);
+    }
+
+    /**
+     * Allocate the new {@code Network} trained by given {@code loss} with weights updated
+     * by given {@code optimizer}. Each layer keeps its own state of optimizer.
+     *
+     * @throws IllegalArgumentException if number of activations is not equal to number of weighted layers.
+     */
+    public Network(int[] layerStructure, double learningRate, Activation[] activations, Loss loss, Optimizer optimizer, Random random) {
+        if (activations.length != layerStructure.length - 1) {
+            throw new IllegalArgumentException("Expected " + (layerStructure.length - 1) + " activations: " + activations.length);
+        }
+        this.optimizer = optimizer;
+        Layer inputLayer = new Layer(Optional.empty(), layerStructure[0], learningRate, activations[0], false, optimizer, random);
         this.layers.add(inputLayer);
         for(int i = 1; i < layerStructure.length; ++i) {
-            Layer nextLayer = new Layer(Optional.of(this.layers.get(i - 1)), layerStructure[i], learningRate, activationFunction, derivativeActivationFunction);
+            boolean softmax = loss == Loss.CROSS_ENTROPY && i == layerStructure.length - 1;
+            Layer nextLayer = new Layer(Optional.of(this.layers.get(i - 1)), layerStructure[i], learningRate, activations[i - 1], softmax, optimizer, random);
             this.layers.add(nextLayer);
         }
+        this.workspace = new Workspace(this.layers);
+    }
+
+    private static Activation[] fill(Activation activation, int length) {
+        Activation[] activations = new Activation[length];
+        Arrays.fill(activations, activation);
+        return activations;
+    }
+
+    /**
+     * Allocate the new {@code Network} with copy of weights of {@code source}.
+     * Later training of any of networks does not change other.
+     */
+    private Network(Network<T> source) {
+        this.optimizer = source.optimizer;
+        this.inputScaling = source.inputScaling;
+        for (Layer layer : source.layers) {
+            Optional<Layer> previousLayer = this.layers.isEmpty() ? Optional.empty() : Optional.of(this.layers.get(this.layers.size() - 1));
+            this.layers.add(new Layer(layer, previousLayer));
+        }
+        this.workspace = new Workspace(this.layers);
+    }
 
+    /**
+     * Returns copy of this network with the same weights. Must not be called
+     * concurrently with training of this network.
+     * @return  the new {@code Network}.
+     */
+    public Network<T> copy() {
+        return new Network<>(this);
     }
 
-    private double[] getOutputs(double[] input) {
-        double[] result = input;
-        Layer layer;
-        for (Layer value : this.layers) {
-            layer = value;
-            result = layer.outputs(result);
+    private double[] getOutputs(double[] input, Workspace workspace) {
+        workspace.outputs[0] = input;
+        for (int i = 1; i < this.layers.size(); i++) {
+            this.layers.get(i).outputs(workspace.outputs[i - 1], workspace.weightedSums[i], workspace.outputs[i]);
         }
-        return result;
+        return workspace.outputs[this.layers.size() - 1];
     }
 
-    private void backpropagate(double[] expected) {
+    private void backpropagate(double[] expected, Workspace workspace) {
         int lastLayer = this.layers.size() - 1;
-        (this.layers.get(lastLayer)).calculateDeltasForOutputLayer(expected);
+        (this.layers.get(lastLayer)).calculateDeltasForOutputLayer(expected, workspace.weightedSums[lastLayer], workspace.outputs[lastLayer], workspace.deltas[lastLayer]);
 
-        for(int i = lastLayer - 1; i >= 0; --i) {
-            (this.layers.get(i)).calculateDeltasForHiddenLayer(this.layers.get(i + 1));
+        for(int i = lastLayer - 1; i > 0; --i) {
+            (this.layers.get(i)).calculateDeltasForHiddenLayer(this.layers.get(i + 1), workspace.deltas[i + 1], workspace.weightedSums[i], workspace.outputs[i], workspace.deltas[i]);
         }
 
     }
 
-    private void updateWeights() {
-        for (Layer layer : this.layers.subList(1, this.layers.size())) {
-            for (Neuron neuron : layer.neurons) {
-                for (int w = 0; w < neuron.weights.length; ++w) {
-                    neuron.weights[w] += neuron.learningRate * ((Layer) layer.previousLayer.get()).outputCache[w] * neuron.delta;
-                }
-            }
+    private void updateWeights(Workspace workspace) {
+        for (int i = 1; i < this.layers.size(); i++) {
+            this.layers.get(i).updateWeights(workspace.outputs[i - 1], workspace.deltas[i]);
+        }
+
+    }
+
+    private void accumulateGradients(Workspace workspace) {
+        for (int i = 1; i < this.layers.size(); i++) {
+            this.layers.get(i).accumulateGradients(workspace.outputs[i - 1], workspace.deltas[i], workspace.weightGradients[i], workspace.biasGradients[i]);
         }
+    }
 
+    private void applyGradients(Workspace workspace, int batchSize) {
+        for (int i = 1; i < this.layers.size(); i++) {
+            this.layers.get(i).applyGradients(workspace.weightGradients[i], workspace.biasGradients[i], batchSize);
+        }
     }
 
     public void train(List<double[]> inputs, List<double[]> expects) {
+        //Plain gradient descent changes weights directly by deltas, other optimizers
+        //need gradients of each sample in workspace.
+        boolean direct = this.optimizer instanceof GradientDescent;
         for(int i = 0; i < inputs.size(); ++i) {
             double[] xs = (double[])inputs.get(i);
             double[] ys = (double[])expects.get(i);
-            this.getOutputs(xs);
-            this.backpropagate(ys);
-            this.updateWeights();
+            this.getOutputs(xs, this.workspace);
+            this.backpropagate(ys, this.workspace);
+            if (direct) {
+                this.updateWeights(this.workspace);
+            } else {
+                this.accumulateGradients(this.workspace);
+                this.applyGradients(this.workspace, 1);
+            }
         }
 
     }
 
+    /**
+     * Trains network by mini-batch gradient descent. Gradients are accumulated
+     * over {@code batchSize} samples and weights are updated once per batch
+     * by averaged gradients. Last batch can be smaller.
+     * If {@code batchSize} is 1 works same as {@link #train(List, List)}.
+     *
+     * @param inputs    the training samples.
+     * @param expects   the expected outputs for samples.
+     * @param batchSize the number of samples in mini-batch.
+     * @throws IllegalArgumentException if {@code batchSize} is not positive.
+     */
+    public void train(List<double[]> inputs, List<double[]> expects, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        if (batchSize == 1) {
+            this.train(inputs, expects);
+            return;
+        }
+        for (int start = 0; start < inputs.size(); start += batchSize) {
+            int end = Math.min(start + batchSize, inputs.size());
+            for (int i = start; i < end; ++i) {
+                this.getOutputs(inputs.get(i), this.workspace);
+                this.backpropagate(expects.get(i), this.workspace);
+                this.accumulateGradients(this.workspace);
+            }
+            this.applyGradients(this.workspace, end - start);
+        }
+    }
+
+    /**
+     * Trains network by mini-batch gradient descent, each mini-batch is split
+     * in parts of {@code PARALLEL_LEAF_SIZE} samples processed by tasks of given {@code pool}.
+     * Each task accumulates gradients in its own {@link Workspace}, then gradients
+     * of tasks are summed pairwise by tree reduction and applied to weights once per batch.
+     * Summation order is defined only by batch size, so results are the same
+     * for any parallelism of {@code pool}.
+     * If {@code pool} is {@code null} or batch is not greater than one part,
+     * works same as {@link #train(List, List, int)}.
+     *
+     * @param inputs    the training samples.
+     * @param expects   the expected outputs for samples.
+     * @param batchSize the number of samples in mini-batch.
+     * @param pool      the pool performing tasks.
+     * @throws IllegalArgumentException if {@code batchSize} is not positive.
+     */
+    public void train(List<double[]> inputs, List<double[]> expects, int batchSize, ForkJoinPool pool) {
+        if (pool == null || batchSize <= PARALLEL_LEAF_SIZE) {
+            this.train(inputs, expects, batchSize);
+            return;
+        }
+        int maxLeaves = (batchSize + PARALLEL_LEAF_SIZE - 1) / PARALLEL_LEAF_SIZE;
+        if (this.leafWorkspaces.length < maxLeaves) {
+            this.leafWorkspaces = new Workspace[maxLeaves];
+            for (int i = 0; i < maxLeaves; i++) {
+                this.leafWorkspaces[i] = new Workspace(this.layers);
+            }
+        }
+        for (int start = 0; start < inputs.size(); start += batchSize) {
+            int end = Math.min(start + batchSize, inputs.size());
+            int leaves = (end - start + PARALLEL_LEAF_SIZE - 1) / PARALLEL_LEAF_SIZE;
+            pool.invoke(new GradientTask(inputs, expects, start, end, 0, leaves));
+            this.applyGradients(this.leafWorkspaces[0], end - start);
+        }
+    }
+
+    /**
+     * Returns outputs of network for given {@code input} without conversion.
+     * Result is buffer of current thread that is overwritten by next call.
+     */
+    double[] getOutputs(double[] input) {
+        return this.getOutputs(input, this.checkWorkspaces.get());
+    }
+
+    /**
+     * Sets scaling of features returned by {@link Util#normalizeByFeatureScaling(List)}
+     * for training data, it is applied to image data before recognition.
+     *
+     * @param inputScaling the scaling or {@code null} to use image data as is.
+     */
+    void setInputScaling(double[][] inputScaling) {
+        this.inputScaling = inputScaling;
+    }
+
+    /**
+     * Returns scaling of features applied to image data before recognition or {@code null}.
+     */
+    double[][] getInputScaling() {
+        return this.inputScaling;
+    }
+
+    /**
+     * Returns unmodifiable list of layers of this network, first is input layer.
+     */
+    List<Layer> getLayers() {
+        return Collections.unmodifiableList(this.layers);
+    }
+
     public HashMap<T, Double> getCheck(byte[] imageData, Function<double[], HashMap<T, Double>> interpret) {
-        double[] result = this.getOutputs(RawCharData.getDoublesArrayRefactored(imageData));
+        double[] result = new double[this.layers.get(this.layers.size() - 1).numNeurons];
+        this.getCheck(imageData, result);
         return interpret.apply(result);
     }
 
+    /**
+     * Puts {@code imageData} on network input and writes outputs of network
+     * to given {@code result} array. Uses workspace of current thread and does not
+     * allocate memory.
+     *
+     * @param imageData the image data.
+     * @param result    the array for outputs, length is equal to size of output layer.
+     */
+    @Override
+    public void getCheck(byte[] imageData, double[] result) {
+        Workspace workspace = this.checkWorkspaces.get();
+        RawCharData.getDoublesArrayRefactored(imageData, workspace.input);
+        double[][] inputScaling = this.inputScaling;
+        if (inputScaling != null) {
+            Util.scaleFeatures(workspace.input, inputScaling);
+        }
+        double[] outputs = this.getOutputs(workspace.input, workspace);
+        System.arraycopy(outputs, 0, result, 0, outputs.length);
+    }
+
+    /**
+     * Recognizes batch of images same as {@link #getCheck(byte[], double[])}, but each layer
+     * processes all images before next layer, so weights are read once per block of images
+     * instead of once per image. Batches smaller than four images are recognized one by one,
+     * since row of weights is multiplied by four inputs at once.
+     *
+     * @param imageData the image data of batch.
+     * @param results   the arrays for outputs, one per image.
+     * @param count     the number of images of batch.
+     */
+    @Override
+    public void getChecks(byte[][] imageData, double[][] results, int count) {
+        if (count < 4) {
+            Recognizer.super.getChecks(imageData, results, count);
+            return;
+        }
+        double[][] inputScaling = this.inputScaling;
+        double[][][] batchOutputs = this.batchOutputs(count);
+        double[][] outputs = batchOutputs[0];
+        for (int i = 0; i < count; i++) {
+            RawCharData.getDoublesArrayRefactored(imageData[i], outputs[i]);
+            if (inputScaling != null) {
+                Util.scaleFeatures(outputs[i], inputScaling);
+            }
+        }
+        for (int l = 1; l < this.layers.size(); l++) {
+            Layer layer = this.layers.get(l);
+            double[][] inputs = outputs;
+            outputs = l == this.layers.size() - 1 ? results : batchOutputs[l];
+            layer.outputs(inputs, outputs, count);
+        }
+    }
+
+    /**
+     * Returns outputs of layers of current thread for batch of at least {@code count} images.
+     */
+    private double[][][] batchOutputs(int count) {
+        double[][][] batchOutputs = this.batchOutputs.get();
+        if (batchOutputs[0].length < count) {
+            for (int l = 0; l < batchOutputs.length; l++) {
+                batchOutputs[l] = new double[count][this.layers.get(l).numNeurons];
+            }
+        }
+        return batchOutputs;
+    }
+
     @Override
     public String toString() {
         String layersDescription="Neural network, layers: \n";
@@ -96,4 +409,51 @@ public class Network<T> {
         return layersDescription;
 
     }
+
+    /**
+     * The task accumulating gradients of parts {@code firstLeaf} (inclusive) to
+     * {@code lastLeaf} (exclusive) of mini-batch. Result is left in workspace of {@code firstLeaf}.
+     */
+    private final class GradientTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        //task is never serialized
+        private final transient List<double[]> inputs;
+        private final transient List<double[]> expects;
+        private final int start;
+        private final int end;
+        private final int firstLeaf;
+        private final int lastLeaf;
+
+        GradientTask(List<double[]> inputs, List<double[]> expects, int start, int end, int firstLeaf, int lastLeaf) {
+            this.inputs = inputs;
+            this.expects = expects;
+            this.start = start;
+            this.end = end;
+            this.firstLeaf = firstLeaf;
+            this.lastLeaf = lastLeaf;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.lastLeaf - this.firstLeaf == 1) {
+                Workspace workspace = leafWorkspaces[this.firstLeaf];
+                workspace.clearGradients();
+                int from = this.start + this.firstLeaf * PARALLEL_LEAF_SIZE;
+                int to = Math.min(from + PARALLEL_LEAF_SIZE, this.end);
+                for (int i = from; i < to; i++) {
+                    getOutputs(this.inputs.get(i), workspace);
+                    backpropagate(this.expects.get(i), workspace);
+                    accumulateGradients(workspace);
+                }
+            } else {
+                int middle = (this.firstLeaf + this.lastLeaf) >>> 1;
+                GradientTask left = new GradientTask(this.inputs, this.expects, this.start, this.end, this.firstLeaf, middle);
+                left.fork();
+                new GradientTask(this.inputs, this.expects, this.start, this.end, middle, this.lastLeaf).compute();
+                left.join();
+                leafWorkspaces[this.firstLeaf].addGradients(leafWorkspaces[middle]);
+            }
+        }
+    }
 }
@@ -11,7 +11,14 @@ import com.clientservernn.dataTransfer.ImageData;
 import com.clientservernn.server.utilities.FileManager;
 import com.clientservernn.server.utilities.RawCharData;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
 import javafx.util.Pair;
 
@@ -39,11 +46,78 @@ public class NetworkCommander {
      *
      */
     private final List<String> characterList;
+
+    /**
+     * The {@link Topology} of wrapped network.
+     */
+    private final Topology topology;
     /**
      * The wrapped {@link Network} with {@link String} type objects.
+     * It is changed only by training and is never used for recognition.
+     * Is replaced by best checkpoint by {@code restoreBest()}.
+     * Is {@code null} until first use, so commander serving loaded model
+     * does not keep weights on heap until training.
      *
      */
-    private final Network<String> characterNetwork;
+    private Network<String> characterNetwork;
+
+    /**
+     * The model loaded by {@code loadModel()} that initializes {@code characterNetwork}
+     * when training starts, {@code null} if there is no loaded model or training network
+     * is already created.
+     */
+    private MappedNetwork loadedModel;
+
+    /**
+     * The network used for recognition: copy of {@code characterNetwork}, loaded model or
+     * its single precision copy. Network is not changed after publishing, new network
+     * replaces it by atomic swap, so recognition never blocks and never sees partly
+     * trained weights. Is {@code null} until first publishing.
+     */
+    private final AtomicReference<Recognizer> servingNetwork;
+
+    /**
+     * The last published network in double precision, source of {@code servingNetwork}
+     * on change of {@code precision}.
+     */
+    private Recognizer publishedNetwork;
+
+    /**
+     * The number of {@code train()} calls between publishing of {@code characterNetwork}.
+     */
+    private int publishInterval;
+
+    /**
+     * The number of {@code train()} calls since last publishing.
+     */
+    private int epochsSincePublish;
+
+    /**
+     * The precision of numbers used for recognition.
+     */
+    private Precision precision;
+
+    /**
+     * The results of {@link #recognize(ImageData)}, one per thread.
+     */
+    private final ThreadLocal<RecognitionResult> results;
+
+    /**
+     * The results of {@link #recognizeAll(List)}, one set per thread.
+     */
+    private final ThreadLocal<BatchResults> batchResults = ThreadLocal.withInitial(BatchResults::new);
+
+    /**
+     * The pixels of standard image put on network input by {@link #recognize(ImageData, RecognitionResult)},
+     * one per thread, so shared {@link ImageData} is read without allocation of its copy.
+     */
+    private static final ThreadLocal<byte[]> PIXELS = ThreadLocal.withInitial(() -> new byte[DATA_WIDTH * DATA_HEIGHT]);
+
+    /**
+     * The pixels of batch of images put on network input by {@link #recognizeAll(List)},
+     * one set per thread, grown to size of the largest batch of thread.
+     */
+    private static final ThreadLocal<byte[][]> PIXEL_BATCHES = ThreadLocal.withInitial(() -> new byte[0][]);
 
     /**
      * The boolean variable indicating the enabling to access network.
@@ -58,39 +132,326 @@ public class NetworkCommander {
     private Date trainDate;
 
     /**
-     * The current data for network training.
+     * The current data for network training, scaled by {@code featureScaling}.
      *
      */
     List<Pair<String, double[]>> trainData;
 
+    /**
+     * The data held out from training for measuring of loss and accuracy
+     * after each epoch, scaled by {@code featureScaling} of training data.
+     */
+    List<Pair<String, double[]>> validationData;
+
+    /**
+     * The scaling of features of training data returned by
+     * {@link Util#normalizeByFeatureScaling(List)}, {@code null} if there is no training data.
+     */
+    private double[][] featureScaling;
+
+    /**
+     * The part of loaded data held out for validation.
+     */
+    private double validationFraction;
+
+    /**
+     * The number of epochs without improvement of validation loss after which
+     * training is converged.
+     */
+    private int patience;
+
+    /**
+     * The min decrease of validation loss counted as improvement.
+     */
+    private double minDelta;
+
+    /**
+     * The number of {@code train()} calls since loading of training data.
+     */
+    private int epoch;
+
+    /**
+     * The number of epochs since last improvement of validation loss.
+     */
+    private int epochsWithoutImprovement;
+
+    /**
+     * The best validation loss since loading of training data.
+     */
+    private double bestLoss;
+
+    /**
+     * The copy of {@code characterNetwork} with {@code bestLoss}, {@code null} if
+     * no epoch was validated since loading of training data.
+     */
+    private Network<String> bestNetwork;
+
+    /**
+     * The number of samples in one mini-batch of training.
+     * Weights are updated once per batch, 1 means update after each sample.
+     */
+    private int batchSize;
+
+    /**
+     * The number of worker threads splitting each mini-batch in training.
+     */
+    private int parallelism;
+
+    /**
+     * The {@link ForkJoinPool} with {@code parallelism} workers used by training,
+     * taken from {@code TRAIN_POOLS}.
+     */
+    private ForkJoinPool trainPool;
+
+    /**
+     * The pools of training shared by all commanders, one per parallelism. Pools are never
+     * shut down, workers of idle pool are stopped by pool itself.
+     */
+    private static final ConcurrentHashMap<Integer, ForkJoinPool> TRAIN_POOLS = new ConcurrentHashMap<>();
+
+    /**
+     * The source of random numbers for weights initialization and shuffling
+     * of {@code trainData}.
+     */
+    private final Random random;
+
+    /**
+     * The source of training data of {@code charset}, storage by default.
+     */
+    private final Supplier<List<Pair<String, double[]>>> dataSource;
+
 
     /**
      * Allocate the new {@code NetworkCommander} for given {@code charset}.
-     * Data for {@code characterList} and {@code trainData} loads from
+     * Data for {@code characterList}, {@code trainData} and {@code topology} loads from
      * storage. Based on {@code characterList} size and standard {@code DATA_WIDTH}
      * and {@code  DATA_HEIGHT} dimensions from {@link com.clientservernn.dataTransfer.ImageDataUtil}
-     * allocate wrapped neural network {@code characterNetwork}.
+     * wrapped neural network {@code characterNetwork} is allocated at first training
+     * or recognition, unless model is loaded by {@code loadModel()} before.
      *
      * @param  charset
      *         given charset.
      * @throws NullPointerException if {@code charset} is null.
+     * @throws IllegalArgumentException if topology configuration of {@code charset} is malformed.
      */
     public NetworkCommander(CharsetList charset) {
+        this(charset, Topology.load(Objects.requireNonNull(charset)));
+    }
+
+    /**
+     * Allocate the new {@code NetworkCommander} for given {@code charset}
+     * same as {@link #NetworkCommander(CharsetList)} with given {@code topology}.
+     *
+     * @param  charset
+     *         given charset.
+     * @param  topology
+     *         topology of network.
+     * @throws NullPointerException if any param is null.
+     */
+    public NetworkCommander(CharsetList charset, Topology topology) {
+        this(charset, topology, new Random().nextLong());
+    }
+
+    /**
+     * Allocate the new {@code NetworkCommander} for given {@code charset}
+     * same as {@link #NetworkCommander(CharsetList)}, weights initialization
+     * and shuffling of training data determined by {@code seed}.
+     * Training results of commanders with same seed, topology and training data are the same.
+     *
+     * @param  charset
+     *         given charset.
+     * @param  topology
+     *         topology of network.
+     * @param  seed
+     *         the seed of random numbers.
+     * @throws NullPointerException if any param is null.
+     */
+    public NetworkCommander(CharsetList charset, Topology topology, long seed) {
+        this(charset, topology, seed, FileManager.getCharList(Objects.requireNonNull(charset).name()),
+                () -> RawCharData.getTrainData(charset.name()));
+    }
+
+    /**
+     * Allocate the new {@code NetworkCommander} for given {@code charset}
+     * same as {@link #NetworkCommander(CharsetList, Topology, long)}, characters and
+     * training data are taken from {@code characterList} and {@code dataSource}
+     * instead of storage.
+     *
+     * @param  charset
+     *         given charset.
+     * @param  topology
+     *         topology of network.
+     * @param  seed
+     *         the seed of random numbers.
+     * @param  characterList
+     *         characters of {@code charset} in order of outputs of network.
+     * @param  dataSource
+     *         the source of training data, called on creation, refresh of data and loading of model.
+     * @throws NullPointerException if any param is null.
+     */
+    NetworkCommander(CharsetList charset, Topology topology, long seed, List<String> characterList,
+                     Supplier<List<Pair<String, double[]>>> dataSource) {
         Objects.requireNonNull(charset);
+        Objects.requireNonNull(topology);
         this.charset = charset;
-        this.characterList = FileManager.getCharList(charset.name());
+        this.topology = topology;
+        this.characterList = List.copyOf(characterList);
+        this.dataSource = Objects.requireNonNull(dataSource);
         this.access = false;
         this.trainDate = new Date(0L);
-        this.trainData = RawCharData.getTrainData(charset.name());
-        this.characterNetwork = new Network<>(new int[]{DATA_WIDTH*DATA_HEIGHT, this.characterList.size()}, 0.1, Util::sigmoid, Util::derivativeSigmoid);
+        this.batchSize = topology.getBatchSize();
+        this.publishInterval = topology.getPublishInterval();
+        this.precision = topology.getPrecision();
+        this.parallelism = topology.getParallelism();
+        this.trainPool = TRAIN_POOLS.computeIfAbsent(this.parallelism, ForkJoinPool::new);
+        this.random = new Random(seed);
+        this.results = ThreadLocal.withInitial(() -> new RecognitionResult(this.characterList));
+        this.validationFraction = topology.getValidationFraction();
+        this.patience = topology.getPatience();
+        this.minDelta = topology.getMinDelta();
+        this.splitData(this.dataSource.get(), null);
+        this.servingNetwork = new AtomicReference<>();
+
+    }
+
+    /**
+     * Returns {@code characterNetwork}, allocates it at first call. Network is initialized by
+     * weights of loaded model if there is one, else by random weights. Scaling of features
+     * of network is always {@code featureScaling} of training data, for loaded model
+     * training data is scaled by scaling of model.
+     */
+    private Network<String> trainingNetwork() {
+        if (this.characterNetwork == null) {
+            Network<String> network = new Network<>(this.topology.layerStructure(DATA_WIDTH*DATA_HEIGHT, this.characterList.size()), this.topology.getLearningRate(), this.topology.newActivations(), this.topology.getLoss(), this.topology.getOptimizer().newOptimizer(), this.random);
+            if (this.loadedModel != null) {
+                this.loadedModel.copyTo(network);
+                this.loadedModel = null;
+            }
+            network.setInputScaling(this.featureScaling);
+            this.characterNetwork = network;
+        }
+        return this.characterNetwork;
+    }
+
+    /**
+     * Refreshes data in {@code trainData} and {@code validationData} by loading from storage
+     * and starts new monitoring of convergence.
+     */
+    public synchronized void refreshTrainData() {
+        Network<String> network = this.trainingNetwork();
+        this.splitData(this.dataSource.get(), null);
+        network.setInputScaling(this.featureScaling);
+    }
 
+    /**
+     * Saves current trained network with its topology, characters and scaling of features
+     * to new version of model file of {@code charset}, then deletes older versions.
+     * Loaded model may still read mapped file of older version, so file is not replaced.
+     *
+     * @throws IOException if model file can not be written.
+     */
+    public synchronized void saveModel() throws IOException {
+        Path path = FileManager.newModelPath(this.charset.name());
+        this.saveModel(path);
+        FileManager.deleteOldModels(this.charset.name(), path);
     }
 
     /**
-     * Refreshes data in {@code characterList} by loading from storage.
+     * Saves current trained network same as {@link #saveModel()} to model file {@code path}.
+     *
+     * @param  path the path of new model file.
+     * @throws IOException if model file can not be written or already exists.
      */
-    public void refreshTrainData() {
-        this.trainData = RawCharData.getTrainData(this.charset.name());
+    synchronized void saveModel(Path path) throws IOException {
+        ModelFile.of(this.trainingNetwork(), this.trainDate.getTime(), this.topology, this.characterList)
+                .write(path);
+    }
+
+    /**
+     * Loads trained network from model file of {@code charset} and publishes it for recognition.
+     * Model is loaded only if it was trained with the same topology and characters as this
+     * {@code NetworkCommander} has, otherwise network should be trained again.
+     * File is mapped to memory and recognition reads weights from mapped file,
+     * they are copied on heap only by training or recognition with other {@code precision}
+     * than {@link Precision#DOUBLE}.
+     * Current training network and its checkpoint are discarded, next training
+     * continues from loaded model.
+     *
+     * @return {@code false} if model file does not exist.
+     * @throws IOException if model file can not be read, is malformed or does not match
+     * topology or characters.
+     */
+    public synchronized boolean loadModel() throws IOException {
+        Path path = FileManager.getModelPath(this.charset.name());
+        if (!Files.exists(path)) {
+            return false;
+        }
+        this.loadModel(path);
+        return true;
+    }
+
+    /**
+     * Loads trained network from model file {@code path} same as {@link #loadModel()}.
+     * Training data is split again and scaled by scaling of features of model,
+     * so further training and validation use inputs scaled same as recognition.
+     *
+     * @param  path the path of existing model file.
+     * @throws IOException if model file can not be read, is malformed or does not match
+     * topology or characters.
+     */
+    synchronized void loadModel(Path path) throws IOException {
+        MappedNetwork model = ModelFile.map(path);
+        if (!model.topology.sameNetwork(this.topology)) {
+            throw new IOException("Model topology " + model.topology + " differs from " + this.topology + ": " + path);
+        }
+        if (!model.characters.equals(this.characterList)) {
+            throw new IOException("Model characters differ from characters of " + this.charset + ": " + path);
+        }
+        if (!Arrays.equals(model.layerStructure(), this.topology.layerStructure(DATA_WIDTH*DATA_HEIGHT, this.characterList.size()))) {
+            throw new IOException("Model layers differ from topology " + this.topology + ": " + path);
+        }
+        this.loadedModel = model;
+        this.characterNetwork = null;
+        this.bestNetwork = null;
+        this.splitData(this.dataSource.get(), model.readInputScaling());
+        this.trainDate = new Date(model.trainDate);
+        this.publish(model);
+    }
+
+    /**
+     * Discards data of characters not presented in {@code characterList}, holds out
+     * {@code validationFraction} of random samples as {@code validationData}, scales features
+     * of both parts by {@code scaling}, or by scaling of training part if it is {@code null},
+     * and resets monitoring of convergence.
+     */
+    private void splitData(List<Pair<String, double[]>> data, double[][] scaling) {
+        List<Pair<String, double[]>> known = new ArrayList<>();
+        for (Pair<String, double[]> pair : data) {
+            if (this.characterList.contains(pair.getKey())) {
+                known.add(pair);
+            }
+        }
+        Collections.shuffle(known, this.random);
+        int validationSize = (int) Math.round(known.size() * this.validationFraction);
+        this.validationData = new ArrayList<>(known.subList(0, validationSize));
+        this.trainData = new ArrayList<>(known.subList(validationSize, known.size()));
+        if (scaling != null) {
+            this.featureScaling = scaling;
+            for (Pair<String, double[]> pair : known) {
+                Util.scaleFeatures(pair.getValue(), scaling);
+            }
+        } else if (this.trainData.isEmpty()) {
+            this.featureScaling = null;
+        } else {
+            this.featureScaling = Util.normalizeByFeatureScaling(this.trainData.stream().map(Pair::getValue).toList());
+            for (Pair<String, double[]> pair : this.validationData) {
+                Util.scaleFeatures(pair.getValue(), this.featureScaling);
+            }
+        }
+        this.epoch = 0;
+        this.epochsWithoutImprovement = 0;
+        this.bestLoss = Double.POSITIVE_INFINITY;
+        this.bestNetwork = null;
     }
 
     /**
@@ -117,30 +478,150 @@ public class NetworkCommander {
      * from {@code characterList} and characters data from {@code trainData}.
      * Data of characters not presented in {@code characterList} from {@code trainData}
      * discarded and not used for training.
+     * Weights updated once per mini-batch of {@code batchSize} samples,
+     * each mini-batch is split between {@code parallelism} workers.
+     * Recognition continues on published copy of network, trained network is
+     * published after each {@code publishInterval} calls.
+     * After training loss and accuracy are measured on {@code validationData}, network
+     * with the best loss is kept as checkpoint.
+     *
+     * @return loss and accuracy on validation data after this epoch.
      */
-    public void train() {
+    public synchronized EpochStatistics train() {
+        Network<String> network = this.trainingNetwork();
         List<double[]> dataSet = new ArrayList<>();
         List<double[]> resultArray = new ArrayList<>();
-        Collections.shuffle(this.trainData);
+        Collections.shuffle(this.trainData, this.random);
         for (Pair<String, double[]> trainPair : this.trainData) {
-            String character=trainPair.getKey();
-            if (characterList.contains(character)) {
-                dataSet.add(trainPair.getValue());
-                double[] classification = new double[this.characterList.size()];
-                Arrays.fill(classification, 0.0);
-                classification[this.characterList.indexOf(trainPair.getKey())] = 1.0;
-                resultArray.add(classification);
-            }
+            dataSet.add(trainPair.getValue());
+            resultArray.add(this.classification(trainPair.getKey()));
         }
-        Util.normalizeByFeatureScaling(dataSet);
-        this.characterNetwork.train(dataSet, resultArray);
+        network.train(dataSet, resultArray, this.batchSize, this.trainPool);
         this.trainDate = new Date();
+        EpochStatistics statistics = this.validate();
+        if (++this.epochsSincePublish >= this.publishInterval) {
+            this.publish();
+        }
+        return statistics;
+    }
+
+    private double[] classification(String character) {
+        double[] classification = new double[this.characterList.size()];
+        classification[this.characterList.indexOf(character)] = 1.0;
+        return classification;
     }
 
     /**
-     * Puts data from {@code imageData} on {@code characterNetwork} input
+     * Measures loss and accuracy of {@code characterNetwork} on {@code validationData}
+     * and updates monitoring of convergence.
+     */
+    private EpochStatistics validate() {
+        this.epoch++;
+        if (this.validationData.isEmpty()) {
+            return new EpochStatistics(this.epoch, Double.NaN, Double.NaN, false);
+        }
+        boolean crossEntropy = this.topology.getLoss() == Loss.CROSS_ENTROPY;
+        double loss = 0.0;
+        int correct = 0;
+        for (Pair<String, double[]> pair : this.validationData) {
+            double[] outputs = this.characterNetwork.getOutputs(pair.getValue());
+            int expected = this.characterList.indexOf(pair.getKey());
+            int best = 0;
+            for (int i = 0; i < outputs.length; i++) {
+                if (outputs[i] > outputs[best]) {
+                    best = i;
+                }
+                if (!crossEntropy) {
+                    double error = (i == expected ? 1.0 : 0.0) - outputs[i];
+                    loss += 0.5 * error * error;
+                }
+            }
+            if (crossEntropy) {
+                loss -= Math.log(Math.max(outputs[expected], 1e-300));
+            }
+            correct += best == expected ? 1 : 0;
+        }
+        loss /= this.validationData.size();
+        boolean improved = loss < this.bestLoss - this.minDelta;
+        if (improved) {
+            this.bestLoss = loss;
+            this.bestNetwork = this.characterNetwork.copy();
+            this.epochsWithoutImprovement = 0;
+        } else {
+            this.epochsWithoutImprovement++;
+        }
+        return new EpochStatistics(this.epoch, loss, (double) correct / this.validationData.size(), improved);
+    }
+
+    /**
+     * Returns {@code true} if validation loss did not improve by {@code minDelta}
+     * during last {@code patience} epochs, so further training is useless.
+     * @return  {@code true} if training is converged.
+     */
+    public synchronized boolean isConverged() {
+        return this.epochsWithoutImprovement >= this.patience;
+    }
+
+    /**
+     * Replaces trained network by checkpoint with the best validation loss, if there is one,
+     * and publishes it for recognition.
+     */
+    public synchronized void restoreBest() {
+        if (this.bestNetwork != null) {
+            this.characterNetwork = this.bestNetwork.copy();
+        }
+        if (this.characterNetwork != null) {
+            this.publish();
+        }
+    }
+
+    /**
+     * Publishes copy of current trained network for recognition. Recognition
+     * started before publishing finishes on previous copy.
+     */
+    public synchronized void publish() {
+        this.publish(this.trainingNetwork().copy());
+    }
+
+    private void publish(Recognizer network) {
+        this.publishedNetwork = network;
+        this.servingNetwork.set(this.forPrecision(network));
+        this.epochsSincePublish = 0;
+    }
+
+    /**
+     * Returns copy of double precision {@code network} with numbers of {@code precision}.
+     */
+    private Recognizer forPrecision(Recognizer network) {
+        return switch (this.precision) {
+            case DOUBLE -> network;
+            case FLOAT -> network instanceof MappedNetwork mapped ? new FloatNetwork<String>(mapped) : new FloatNetwork<>((Network<?>) network);
+            case INT8 -> network instanceof MappedNetwork mapped ? new QuantizedNetwork<String>(mapped) : new QuantizedNetwork<>((Network<?>) network);
+        };
+    }
+
+    /**
+     * Returns published network, publishes training network if nothing was published yet.
+     */
+    private Recognizer servingNetwork() {
+        Recognizer network = this.servingNetwork.get();
+        if (network == null) {
+            synchronized (this) {
+                if (this.servingNetwork.get() == null) {
+                    this.publish();
+                }
+                network = this.servingNetwork.get();
+            }
+        }
+        return network;
+    }
+
+    /**
+     * Puts data from {@code imageData} on input of published network
      * and returns results interpreted {@link NetworkCommander} interpretOutputMap() method
-     * as new {@link HashMap}.
+     * as new {@link HashMap}. If {@code precision} is {@link Precision#FLOAT}
+     * single precision copy of network is used, if it is {@link Precision#INT8}
+     * quantized copy is used.
      * @param  imageData checked standard {@link ImageData} instance.
      * @return {@link HashMap} with all characters of {@code characterList}
      * as keys {@link String} and values of network output for each key character
@@ -151,10 +632,123 @@ public class NetworkCommander {
     public HashMap<String, Double> checkAll(ImageData imageData) {
         Objects.requireNonNull(imageData);
         if (imageData.isStandard()) {
-            byte[] imageARGB= imageData.getImageArgb();
-            return this.characterNetwork.getCheck(imageARGB, this::interpretOutputMap);
+            double[] result = new double[this.characterList.size()];
+            this.servingNetwork().getCheck(imageData.getImageArgb(PIXELS.get()), result);
+            return this.interpretOutputMap(result);
+        } else throw new IllegalArgumentException("ImageData not standard");
+
+    }
+
+    /**
+     * Recognizes each of {@code images} same as {@link #checkAll(ImageData)}. Images are
+     * put on input of published network together and pass through each layer as one batch.
+     * @param  images checked standard {@link ImageData} instances.
+     * @return list of {@link HashMap} for each image in order of {@code images},
+     * same as {@code checkAll(ImageData)} returns.
+     * @throws NullPointerException if {@code images} or any of them is null.
+     * @throws IllegalArgumentException if any of {@code images} is not standard.
+     */
+    public List<HashMap<String, Double>> checkAll(List<ImageData> images) {
+        List<HashMap<String, Double>> maps = new ArrayList<>(images.size());
+        for (RecognitionResult result : this.recognizeAll(images)) {
+            maps.add(this.interpretOutputMap(result.scores));
+        }
+        return maps;
+    }
+
+    /**
+     * Recognizes each of {@code images} same as {@link #recognize(ImageData)} into results
+     * owned by current thread. Images are put on input of published network together and pass
+     * through each layer as one batch, so weights are read once per block of images instead
+     * of once per image. Returned results are overwritten by next call of this method
+     * in the same thread.
+     * @param  images checked standard {@link ImageData} instances.
+     * @return results of current thread in order of {@code images}.
+     * @throws NullPointerException if {@code images} or any of them is null.
+     * @throws IllegalArgumentException if any of {@code images} is not standard.
+     */
+    public List<RecognitionResult> recognizeAll(List<ImageData> images) {
+        int count = images.size();
+        byte[][] imageARGB = pixelBatch(count);
+        for (int i = 0; i < count; i++) {
+            ImageData imageData = Objects.requireNonNull(images.get(i));
+            if (!imageData.isStandard()) {
+                throw new IllegalArgumentException("ImageData not standard");
+            }
+            imageData.getImageArgb(imageARGB[i]);
+        }
+        BatchResults batch = this.batchResults.get();
+        this.servingNetwork().getChecks(imageARGB, batch.scores(count), count);
+        return batch.results.subList(0, count);
+    }
+
+    /**
+     * Returns pixel buffers of current thread for at least {@code count} standard images,
+     * shared {@link ImageData} instances are copied into them without allocation.
+     */
+    private static byte[][] pixelBatch(int count) {
+        byte[][] pixels = PIXEL_BATCHES.get();
+        if (pixels.length < count) {
+            int size = pixels.length;
+            pixels = Arrays.copyOf(pixels, count);
+            for (int i = size; i < count; i++) {
+                pixels[i] = new byte[DATA_WIDTH * DATA_HEIGHT];
+            }
+            PIXEL_BATCHES.set(pixels);
+        }
+        return pixels;
+    }
+
+    /**
+     * Puts data from {@code imageData} on network input and writes outputs
+     * to given {@code result}. Uses buffers of current thread, so unlike
+     * {@code checkAll()} does not allocate memory for recognition. Copy of network
+     * with numbers of {@code precision} is used.
+     * @param  imageData checked standard {@link ImageData} instance.
+     * @param  result    result created for {@code characterList} of this {@code NetworkCommander}.
+     * @return {@code result}.
+     * @throws NullPointerException if any param is null.
+     * @throws IllegalArgumentException if {@code imageData} is not standard or
+     * {@code result} is created for other characters.
+     */
+    public RecognitionResult recognize(ImageData imageData, RecognitionResult result) {
+        Objects.requireNonNull(imageData);
+        Objects.requireNonNull(result);
+        if (!result.isFor(this.characterList)) {
+            throw new IllegalArgumentException("RecognitionResult of other network");
+        }
+        if (imageData.isStandard()) {
+            this.servingNetwork().getCheck(imageData.getImageArgb(PIXELS.get()), result.scores);
+            return result;
         } else throw new IllegalArgumentException("ImageData not standard");
+    }
+
+    /**
+     * Recognizes {@code imageData} same as {@link #recognize(ImageData, RecognitionResult)}
+     * into result owned by current thread. Returned result is overwritten by next call
+     * of this method in the same thread.
+     * @param  imageData checked standard {@link ImageData} instance.
+     * @return result of current thread.
+     * @throws NullPointerException if {@code imageData} is null.
+     * @throws IllegalArgumentException if {@code imageData} is not standard.
+     */
+    public RecognitionResult recognize(ImageData imageData) {
+        return this.recognize(imageData, this.results.get());
+    }
 
+    /**
+     * Recognizes {@code imageData} same as {@link #recognize(ImageData)} and returns
+     * at most {@code k} characters with the highest scores. Unlike {@link #checkAll(ImageData)}
+     * scores are not boxed into map, candidates are selected from primitive outputs and
+     * only {@code k} of them are created.
+     * @param  imageData checked standard {@link ImageData} instance.
+     * @param  k         the max number of candidates.
+     * @return candidates ordered by score from the highest.
+     * @throws NullPointerException if {@code imageData} is null.
+     * @throws IllegalArgumentException if {@code imageData} is not standard or {@code k} is negative.
+     */
+    public TopCandidates recognizeTop(ImageData imageData, int k) {
+        return TopCandidates.of(this.recognize(imageData), k);
     }
 
     /**
@@ -195,5 +789,200 @@ public class NetworkCommander {
         return characterList;
     }
 
+    /**
+     * Returns {@code topology} of wrapped network.
+     * @return  {@code topology} of this {@code NetworkCommander}.
+     */
+    public Topology getTopology() {
+        return this.topology;
+    }
+
+    /**
+     * Returns number of weights and biases of wrapped network, that is number of
+     * multiplications of recognition of one image.
+     * @return  number of parameters of network.
+     */
+    public long getWeightCount() {
+        int[] layerStructure = this.topology.layerStructure(DATA_WIDTH*DATA_HEIGHT, this.characterList.size());
+        long count = 0;
+        for (int i = 1; i < layerStructure.length; i++) {
+            count += (long) (layerStructure[i - 1] + 1) * layerStructure[i];
+        }
+        return count;
+    }
+
+    /**
+     * Returns current mini-batch size of this {@code NetworkCommander}.
+     * @return  current {@code batchSize}.
+     */
+    public int getBatchSize() {
+        return this.batchSize;
+    }
+
+    /**
+     * Sets mini-batch size used by {@code train()}.
+     * @param  batchSize the number of samples in one mini-batch.
+     * @throws IllegalArgumentException if {@code batchSize} is not positive.
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Returns precision of numbers used for recognition.
+     * @return  current {@code precision}.
+     */
+    public Precision getPrecision() {
+        return this.precision;
+    }
+
+    /**
+     * Sets precision of numbers used for recognition. For {@link Precision#FLOAT} and
+     * {@link Precision#INT8} copy of published network with numbers of given precision
+     * is created at once and on each publishing.
+     * @param  precision the precision.
+     * @throws NullPointerException if {@code precision} is null.
+     */
+    public synchronized void setPrecision(Precision precision) {
+        Objects.requireNonNull(precision);
+        this.precision = precision;
+        if (this.publishedNetwork != null) {
+            this.servingNetwork.set(this.forPrecision(this.publishedNetwork));
+        }
+    }
+
+    /**
+     * Returns number of {@code train()} calls between publishing of trained network.
+     * @return  current {@code publishInterval}.
+     */
+    public int getPublishInterval() {
+        return this.publishInterval;
+    }
+
+    /**
+     * Sets number of {@code train()} calls between publishing of trained network.
+     * Larger interval reduces copying of weights during long training, recognition
+     * uses older weights meanwhile.
+     * @param  publishInterval the number of calls.
+     * @throws IllegalArgumentException if {@code publishInterval} is not positive.
+     */
+    public synchronized void setPublishInterval(int publishInterval) {
+        if (publishInterval < 1) {
+            throw new IllegalArgumentException("Publish interval must be positive: " + publishInterval);
+        }
+        this.publishInterval = publishInterval;
+    }
+
+    /**
+     * Returns number of epochs without improvement after which training is converged.
+     * @return  current {@code patience}.
+     */
+    public int getPatience() {
+        return this.patience;
+    }
+
+    /**
+     * Sets number of epochs without improvement of validation loss after which training is converged.
+     * @param  patience the number of epochs.
+     * @throws IllegalArgumentException if {@code patience} is not positive.
+     */
+    public synchronized void setPatience(int patience) {
+        if (patience < 1) {
+            throw new IllegalArgumentException("Patience must be positive: " + patience);
+        }
+        this.patience = patience;
+    }
+
+    /**
+     * Returns min decrease of validation loss counted as improvement.
+     * @return  current {@code minDelta}.
+     */
+    public double getMinDelta() {
+        return this.minDelta;
+    }
 
+    /**
+     * Sets min decrease of validation loss counted as improvement.
+     * @param  minDelta the min decrease.
+     * @throws IllegalArgumentException if {@code minDelta} is negative.
+     */
+    public synchronized void setMinDelta(double minDelta) {
+        if (!(minDelta >= 0.0)) {
+            throw new IllegalArgumentException("Min delta must not be negative: " + minDelta);
+        }
+        this.minDelta = minDelta;
+    }
+
+    /**
+     * Returns part of loaded data held out for validation.
+     * @return  current {@code validationFraction}.
+     */
+    public double getValidationFraction() {
+        return this.validationFraction;
+    }
+
+    /**
+     * Sets part of loaded data held out for validation, is used by next {@code refreshTrainData()}.
+     * @param  validationFraction the part of data in range [0, 1).
+     * @throws IllegalArgumentException if {@code validationFraction} is out of range.
+     */
+    public synchronized void setValidationFraction(double validationFraction) {
+        if (!(validationFraction >= 0.0 && validationFraction < 1.0)) {
+            throw new IllegalArgumentException("Validation fraction must be in range [0, 1): " + validationFraction);
+        }
+        this.validationFraction = validationFraction;
+    }
+
+    /**
+     * Returns number of workers used by {@code train()}.
+     * @return  current {@code parallelism}.
+     */
+    public int getParallelism() {
+        return this.parallelism;
+    }
+
+    /**
+     * Sets number of workers used by {@code train()} and replaces
+     * {@code trainPool} by shared pool with given parallelism.
+     * Training results do not depend on number of workers.
+     * @param  parallelism the number of workers.
+     * @throws IllegalArgumentException if {@code parallelism} is not positive.
+     */
+    public synchronized void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        this.trainPool = TRAIN_POOLS.computeIfAbsent(parallelism, ForkJoinPool::new);
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * The results of {@link #recognizeAll(List)} of one thread, grown to size of the largest batch of thread.
+     */
+    private final class BatchResults {
+        private final List<RecognitionResult> results = new ArrayList<>();
+
+        /**
+         * The scores of {@code results} with the same indexes.
+         */
+        private double[][] scores = new double[0][];
+
+        /**
+         * Returns scores of at least {@code count} results.
+         */
+        private double[][] scores(int count) {
+            if (this.scores.length < count) {
+                this.scores = Arrays.copyOf(this.scores, count);
+                for (int i = this.results.size(); i < count; i++) {
+                    RecognitionResult result = new RecognitionResult(NetworkCommander.this.characterList);
+                    this.results.add(result);
+                    this.scores[i] = result.scores;
+                }
+            }
+            return this.scores;
+        }
+    }
 }
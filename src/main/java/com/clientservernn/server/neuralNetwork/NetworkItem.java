@@ -30,6 +30,7 @@ public class NetworkItem {
      */
     public final StringProperty trainDate;
     public final StringProperty lastModified;
+    public final StringProperty topology;
 
 
     //Getters for properties.
@@ -54,6 +55,10 @@ public class NetworkItem {
         return this.lastModified.get();
     }
 
+    public String getTopology() {
+        return this.topology.get();
+    }
+
     /**
      * Allocate the new {@code NetworkItem} for given {@link NetworkCommander} instance.        *
      * @param  networkCommander
@@ -69,6 +74,7 @@ public class NetworkItem {
         String dateStr = date.compareTo(new Date(0L)) > 0 ? date.toString() : "Not trained";
         this.trainDate = new SimpleStringProperty(dateStr);
         this.lastModified = new SimpleStringProperty(FileManager.lastModified(this.charset.get().name()));
+        this.topology = new SimpleStringProperty(networkCommander.getTopology().toString());
     }
 
 
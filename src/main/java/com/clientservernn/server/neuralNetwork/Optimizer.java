@@ -0,0 +1,35 @@
+package com.clientservernn.server.neuralNetwork;
+
+/**
+ * The interface {@code Optimizer} represents rule of update of parameters of layer
+ * by accumulated gradients. Optimizer itself holds only hyperparameters and can be shared
+ * by all layers, state of optimizer is kept by each {@link Layer} in arrays of the same
+ * length as updated parameters, allocated by {@link #stateArrays()} count.
+ *
+ * @see GradientDescent
+ * @see Momentum
+ * @see Adam
+ *
+ * @author  Yauheni Slabko
+ * @since   1.0
+ */
+public interface Optimizer {
+
+    /**
+     * Returns number of state arrays needed for one array of parameters.
+     */
+    int stateArrays();
+
+    /**
+     * Updates {@code parameters} by {@code gradients} multiplied by {@code scale}.
+     * Gradients are directions of decrease of loss, so plain gradient descent adds them to parameters.
+     *
+     * @param parameters   the updated parameters.
+     * @param gradients    the accumulated gradients, not changed.
+     * @param scale        the factor of gradients, {@code 1/batchSize} for sum over mini-batch.
+     * @param state        the state arrays of {@code parameters}.
+     * @param learningRate the learning rate.
+     * @param step         the number of this update, starting from 1.
+     */
+    void update(double[] parameters, double[] gradients, double scale, double[][] state, double learningRate, long step);
+}
@@ -0,0 +1,56 @@
+package com.clientservernn.server.neuralNetwork;
+
+/**
+ * This enum contains optimizers that can be selected in configuration of {@link Topology}.
+ * Each type has its own default learning rate used if configuration does not set it.
+ *
+ * @author  Yauheni Slabko
+ * @since   1.0
+ */
+public enum OptimizerType {
+    /**
+     * Plain gradient descent, {@link GradientDescent}.
+     */
+    SGD(0.1) {
+        @Override
+        public Optimizer newOptimizer() {
+            return new GradientDescent();
+        }
+    },
+    /**
+     * Gradient descent with momentum, {@link Momentum}.
+     */
+    MOMENTUM(0.02) {
+        @Override
+        public Optimizer newOptimizer() {
+            return new Momentum();
+        }
+    },
+    /**
+     * Adaptive moment estimation, {@link Adam}.
+     */
+    ADAM(0.001) {
+        @Override
+        public Optimizer newOptimizer() {
+            return new Adam();
+        }
+    };
+
+    private final double defaultLearningRate;
+
+    OptimizerType(double defaultLearningRate) {
+        this.defaultLearningRate = defaultLearningRate;
+    }
+
+    /**
+     * Returns learning rate used with this optimizer if it is not configured.
+     */
+    public double getDefaultLearningRate() {
+        return this.defaultLearningRate;
+    }
+
+    /**
+     * Returns {@link Optimizer} of this type.
+     */
+    public abstract Optimizer newOptimizer();
+}
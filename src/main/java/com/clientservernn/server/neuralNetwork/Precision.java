@@ -0,0 +1,24 @@
+package com.clientservernn.server.neuralNetwork;
+
+/**
+ * This enum contains precisions of numbers used by
+ * neural network for recognition. Precision of charset is set by key
+ * {@code precision} of its {@link Topology} configuration.
+ *
+ * @author  Yauheni Slabko
+ * @since   1.0
+ */
+public enum Precision {
+    /**
+     * 64-bit {@code double} numbers, network is used as is.
+     */
+    DOUBLE,
+    /**
+     * 32-bit {@code float} numbers, recognition performed by {@link FloatNetwork}.
+     */
+    FLOAT,
+    /**
+     * 8-bit integer weights and inputs of layers, recognition performed by {@link QuantizedNetwork}.
+     */
+    INT8
+}
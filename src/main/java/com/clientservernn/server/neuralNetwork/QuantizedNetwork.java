@@ -0,0 +1,216 @@
+package com.clientservernn.server.neuralNetwork;
+
+import com.clientservernn.server.utilities.RawCharData;
+
+import java.util.List;
+
+/**
+ * The class {@code QuantizedNetwork} represents copy of trained {@link Network} with weights
+ * quantized to 8-bit integers, used only for recognition. Weights of each layer are
+ * rounded to multiples of one scale of the layer, so the largest weight by absolute value
+ * is 127. Before each layer its inputs are quantized in the same way with scale of
+ * current input vector, products are summed in {@code int} and the sum is scaled back
+ * to {@code double}, biases and activation functions are applied in {@code double}.
+ * Weights take 8 times less memory than weights of source network.
+ * Instance is immutable after creation and can be used for recognition by any number
+ * of threads at once, buffers of recognition are kept per thread.
+ *
+ * @param <T> the type of objects operated by the {@code QuantizedNetwork}
+ * @see Precision
+ *
+ * @author  Yauheni Slabko
+ * @since   1.0
+ */
+public final class QuantizedNetwork<T> implements Recognizer {
+
+    /**
+     * The max absolute value of quantized number.
+     */
+    static final int MAX_QUANTIZED = 127;
+
+    /**
+     * The numbers of neurons of weighted layers.
+     */
+    private final int[] sizes;
+    private final int inputSize;
+
+    /**
+     * The row-major quantized weight matrices of weighted layers, same layout as {@link Layer#weights}.
+     */
+    private final byte[][] weights;
+
+    /**
+     * The scales of weighted layers, weight is quantized weight multiplied by scale of its layer.
+     */
+    private final double[] weightScales;
+    private final double[][] biases;
+    private final Activation[] activations;
+
+    /**
+     * The {@code true} if output layer is softmax layer.
+     */
+    private final boolean softmax;
+
+    /**
+     * The scaling of features of source network, {@code null} if image data is used as is.
+     */
+    private final double[][] inputScaling;
+
+    /**
+     * The buffers of recognition, one set per thread.
+     */
+    private final ThreadLocal<Buffers> buffers = ThreadLocal.withInitial(Buffers::new);
+
+    /**
+     * Allocate the new {@code QuantizedNetwork} with quantized weights of given {@code network}.
+     *
+     * @param network the source network.
+     */
+    public QuantizedNetwork(Network<T> network) {
+        List<Layer> layers = network.getLayers();
+        int size = layers.size() - 1;
+        this.inputSize = layers.get(0).numNeurons;
+        this.sizes = new int[size];
+        this.weights = new byte[size][];
+        this.weightScales = new double[size];
+        this.biases = new double[size][];
+        this.activations = new Activation[size];
+        for (int i = 0; i < size; i++) {
+            Layer layer = layers.get(i + 1);
+            this.sizes[i] = layer.numNeurons;
+            this.weightScales[i] = scale(layer.weights);
+            this.weights[i] = quantize(layer.weights, this.weightScales[i]);
+            this.biases[i] = layer.biases.clone();
+            this.activations[i] = layer.activation;
+        }
+        this.softmax = layers.get(size).softmax;
+        this.inputScaling = network.getInputScaling();
+    }
+
+    /**
+     * Allocate the new {@code QuantizedNetwork} with quantized weights of given mapped {@code network}.
+     *
+     * @param network the source network.
+     */
+    QuantizedNetwork(MappedNetwork network) {
+        int size = network.layerCount();
+        this.inputSize = network.inputSize;
+        this.sizes = new int[size];
+        this.weights = new byte[size][];
+        this.weightScales = new double[size];
+        this.biases = new double[size][];
+        for (int i = 0; i < size; i++) {
+            double[] weights = network.readWeights(i);
+            this.biases[i] = network.readBiases(i);
+            this.sizes[i] = this.biases[i].length;
+            this.weightScales[i] = scale(weights);
+            this.weights[i] = quantize(weights, this.weightScales[i]);
+        }
+        this.activations = network.topology.newActivations();
+        this.softmax = network.topology.getLoss() == Loss.CROSS_ENTROPY;
+        this.inputScaling = network.readInputScaling();
+    }
+
+    /**
+     * Returns scale quantizing max absolute value of {@code values} to {@code MAX_QUANTIZED},
+     * 1 if all values are 0.
+     */
+    private static double scale(double[] values) {
+        double max = 0.0;
+        for (double value : values) {
+            max = Math.max(max, Math.abs(value));
+        }
+        return max > 0.0 ? max / MAX_QUANTIZED : 1.0;
+    }
+
+    private static byte[] quantize(double[] values, double scale) {
+        byte[] quantized = new byte[values.length];
+        quantize(values, scale, quantized);
+        return quantized;
+    }
+
+    private static void quantize(double[] values, double scale, byte[] quantized) {
+        double inverse = 1.0 / scale;
+        for (int i = 0; i < values.length; i++) {
+            //Rounding to nearest by floor, which is compiled to single instruction unlike Math.round().
+            quantized[i] = (byte) (int) Math.floor(values[i] * inverse + 0.5);
+        }
+    }
+
+    /**
+     * Returns size in bytes of weights and biases of this network.
+     */
+    long weightBytes() {
+        long bytes = 0;
+        for (int i = 0; i < this.sizes.length; i++) {
+            bytes += this.weights[i].length + (long) this.biases[i].length * Double.BYTES;
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns outputs of network for given {@code input}.
+     * Result is buffer of current thread that is overwritten by next call.
+     */
+    double[] getOutputs(double[] input) {
+        Buffers buffers = this.buffers.get();
+        double[] result = input;
+        for (int l = 0; l < this.sizes.length; l++) {
+            double[] outputs = buffers.outputs[l];
+            int inputs = result.length;
+            double inputScale = scale(result);
+            quantize(result, inputScale, buffers.quantized);
+            double scale = inputScale * this.weightScales[l];
+            for (int n = 0; n < outputs.length; n++) {
+                outputs[n] = this.biases[l][n] + scale * Util.dotProduct(this.weights[l], n * inputs, buffers.quantized, inputs);
+            }
+            if (this.softmax && l == this.sizes.length - 1) {
+                Util.softmax(outputs, outputs);
+            } else {
+                for (int n = 0; n < outputs.length; n++) {
+                    outputs[n] = this.activations[l].apply(outputs[n]);
+                }
+            }
+            result = outputs;
+        }
+        return result;
+    }
+
+    /**
+     * Puts {@code imageData} on network input and writes outputs of network
+     * to given {@code result} array. Uses buffers of current thread and does not
+     * allocate memory.
+     *
+     * @param imageData the image data.
+     * @param result    the array for outputs, length is equal to size of output layer.
+     */
+    @Override
+    public void getCheck(byte[] imageData, double[] result) {
+        double[] input = this.buffers.get().input;
+        RawCharData.getDoublesArrayRefactored(imageData, input);
+        if (this.inputScaling != null) {
+            Util.scaleFeatures(input, this.inputScaling);
+        }
+        double[] outputs = this.getOutputs(input);
+        System.arraycopy(outputs, 0, result, 0, outputs.length);
+    }
+
+    /**
+     * The buffers of recognition of one thread: network input, quantized input of
+     * current layer and outputs of each weighted layer.
+     */
+    private final class Buffers {
+        final double[] input = new double[QuantizedNetwork.this.inputSize];
+        final byte[] quantized;
+        final double[][] outputs = new double[QuantizedNetwork.this.sizes.length][];
+
+        Buffers() {
+            int max = QuantizedNetwork.this.inputSize;
+            for (int i = 0; i < this.outputs.length; i++) {
+                this.outputs[i] = new double[QuantizedNetwork.this.sizes[i]];
+                max = Math.max(max, this.outputs[i].length);
+            }
+            this.quantized = new byte[max];
+        }
+    }
+}
@@ -0,0 +1,455 @@
+package com.clientservernn.server.neuralNetwork;
+
+import com.clientservernn.dataTransfer.ImageData;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * The class {@code RecognitionDispatcher} gathers recognition requests of all client
+ * threads into batches. Requests are put into queue, dispatcher thread takes first request
+ * and waits for next ones during {@code window} or until {@code maxBatch} images are gathered,
+ * then images of each {@link NetworkCommander} are recognized by one batched pass of
+ * {@link NetworkCommander#recognizeAll(List)} and futures of requests are completed.
+ * Batches are recognized by {@code executor}, so dispatcher thread gathers next batch meanwhile.
+ * Dispatcher waits for next requests only while previous batches are recognized, if executor
+ * is idle requests in queue are recognized at once. So under load many single image passes
+ * are replaced by few batched ones, time of recognition of each request grows at most by
+ * {@code window}, and without load requests are not delayed.
+ * Requests of one image to several networks are put into queue together, so they get into
+ * the same batch and networks recognize the image in parallel.
+ * Request is recognized at once in submitting thread, bypassing queue, if it is single request
+ * and dispatcher is idle, or if each of its networks has at most {@code cheapWeights} weights:
+ * weights of such network stay in cache, so batch saves nothing but costs passing to other thread.
+ * Results are written to buffers of recognizing thread and read by reader of request
+ * in that thread, so recognition of batch does not allocate results, only futures
+ * are completed by values of readers. Single image of network is recognized by
+ * {@link NetworkCommander#recognize(ImageData)}.
+ *
+ * @author  Yauheni Slabko
+ * @since   1.0
+ */
+public final class RecognitionDispatcher implements AutoCloseable {
+
+    /**
+     * The requests waiting for recognition, each element is list of requests submitted together.
+     */
+    private final BlockingQueue<List<Request<?>>> queue = new LinkedBlockingQueue<>();
+
+    /**
+     * The marker put into {@code queue} when executor finishes all batches, it wakes up
+     * dispatcher thread waiting for next requests.
+     */
+    private static final List<Request<?>> IDLE = List.of();
+
+    /**
+     * The number of batches that are recognized by executor now.
+     */
+    private final AtomicInteger running = new AtomicInteger();
+
+    /**
+     * The {@code true} after {@code close()}.
+     */
+    private volatile boolean closed;
+
+    /**
+     * The executor recognizing gathered batches.
+     */
+    private final Executor executor;
+
+    /**
+     * The thread gathering batches.
+     */
+    private final Thread thread;
+
+    /**
+     * The max time of waiting for next requests after first request of batch in nanoseconds.
+     */
+    private volatile long window;
+
+    /**
+     * The max number of images in one batch.
+     */
+    private volatile int maxBatch;
+
+    /**
+     * The max number of weights of network recognized in submitting thread.
+     */
+    private volatile long cheapWeights;
+
+    /**
+     * The default max time of waiting for next requests.
+     */
+    public static final Duration DEFAULT_WINDOW = Duration.ofMillis(1);
+
+    /**
+     * The default max number of images in one batch.
+     */
+    public static final int DEFAULT_MAX_BATCH = 64;
+
+    /**
+     * The default max number of weights of network recognized in submitting thread,
+     * 80 KB of weights fit in cache of core.
+     */
+    public static final long DEFAULT_CHEAP_WEIGHTS = 10_000;
+
+    /**
+     * The images of batch of one network, one list per thread of {@code executor}.
+     */
+    private static final ThreadLocal<List<ImageData>> IMAGES = ThreadLocal.withInitial(ArrayList::new);
+
+    /**
+     * Allocate the new {@code RecognitionDispatcher} with given {@code window} and {@code maxBatch},
+     * batches are recognized by {@link ForkJoinPool#commonPool()}. Dispatcher thread is started at once.
+     * Networks are cheap up to {@link #DEFAULT_CHEAP_WEIGHTS} weights.
+     *
+     * @param  window   the max time of waiting for next requests.
+     * @param  maxBatch the max number of images in one batch.
+     * @throws NullPointerException if {@code window} is null.
+     * @throws IllegalArgumentException if {@code window} is negative or {@code maxBatch} is not positive.
+     */
+    public RecognitionDispatcher(Duration window, int maxBatch) {
+        this(window, maxBatch, DEFAULT_CHEAP_WEIGHTS);
+    }
+
+    /**
+     * Allocate the new {@code RecognitionDispatcher} with given {@code window}, {@code maxBatch}
+     * and {@code cheapWeights}, batches are recognized by {@link ForkJoinPool#commonPool()}.
+     * Dispatcher thread is started at once.
+     *
+     * @param  window       the max time of waiting for next requests.
+     * @param  maxBatch     the max number of images in one batch.
+     * @param  cheapWeights the max number of weights of network recognized in submitting thread.
+     * @throws NullPointerException if {@code window} is null.
+     * @throws IllegalArgumentException if {@code window} or {@code cheapWeights} is negative
+     * or {@code maxBatch} is not positive.
+     */
+    public RecognitionDispatcher(Duration window, int maxBatch, long cheapWeights) {
+        this(window, maxBatch, cheapWeights, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Allocate the new {@code RecognitionDispatcher} with given {@code window}, {@code maxBatch}
+     * and {@code cheapWeights}, batches are recognized by given {@code executor}.
+     * Dispatcher thread is started at once.
+     *
+     * @param  window       the max time of waiting for next requests.
+     * @param  maxBatch     the max number of images in one batch.
+     * @param  cheapWeights the max number of weights of network recognized in submitting thread.
+     * @param  executor     the executor recognizing batches.
+     * @throws NullPointerException if {@code window} or {@code executor} is null.
+     * @throws IllegalArgumentException if {@code window} or {@code cheapWeights} is negative
+     * or {@code maxBatch} is not positive.
+     */
+    public RecognitionDispatcher(Duration window, int maxBatch, long cheapWeights, Executor executor) {
+        this.setWindow(window);
+        this.setMaxBatch(maxBatch);
+        this.setCheapWeights(cheapWeights);
+        this.executor = Objects.requireNonNull(executor);
+        this.thread = new Thread(this::dispatch, "RecognitionDispatcher");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Puts request of recognition of {@code imageData} by {@code network} into queue.
+     * Result of recognition, same as {@link NetworkCommander#recognize(ImageData, RecognitionResult)}
+     * gives, is passed to {@code reader} in recognizing thread and future is completed by value
+     * of reader, or exceptionally if recognition or reader fails or dispatcher is closed.
+     * If dispatcher is idle or network is cheap, request is recognized at once in current thread.
+     * Result is reused after reader returns, so reader must not keep it.
+     *
+     * @param  <R>       the type of value of reader.
+     * @param  network   the network recognizing image.
+     * @param  imageData checked standard {@link ImageData} instance.
+     * @param  reader    the function reading result of recognition.
+     * @return future of value of reader.
+     * @throws NullPointerException if any param is null.
+     * @throws IllegalArgumentException if {@code imageData} is not standard.
+     */
+    public <R> CompletableFuture<R> submit(NetworkCommander network, ImageData imageData, Function<? super RecognitionResult, ? extends R> reader) {
+        return this.<R>submitAll(List.of(network), imageData, reader).get(0);
+    }
+
+    /**
+     * Puts requests of recognition of {@code imageData} by each of {@code networks} into queue
+     * at once, so all of them are recognized in the same batch and by different networks in parallel.
+     * Futures are completed same as by {@link #submit(NetworkCommander, ImageData, Function)}.
+     * If all {@code networks} are cheap, requests are recognized at once in current thread.
+     *
+     * @param  <R>       the type of value of reader.
+     * @param  networks  the networks recognizing image.
+     * @param  imageData checked standard {@link ImageData} instance.
+     * @param  reader    the function reading result of recognition of each network.
+     * @return futures of values of reader in order of {@code networks}.
+     * @throws NullPointerException if any param or any of {@code networks} is null.
+     * @throws IllegalArgumentException if {@code imageData} is not standard.
+     */
+    public <R> List<CompletableFuture<R>> submitAll(Collection<NetworkCommander> networks, ImageData imageData,
+                                                    Function<? super RecognitionResult, ? extends R> reader) {
+        Objects.requireNonNull(imageData);
+        Objects.requireNonNull(reader);
+        if (!imageData.isStandard()) {
+            throw new IllegalArgumentException("ImageData not standard");
+        }
+        List<Request<?>> requests = new ArrayList<>(networks.size());
+        List<CompletableFuture<R>> results = new ArrayList<>(networks.size());
+        for (NetworkCommander network : networks) {
+            Request<R> request = new Request<>(Objects.requireNonNull(network), imageData, reader, new CompletableFuture<>());
+            requests.add(request);
+            results.add(request.result);
+        }
+        if (this.isDirect(requests)) {
+            for (Request<?> request : requests) {
+                this.recognize(request.network, List.of(request));
+            }
+        } else if (!requests.isEmpty()) {
+            this.queue.add(requests);
+            if (this.closed) {
+                //dispatcher thread may have already failed queued requests
+                this.failQueued(new ArrayList<>());
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Returns {@code true} if {@code requests} are recognized in submitting thread: single request
+     * while executor is idle and queue is empty, or requests of cheap networks only.
+     */
+    private boolean isDirect(List<Request<?>> requests) {
+        if (this.closed || requests.isEmpty()) {
+            return false;
+        }
+        if (requests.size() == 1 && this.running.get() == 0 && this.queue.isEmpty()) {
+            return true;
+        }
+        long cheapWeights = this.cheapWeights;
+        for (Request<?> request : requests) {
+            if (request.network.getWeightCount() > cheapWeights) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Work cycle of dispatcher thread, runs until thread is interrupted by {@code close()}.
+     */
+    private void dispatch() {
+        List<Request<?>> batch = new ArrayList<>();
+        try {
+            while (true) {
+                batch.addAll(this.queue.take());
+                if (batch.isEmpty()) {
+                    continue;
+                }
+                long deadline = System.nanoTime() + this.window;
+                int maxBatch = this.maxBatch;
+                while (batch.size() < maxBatch) {
+                    List<Request<?>> requests;
+                    if (this.running.get() == 0) {
+                        //executor is idle, only requests that are already in queue are taken
+                        requests = this.queue.poll();
+                    } else {
+                        requests = this.queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    }
+                    if (requests == null) {
+                        break;
+                    }
+                    batch.addAll(requests);
+                }
+                this.recognize(batch);
+                batch = new ArrayList<>();
+            }
+        } catch (InterruptedException exception) {
+            this.failQueued(batch);
+        }
+    }
+
+    /**
+     * Completes exceptionally requests of {@code batch} and all requests in queue.
+     */
+    private void failQueued(List<Request<?>> batch) {
+        List<List<Request<?>>> queued = new ArrayList<>();
+        this.queue.drainTo(queued);
+        queued.forEach(batch::addAll);
+        for (Request<?> request : batch) {
+            request.result.completeExceptionally(new IllegalStateException("Dispatcher is closed"));
+        }
+    }
+
+    /**
+     * Splits {@code batch} by networks and recognizes images of each network by {@code executor}.
+     */
+    private void recognize(List<Request<?>> batch) {
+        Map<NetworkCommander, List<Request<?>>> groups = new LinkedHashMap<>();
+        for (Request<?> request : batch) {
+            groups.computeIfAbsent(request.network, key -> new ArrayList<>()).add(request);
+        }
+        for (Map.Entry<NetworkCommander, List<Request<?>>> group : groups.entrySet()) {
+            this.running.incrementAndGet();
+            try {
+                this.executor.execute(() -> {
+                    try {
+                        this.recognize(group.getKey(), group.getValue());
+                    } finally {
+                        this.finish();
+                    }
+                });
+            } catch (RejectedExecutionException exception) {
+                this.finish();
+                for (Request<?> request : group.getValue()) {
+                    request.result.completeExceptionally(exception);
+                }
+            }
+        }
+    }
+
+    /**
+     * Marks batch as finished, wakes up dispatcher thread if executor is idle.
+     */
+    private void finish() {
+        if (this.running.decrementAndGet() == 0) {
+            this.queue.add(IDLE);
+        }
+    }
+
+    /**
+     * Recognizes images of {@code requests} by {@code network} in current thread
+     * and completes requests by values of their readers.
+     */
+    private void recognize(NetworkCommander network, List<Request<?>> requests) {
+        try {
+            if (requests.size() == 1) {
+                Request<?> request = requests.get(0);
+                request.complete(network.recognize(request.imageData));
+                return;
+            }
+            List<ImageData> images = IMAGES.get();
+            for (Request<?> request : requests) {
+                images.add(request.imageData);
+            }
+            List<RecognitionResult> results;
+            try {
+                results = network.recognizeAll(images);
+            } finally {
+                images.clear();
+            }
+            for (int i = 0; i < requests.size(); i++) {
+                requests.get(i).complete(results.get(i));
+            }
+        } catch (RuntimeException exception) {
+            for (Request<?> request : requests) {
+                request.result.completeExceptionally(exception);
+            }
+        }
+    }
+
+    /**
+     * Stops dispatcher thread, requests that are not recognized yet are completed exceptionally.
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+        this.thread.interrupt();
+    }
+
+    /**
+     * Returns max time of waiting for next requests after first request of batch.
+     * @return  current {@code window}.
+     */
+    public Duration getWindow() {
+        return Duration.ofNanos(this.window);
+    }
+
+    /**
+     * Sets max time of waiting for next requests after first request of batch,
+     * zero window gathers only requests that are already in queue.
+     * @param  window the max time of waiting.
+     * @throws NullPointerException if {@code window} is null.
+     * @throws IllegalArgumentException if {@code window} is negative.
+     */
+    public void setWindow(Duration window) {
+        if (window.isNegative()) {
+            throw new IllegalArgumentException("Window must not be negative: " + window);
+        }
+        this.window = window.toNanos();
+    }
+
+    /**
+     * Returns max number of images in one batch.
+     * @return  current {@code maxBatch}.
+     */
+    public int getMaxBatch() {
+        return this.maxBatch;
+    }
+
+    /**
+     * Sets max number of images in one batch, batch is recognized at once when it is gathered.
+     * Requests submitted together are not split, so batch may exceed it by their number.
+     * @param  maxBatch the max number of images.
+     * @throws IllegalArgumentException if {@code maxBatch} is not positive.
+     */
+    public void setMaxBatch(int maxBatch) {
+        if (maxBatch < 1) {
+            throw new IllegalArgumentException("Max batch must be positive: " + maxBatch);
+        }
+        this.maxBatch = maxBatch;
+    }
+
+    /**
+     * Returns max number of weights of network recognized in submitting thread.
+     * @return  current {@code cheapWeights}.
+     */
+    public long getCheapWeights() {
+        return this.cheapWeights;
+    }
+
+    /**
+     * Sets max number of weights of network recognized in submitting thread,
+     * zero sends requests of all networks to queue unless dispatcher is idle.
+     * @param  cheapWeights the max number of weights.
+     * @throws IllegalArgumentException if {@code cheapWeights} is negative.
+     */
+    public void setCheapWeights(long cheapWeights) {
+        if (cheapWeights < 0) {
+            throw new IllegalArgumentException("Cheap weights must not be negative: " + cheapWeights);
+        }
+        this.cheapWeights = cheapWeights;
+    }
+
+    /**
+     * The request of recognition of {@code imageData} by {@code network}, its {@code result}
+     * is completed by value of {@code reader}.
+     */
+    private record Request<R>(NetworkCommander network, ImageData imageData,
+                              Function<? super RecognitionResult, ? extends R> reader, CompletableFuture<R> result) {
+
+        /**
+         * Completes {@code result} by value of {@code reader} for given result of recognition,
+         * or exceptionally if reader fails.
+         */
+        private void complete(RecognitionResult recognition) {
+            try {
+                this.result.complete(this.reader.apply(recognition));
+            } catch (RuntimeException exception) {
+                this.result.completeExceptionally(exception);
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.clientservernn.server.neuralNetwork;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The class {@code RecognitionResult} contains outputs of network for one image
+ * as array of primitive scores indexed by position of character in
+ * {@code characterList} of {@link NetworkCommander}. Instance is filled by
+ * {@link NetworkCommander#recognize(com.clientservernn.dataTransfer.ImageData, RecognitionResult)}
+ * and can be reused for next images, so recognition does not create objects per character.
+ *
+ * @author  Yauheni Slabko
+ * @since   1.0
+ */
+public final class RecognitionResult {
+
+    /**
+     * The characters of network, character {@code i} corresponds to score {@code i}.
+     */
+    private final List<String> characters;
+
+    /**
+     * The outputs of network for last recognized image.
+     */
+    final double[] scores;
+
+    /**
+     * Allocate the new {@code RecognitionResult} for given {@code characters}.
+     *
+     * @param  characters
+     *         characters of network in order of its outputs.
+     * @throws NullPointerException if {@code characters} is null.
+     */
+    public RecognitionResult(List<String> characters) {
+        Objects.requireNonNull(characters);
+        this.characters = characters;
+        this.scores = new double[characters.size()];
+    }
+
+    /**
+     * Returns number of characters in this result.
+     * @return  number of characters.
+     */
+    public int size() {
+        return this.scores.length;
+    }
+
+    /**
+     * Returns network output for character at given {@code index}.
+     * @param  index index of character.
+     * @return  score of character.
+     */
+    public double getScore(int index) {
+        return this.scores[index];
+    }
+
+    /**
+     * Returns character at given {@code index}.
+     * @param  index index of character.
+     * @return  character.
+     */
+    public String getCharacter(int index) {
+        return this.characters.get(index);
+    }
+
+    /**
+     * Returns index of character with max score, first of them if there are several.
+     * @return  index of most probable character, -1 if result is empty.
+     */
+    public int getBestIndex() {
+        if (this.scores.length == 0) {
+            return -1;
+        }
+        int best = 0;
+        for (int i = 1; i < this.scores.length; i++) {
+            if (this.scores[i] > this.scores[best]) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns {@code true} if this result was created for given {@code characters}.
+     */
+    boolean isFor(List<String> characters) {
+        return this.characters == characters;
+    }
+}
@@ -0,0 +1,38 @@
+package com.clientservernn.server.neuralNetwork;
+
+/**
+ * The interface {@code Recognizer} is implemented by networks that can be published
+ * by {@link NetworkCommander} for recognition: {@link Network}, its single precision copy
+ * {@link FloatNetwork} and {@link MappedNetwork} reading weights from model file.
+ * Implementations must allow recognition by any number of threads at once.
+ *
+ * @author  Yauheni Slabko
+ * @since   1.0
+ */
+interface Recognizer {
+
+    /**
+     * Puts {@code imageData} on network input and writes outputs of network
+     * to given {@code result} array.
+     *
+     * @param imageData the image data.
+     * @param result    the array for outputs, length is equal to size of output layer.
+     */
+    void getCheck(byte[] imageData, double[] result);
+
+    /**
+     * Puts each of {@code count} first {@code imageData} on network input and writes outputs
+     * of network to array of {@code results} with the same index. Implementations may process
+     * images together, by default they are processed one by one. Arrays may be longer than
+     * {@code count}, so buffers of batch can be reused for batches of any size.
+     *
+     * @param imageData the image data of batch.
+     * @param results   the arrays for outputs, one per image.
+     * @param count     the number of images of batch.
+     */
+    default void getChecks(byte[][] imageData, double[][] results, int count) {
+        for (int i = 0; i < count; i++) {
+            this.getCheck(imageData[i], results[i]);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.clientservernn.server.neuralNetwork;
+
+/**
+ * The class {@code ScalarKernels} implements {@link Kernels} by plain loops.
+ * Used when Vector API is not available.
+ *
+ * @author  Yauheni Slabko
+ * @since   1.0
+ */
+final class ScalarKernels implements Kernels {
+
+    @Override
+    public double dotProduct(double[] xs, int xOffset, double[] ys, int yOffset, int length) {
+        double sum = 0.0;
+        for (int i = 0; i < length; ++i) {
+            sum += xs[xOffset + i] * ys[yOffset + i];
+        }
+        return sum;
+    }
+
+    @Override
+    public void dotProduct4(double[] xs, int xOffset, double[][] ys, int yIndex, int length, double[] results) {
+        double[] y0 = ys[yIndex];
+        double[] y1 = ys[yIndex + 1];
+        double[] y2 = ys[yIndex + 2];
+        double[] y3 = ys[yIndex + 3];
+        double sum0 = 0.0;
+        double sum1 = 0.0;
+        double sum2 = 0.0;
+        double sum3 = 0.0;
+        for (int i = 0; i < length; ++i) {
+            double x = xs[xOffset + i];
+            sum0 += x * y0[i];
+            sum1 += x * y1[i];
+            sum2 += x * y2[i];
+            sum3 += x * y3[i];
+        }
+        results[0] = sum0;
+        results[1] = sum1;
+        results[2] = sum2;
+        results[3] = sum3;
+    }
+
+    @Override
+    public float dotProduct(float[] xs, int xOffset, float[] ys, int yOffset, int length) {
+        float sum = 0.0f;
+        for (int i = 0; i < length; ++i) {
+            sum += xs[xOffset + i] * ys[yOffset + i];
+        }
+        return sum;
+    }
+
+    @Override
+    public int dotProduct(byte[] xs, int xOffset, byte[] ys, int yOffset, int length) {
+        int sum = 0;
+        for (int i = 0; i < length; ++i) {
+            sum += xs[xOffset + i] * ys[yOffset + i];
+        }
+        return sum;
+    }
+
+    @Override
+    public void addScaled(double[] target, int targetOffset, double[] source, int sourceOffset, double scale, int length) {
+        for (int i = 0; i < length; ++i) {
+            target[targetOffset + i] += scale * source[sourceOffset + i];
+        }
+    }
+}
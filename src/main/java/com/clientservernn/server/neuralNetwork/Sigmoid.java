@@ -0,0 +1,29 @@
+package com.clientservernn.server.neuralNetwork;
+
+/**
+ * The class {@code Sigmoid} is exact logistic function {@code 1/(1+e^-x)}.
+ * Derivative is calculated from output as {@code output*(1-output)}.
+ *
+ * @see TableSigmoid
+ *
+ * @author  Yauheni Slabko
+ * @since   1.0
+ */
+public final class Sigmoid implements Activation {
+
+    /**
+     * Allocate the new {@code Sigmoid}.
+     */
+    public Sigmoid() {
+    }
+
+    @Override
+    public double apply(double x) {
+        return 1.0 / (1.0 + Math.exp(-x));
+    }
+
+    @Override
+    public double derivative(double x, double output) {
+        return output * (1.0 - output);
+    }
+}
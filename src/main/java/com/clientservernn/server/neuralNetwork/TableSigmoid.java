@@ -0,0 +1,69 @@
+package com.clientservernn.server.neuralNetwork;
+
+/**
+ * The class {@code TableSigmoid} is approximation of logistic function by linear
+ * interpolation between values precomputed with step {@code 1/STEPS_PER_UNIT}
+ * on range {@code [-RANGE, RANGE]}. Outside of range function returns 0 or 1.
+ * Error of interpolation is not greater than {@code h^2/8*max|f''|} that is about
+ * {@code 1.8e-7} for {@code h = 1/256}, error outside of range is not greater than
+ * {@code sigmoid(-RANGE)} that is about {@code 1.1e-7}, so absolute error is bounded by
+ * {@link #MAX_ERROR}. Derivative is calculated from output as {@code output*(1-output)}.
+ * Table is shared by all instances and takes 64 KB.
+ *
+ * @see Sigmoid
+ *
+ * @author  Yauheni Slabko
+ * @since   1.0
+ */
+public final class TableSigmoid implements Activation {
+
+    /**
+     * The bound of absolute difference from exact sigmoid.
+     */
+    public static final double MAX_ERROR = 3e-7;
+
+    private static final int RANGE = 16;
+    private static final int STEPS_PER_UNIT = 256;
+
+    /**
+     * The values of sigmoid at {@code -RANGE + i/STEPS_PER_UNIT}, last value is repeated
+     * once more, so interpolation at {@code RANGE} does not exceed array.
+     */
+    private static final double[] TABLE = createTable();
+
+    private static double[] createTable() {
+        int size = 2 * RANGE * STEPS_PER_UNIT + 1;
+        double[] table = new double[size + 1];
+        for (int i = 0; i < size; i++) {
+            table[i] = 1.0 / (1.0 + Math.exp(RANGE - (double) i / STEPS_PER_UNIT));
+        }
+        table[size] = table[size - 1];
+        return table;
+    }
+
+    /**
+     * Allocate the new {@code TableSigmoid}, table is shared with other instances.
+     */
+    public TableSigmoid() {
+    }
+
+    @Override
+    public double apply(double x) {
+        if (x <= -RANGE) {
+            return 0.0;
+        }
+        if (x >= RANGE) {
+            return 1.0;
+        }
+        double position = (x + RANGE) * STEPS_PER_UNIT;
+        int index = (int) position;
+        double fraction = position - index;
+        double low = TABLE[index];
+        return low + (TABLE[index + 1] - low) * fraction;
+    }
+
+    @Override
+    public double derivative(double x, double output) {
+        return output * (1.0 - output);
+    }
+}
@@ -0,0 +1,144 @@
+package com.clientservernn.server.neuralNetwork;
+
+import java.util.Objects;
+
+/**
+ * The class {@code TopCandidates} contains at most {@code capacity} characters with the highest
+ * scores, ordered by score from the highest. Instance is immutable, so candidates of
+ * several networks recognized in parallel can be merged without locks by
+ * {@link java.util.concurrent.atomic.AtomicReference#accumulateAndGet} with {@link #merge(TopCandidates)}.
+ * Of characters with equal scores the earlier one is kept.
+ *
+ * @author  Yauheni Slabko
+ * @since   1.0
+ */
+public final class TopCandidates {
+
+    private final int capacity;
+    private final String[] characters;
+    private final double[] scores;
+
+    private TopCandidates(int capacity, String[] characters, double[] scores) {
+        this.capacity = capacity;
+        this.characters = characters;
+        this.scores = scores;
+    }
+
+    /**
+     * Returns {@code TopCandidates} without candidates, which keeps at most {@code capacity}
+     * candidates after merging.
+     *
+     * @param  capacity the max number of candidates.
+     * @return empty candidates.
+     * @throws IllegalArgumentException if {@code capacity} is negative.
+     */
+    public static TopCandidates empty(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity must not be negative: " + capacity);
+        }
+        return new TopCandidates(capacity, new String[0], new double[0]);
+    }
+
+    /**
+     * Returns {@code capacity} characters of {@code result} with the highest scores.
+     * Candidates are selected by single pass over primitive scores with insertion into
+     * sorted arrays of {@code capacity} length, scores lower than the last candidate are
+     * skipped by one comparison, and only characters of selected candidates are read.
+     *
+     * @param  result   the result of recognition.
+     * @param  capacity the max number of candidates.
+     * @return candidates of {@code result}.
+     * @throws NullPointerException if {@code result} is null.
+     * @throws IllegalArgumentException if {@code capacity} is negative.
+     */
+    public static TopCandidates of(RecognitionResult result, int capacity) {
+        Objects.requireNonNull(result);
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity must not be negative: " + capacity);
+        }
+        double[] values = result.scores;
+        int[] indexes = new int[Math.min(capacity, values.length)];
+        double[] scores = new double[indexes.length];
+        int size = 0;
+        for (int i = 0; i < values.length; i++) {
+            double score = values[i];
+            if (size == indexes.length && (size == 0 || score <= scores[size - 1])) {
+                continue;
+            }
+            int position = size < indexes.length ? size++ : size - 1;
+            while (position > 0 && scores[position - 1] < score) {
+                scores[position] = scores[position - 1];
+                indexes[position] = indexes[position - 1];
+                position--;
+            }
+            scores[position] = score;
+            indexes[position] = i;
+        }
+        String[] characters = new String[size];
+        for (int i = 0; i < size; i++) {
+            characters[i] = result.getCharacter(indexes[i]);
+        }
+        return new TopCandidates(capacity, characters, scores);
+    }
+
+    /**
+     * Returns candidates with the highest scores of this and {@code other} candidates,
+     * at most {@code capacity} of this candidates.
+     *
+     * @param  other the other candidates.
+     * @return merged candidates.
+     * @throws NullPointerException if {@code other} is null.
+     */
+    public TopCandidates merge(TopCandidates other) {
+        int size = Math.min(this.capacity, this.size() + other.size());
+        String[] characters = new String[size];
+        double[] scores = new double[size];
+        int i = 0;
+        int j = 0;
+        for (int n = 0; n < size; n++) {
+            if (j == other.size() || (i < this.size() && this.scores[i] >= other.scores[j])) {
+                characters[n] = this.characters[i];
+                scores[n] = this.scores[i++];
+            } else {
+                characters[n] = other.characters[j];
+                scores[n] = other.scores[j++];
+            }
+        }
+        return new TopCandidates(this.capacity, characters, scores);
+    }
+
+    /**
+     * Returns number of candidates.
+     * @return  number of candidates.
+     */
+    public int size() {
+        return this.characters.length;
+    }
+
+    /**
+     * Returns character of candidate at given {@code index}, candidate 0 has the highest score.
+     * @param  index index of candidate.
+     * @return  character.
+     */
+    public String getCharacter(int index) {
+        return this.characters[index];
+    }
+
+    /**
+     * Returns score of candidate at given {@code index}.
+     * @param  index index of candidate.
+     * @return  score of candidate.
+     */
+    public double getScore(int index) {
+        return this.scores[index];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("TopCandidates[");
+        for (int i = 0; i < this.size(); i++) {
+            builder.append(i > 0 ? ", " : "").append(this.characters[i]).append('=').append(this.scores[i]);
+        }
+        return builder.append(']').toString();
+    }
+}
@@ -0,0 +1,388 @@
+package com.clientservernn.server.neuralNetwork;
+
+import com.clientservernn.common.CharsetList;
+import com.clientservernn.server.utilities.FileManager;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.stream.Collectors;
+
+/**
+ * The class {@code Topology} describes structure of network of one charset:
+ * sizes of hidden layers, activation of each weighted layer, learning rate, loss and optimizer,
+ * and settings of its training, which do not change trained model.
+ * Sizes of input and output layers are not part of topology, they are defined by
+ * standard image size and number of characters of charset.
+ * Topology is loaded from file {@code network.properties} in directory of charset:
+ * <pre>
+ * # sizes of hidden layers, empty for network without hidden layers
+ * hiddenLayers=64,32
+ * # one activation for all weighted layers or one per weighted layer
+ * activation=SIGMOID
+ * # SGD, MOMENTUM or ADAM
+ * optimizer=ADAM
+ * # default learning rate depends on optimizer
+ * learningRate=0.001
+ * # SQUARED_ERROR or CROSS_ENTROPY with softmax output layer
+ * loss=CROSS_ENTROPY
+ * # samples per update of weights, 1 is online training
+ * batchSize=32
+ * # workers of training, 0 is number of processors
+ * parallelism=0
+ * # numbers of recognition, DOUBLE, FLOAT or INT8 for large charsets
+ * precision=INT8
+ * # part of data held out for validation, in range [0, 1)
+ * validationFraction=0.2
+ * # training stops after so many epochs without decrease of validation loss by minDelta
+ * patience=5
+ * minDelta=0.0001
+ * # trained network is published for recognition after so many epochs
+ * publishInterval=1
+ * </pre>
+ * Missing keys have values of {@link #DEFAULT}, missing learning rate is default
+ * learning rate of optimizer. Instance is immutable, settings of training are set only by
+ * {@link #parse(Properties)}.
+ *
+ * @see ActivationType
+ *
+ * @author  Yauheni Slabko
+ * @since   1.0
+ */
+public final class Topology {
+
+    /**
+     * The name of configuration file in directory of charset without extension.
+     */
+    public static final String FILE_NAME = "network";
+
+    /**
+     * The topology of network without hidden layers with sigmoid activation,
+     * used if charset has no configuration.
+     */
+    public static final Topology DEFAULT = new Topology(new int[0], new ActivationType[]{ActivationType.SIGMOID}, 0.1, Loss.SQUARED_ERROR, OptimizerType.SGD);
+
+    private final int[] hiddenLayers;
+
+    /**
+     * The activations of weighted layers, if there is one activation it is used by all layers.
+     */
+    private final ActivationType[] activations;
+
+    private final double learningRate;
+
+    private final Loss loss;
+
+    private final OptimizerType optimizer;
+
+    private int batchSize = 1;
+
+    /**
+     * The number of workers of training, 0 is number of available processors.
+     */
+    private int parallelism;
+
+    private Precision precision = Precision.DOUBLE;
+
+    private double validationFraction = 0.2;
+
+    private int patience = 5;
+
+    private double minDelta = 1e-4;
+
+    private int publishInterval = 1;
+
+    /**
+     * Allocate the new {@code Topology} trained by {@link Loss#SQUARED_ERROR} with {@link OptimizerType#SGD}.
+     *
+     * @see #Topology(int[], ActivationType[], double, Loss, OptimizerType)
+     */
+    public Topology(int[] hiddenLayers, ActivationType[] activations, double learningRate) {
+        this(hiddenLayers, activations, learningRate, Loss.SQUARED_ERROR, OptimizerType.SGD);
+    }
+
+    /**
+     * Allocate the new {@code Topology}.
+     *
+     * @param  hiddenLayers
+     *         sizes of hidden layers.
+     * @param  activations
+     *         one activation for all weighted layers or activation of each weighted layer.
+     * @param  learningRate
+     *         the learning rate of all layers.
+     * @param  loss
+     *         the loss minimized by training.
+     * @param  optimizer
+     *         the optimizer updating weights.
+     * @throws NullPointerException if any param is null.
+     * @throws IllegalArgumentException if any size is not positive, number of activations
+     * is wrong or {@code learningRate} is not positive.
+     */
+    public Topology(int[] hiddenLayers, ActivationType[] activations, double learningRate, Loss loss, OptimizerType optimizer) {
+        Objects.requireNonNull(hiddenLayers);
+        Objects.requireNonNull(activations);
+        Objects.requireNonNull(loss);
+        Objects.requireNonNull(optimizer);
+        if (Arrays.stream(hiddenLayers).anyMatch(size -> size < 1)) {
+            throw new IllegalArgumentException("Layer size must be positive: " + Arrays.toString(hiddenLayers));
+        }
+        if (activations.length != 1 && activations.length != hiddenLayers.length + 1) {
+            throw new IllegalArgumentException("Expected 1 or " + (hiddenLayers.length + 1) + " activations: " + Arrays.toString(activations));
+        }
+        if (!(learningRate > 0.0)) {
+            throw new IllegalArgumentException("Learning rate must be positive: " + learningRate);
+        }
+        this.hiddenLayers = hiddenLayers.clone();
+        this.activations = activations.clone();
+        for (ActivationType activation : this.activations) {
+            Objects.requireNonNull(activation);
+        }
+        this.learningRate = learningRate;
+        this.loss = loss;
+        this.optimizer = optimizer;
+    }
+
+    /**
+     * Returns topology described by {@code properties}, missing keys have values of {@link #DEFAULT}.
+     *
+     * @param  properties the configuration.
+     * @return the new {@code Topology}.
+     * @throws IllegalArgumentException if any value is malformed.
+     */
+    public static Topology parse(Properties properties) {
+        String hidden = properties.getProperty("hiddenLayers", "").trim();
+        int[] hiddenLayers;
+        ActivationType[] activations;
+        double learningRate;
+        Loss loss;
+        OptimizerType optimizer;
+        try {
+            hiddenLayers = hidden.isEmpty() ? new int[0]
+                    : Arrays.stream(hidden.split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+            activations = Arrays.stream(properties.getProperty("activation", ActivationType.SIGMOID.name()).split(","))
+                    .map(String::trim).map(ActivationType::valueOf).toArray(ActivationType[]::new);
+            optimizer = OptimizerType.valueOf(properties.getProperty("optimizer", DEFAULT.optimizer.name()).trim());
+            learningRate = Double.parseDouble(properties.getProperty("learningRate", String.valueOf(optimizer.getDefaultLearningRate())).trim());
+            loss = Loss.valueOf(properties.getProperty("loss", DEFAULT.loss.name()).trim());
+        } catch (IllegalArgumentException exception) {
+            //NumberFormatException, unknown activation, loss or optimizer.
+            throw new IllegalArgumentException("Malformed network topology: " + exception.getMessage(), exception);
+        }
+        Topology topology = new Topology(hiddenLayers, activations, learningRate, loss, optimizer);
+        topology.batchSize = parseInt(properties, "batchSize", DEFAULT.batchSize, 1);
+        topology.parallelism = parseInt(properties, "parallelism", DEFAULT.parallelism, 0);
+        try {
+            topology.precision = Precision.valueOf(properties.getProperty("precision", DEFAULT.precision.name()).trim());
+        } catch (IllegalArgumentException exception) {
+            throw new IllegalArgumentException("Malformed network topology: " + exception.getMessage(), exception);
+        }
+        topology.validationFraction = parseDouble(properties, "validationFraction", DEFAULT.validationFraction);
+        if (!(topology.validationFraction >= 0.0 && topology.validationFraction < 1.0)) {
+            throw new IllegalArgumentException("Malformed network topology: validationFraction must be in range [0, 1): " + topology.validationFraction);
+        }
+        topology.patience = parseInt(properties, "patience", DEFAULT.patience, 1);
+        topology.minDelta = parseDouble(properties, "minDelta", DEFAULT.minDelta);
+        if (!(topology.minDelta >= 0.0)) {
+            throw new IllegalArgumentException("Malformed network topology: minDelta must not be negative: " + topology.minDelta);
+        }
+        topology.publishInterval = parseInt(properties, "publishInterval", DEFAULT.publishInterval, 1);
+        return topology;
+    }
+
+    /**
+     * Returns double value of {@code key} or {@code defaultValue} if key is missing.
+     *
+     * @throws IllegalArgumentException if value is malformed.
+     */
+    private static double parseDouble(Properties properties, String key, double defaultValue) {
+        String value = properties.getProperty(key);
+        try {
+            return value == null ? defaultValue : Double.parseDouble(value.trim());
+        } catch (NumberFormatException exception) {
+            throw new IllegalArgumentException("Malformed network topology: " + exception.getMessage(), exception);
+        }
+    }
+
+    /**
+     * Returns integer value of {@code key} not less than {@code minimum} or {@code defaultValue} if key is missing.
+     *
+     * @throws IllegalArgumentException if value is malformed or less than {@code minimum}.
+     */
+    private static int parseInt(Properties properties, String key, int defaultValue, int minimum) {
+        String value = properties.getProperty(key);
+        int result;
+        try {
+            result = value == null ? defaultValue : Integer.parseInt(value.trim());
+        } catch (NumberFormatException exception) {
+            throw new IllegalArgumentException("Malformed network topology: " + exception.getMessage(), exception);
+        }
+        if (result < minimum) {
+            throw new IllegalArgumentException("Malformed network topology: " + key + " must be at least " + minimum + ": " + result);
+        }
+        return result;
+    }
+
+    /**
+     * Loads topology of {@code charset} from its configuration file.
+     * If file does not exist or can not be read returns {@link #DEFAULT}.
+     *
+     * @param  charset the charset.
+     * @return topology of {@code charset}.
+     * @throws IllegalArgumentException if configuration is malformed.
+     */
+    public static Topology load(CharsetList charset) {
+        return FileManager.loadProperties(charset.name(), FILE_NAME).map(Topology::parse).orElse(DEFAULT);
+    }
+
+    /**
+     * Returns sizes of all layers of network with given number of {@code inputs} and {@code outputs}.
+     */
+    public int[] layerStructure(int inputs, int outputs) {
+        int[] structure = new int[this.hiddenLayers.length + 2];
+        structure[0] = inputs;
+        System.arraycopy(this.hiddenLayers, 0, structure, 1, this.hiddenLayers.length);
+        structure[structure.length - 1] = outputs;
+        return structure;
+    }
+
+    /**
+     * Returns new activations of all weighted layers, first is activation of first hidden layer.
+     */
+    public Activation[] newActivations() {
+        Activation[] result = new Activation[this.hiddenLayers.length + 1];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = this.activations[this.activations.length == 1 ? 0 : i].newActivation();
+        }
+        return result;
+    }
+
+    public int[] getHiddenLayers() {
+        return this.hiddenLayers.clone();
+    }
+
+    public double getLearningRate() {
+        return this.learningRate;
+    }
+
+    public Loss getLoss() {
+        return this.loss;
+    }
+
+    public OptimizerType getOptimizer() {
+        return this.optimizer;
+    }
+
+    /**
+     * Returns the number of samples in one mini-batch of training.
+     */
+    public int getBatchSize() {
+        return this.batchSize;
+    }
+
+    /**
+     * Returns the number of workers of training, number of available processors if it is not configured.
+     */
+    public int getParallelism() {
+        return this.parallelism == 0 ? Runtime.getRuntime().availableProcessors() : this.parallelism;
+    }
+
+    /**
+     * Returns the precision of numbers used for recognition.
+     */
+    public Precision getPrecision() {
+        return this.precision;
+    }
+
+    /**
+     * Returns the part of training data held out for validation.
+     */
+    public double getValidationFraction() {
+        return this.validationFraction;
+    }
+
+    /**
+     * Returns the number of epochs without improvement of validation loss after which training stops.
+     */
+    public int getPatience() {
+        return this.patience;
+    }
+
+    /**
+     * Returns the min decrease of validation loss counted as improvement.
+     */
+    public double getMinDelta() {
+        return this.minDelta;
+    }
+
+    /**
+     * Returns the number of epochs of training between publishing of trained network.
+     */
+    public int getPublishInterval() {
+        return this.publishInterval;
+    }
+
+    /**
+     * Returns {@code true} if {@code other} describes the same network, so model trained
+     * with one of topologies can be used with other. Only hidden layers, activations and loss
+     * are compared, settings of training such as learning rate and optimizer are not.
+     */
+    public boolean sameNetwork(Topology other) {
+        return Arrays.equals(this.hiddenLayers, other.hiddenLayers) && Arrays.equals(this.activations, other.activations)
+                && this.loss == other.loss;
+    }
+
+    /**
+     * Returns configuration of this topology, {@link #parse(Properties)} of it returns equal topology.
+     */
+    public Properties toProperties() {
+        Properties properties = new Properties();
+        properties.setProperty("hiddenLayers", Arrays.stream(this.hiddenLayers).mapToObj(String::valueOf).collect(Collectors.joining(",")));
+        properties.setProperty("activation", Arrays.stream(this.activations).map(Enum::name).collect(Collectors.joining(",")));
+        properties.setProperty("learningRate", String.valueOf(this.learningRate));
+        properties.setProperty("loss", this.loss.name());
+        properties.setProperty("optimizer", this.optimizer.name());
+        properties.setProperty("batchSize", String.valueOf(this.batchSize));
+        properties.setProperty("parallelism", String.valueOf(this.parallelism));
+        properties.setProperty("precision", this.precision.name());
+        properties.setProperty("validationFraction", String.valueOf(this.validationFraction));
+        properties.setProperty("patience", String.valueOf(this.patience));
+        properties.setProperty("minDelta", String.valueOf(this.minDelta));
+        properties.setProperty("publishInterval", String.valueOf(this.publishInterval));
+        return properties;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (this == object) {
+            return true;
+        }
+        if (!(object instanceof Topology other)) {
+            return false;
+        }
+        return this.sameNetwork(other) && this.batchSize == other.batchSize && this.parallelism == other.parallelism
+                && this.precision == other.precision
+                && Double.compare(this.validationFraction, other.validationFraction) == 0
+                && this.patience == other.patience && Double.compare(this.minDelta, other.minDelta) == 0
+                && this.publishInterval == other.publishInterval;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Objects.hash(this.learningRate, this.loss, this.optimizer, this.batchSize, this.parallelism, this.precision,
+                this.validationFraction, this.patience, this.minDelta, this.publishInterval);
+        result = 31 * result + Arrays.hashCode(this.hiddenLayers);
+        return 31 * result + Arrays.hashCode(this.activations);
+    }
+
+    /**
+     * Returns short description like {@code "64-32, SIGMOID, ADAM 0.001, CROSS_ENTROPY"},
+     * {@code "-"} stands for no hidden layers.
+     */
+    @Override
+    public String toString() {
+        String hidden = this.hiddenLayers.length == 0 ? "-"
+                : Arrays.stream(this.hiddenLayers).mapToObj(String::valueOf).collect(Collectors.joining("-"));
+        String activation = Arrays.stream(this.activations).map(Enum::name).collect(Collectors.joining("/"));
+        return hidden + ", " + activation + ", " + this.optimizer + " " + this.learningRate + ", " + this.loss;
+    }
+}
@@ -1,9 +1,7 @@
 
 package com.clientservernn.server.neuralNetwork;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Iterator;
+import java.nio.DoubleBuffer;
 import java.util.List;
 
 /**
@@ -23,15 +21,82 @@ public final class Util {
     public Util() {
     }
 
+    /**
+     * The implementation of vector operations: {@link VectorKernels} if
+     * module {@code jdk.incubator.vector} is present at startup, else {@link ScalarKernels}.
+     */
+    static final Kernels KERNELS = selectKernels();
+
+    private static Kernels selectKernels() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                return new VectorKernels();
+            } catch (LinkageError error) {
+                //Vector API can not be used, scalar implementation is selected.
+            }
+        }
+        return new ScalarKernels();
+    }
+
     public static double dotProduct(double[] xs, double[] ys) {
-        double sum = 0.0;
+        return KERNELS.dotProduct(xs, 0, ys, 0, xs.length);
+    }
+
+    /**
+     * Returns dot product of {@code length} elements of {@code matrix} starting
+     * from {@code offset} and first {@code length} elements of {@code vector}.
+     * Used to multiply one row of row-major matrix by vector.
+     */
+    public static double dotProduct(double[] matrix, int offset, double[] vector, int length) {
+        return KERNELS.dotProduct(matrix, offset, vector, 0, length);
+    }
 
-        for(int i = 0; i < xs.length; ++i) {
-            sum += xs[i] * ys[i];
+    /**
+     * Returns dot product of {@code length} elements of {@code matrix} starting
+     * from {@code offset} and first {@code length} elements of {@code vector}.
+     * Used to multiply one row of matrix of mapped model by vector, elements of {@code matrix}
+     * are read by absolute gets without copying them on heap. Vector API of JDK 18
+     * can not load vectors from {@link DoubleBuffer}, so both {@link Kernels} use this loop.
+     */
+    public static double dotProduct(DoubleBuffer matrix, int offset, double[] vector, int length) {
+        double sum = 0.0;
+        for (int i = 0; i < length; ++i) {
+            sum += matrix.get(offset + i) * vector[i];
         }
         return sum;
     }
 
+    /**
+     * Writes to {@code results[0..3]} dot products of {@code length} elements of {@code matrix}
+     * starting from {@code offset} and each of four vectors {@code vectors[index..index+3]}.
+     * Used to multiply one row of row-major matrix by four vectors at once.
+     */
+    public static void dotProduct4(double[] matrix, int offset, double[][] vectors, int index, int length, double[] results) {
+        KERNELS.dotProduct4(matrix, offset, vectors, index, length, results);
+    }
+
+    /**
+     * Single precision variant of {@link #dotProduct(double[], int, double[], int)}.
+     */
+    public static float dotProduct(float[] matrix, int offset, float[] vector, int length) {
+        return KERNELS.dotProduct(matrix, offset, vector, 0, length);
+    }
+
+    /**
+     * Variant of {@link #dotProduct(double[], int, double[], int)} for 8-bit integers.
+     */
+    public static int dotProduct(byte[] matrix, int offset, byte[] vector, int length) {
+        return KERNELS.dotProduct(matrix, offset, vector, 0, length);
+    }
+
+    /**
+     * Adds {@code length} elements of {@code source} starting from {@code sourceOffset}
+     * multiplied by {@code scale} to elements of {@code target} starting from {@code targetOffset}.
+     */
+    public static void addScaled(double[] target, int targetOffset, double[] source, int sourceOffset, double scale, int length) {
+        KERNELS.addScaled(target, targetOffset, source, sourceOffset, scale, length);
+    }
+
     public static double sigmoid(double x) {
         return 1.0 / (1.0 + Math.exp(-x));
     }
@@ -41,23 +106,83 @@ public final class Util {
         return sig * (1.0 - sig);
     }
 
-    public static void normalizeByFeatureScaling(List<double[]> dataset) {
-        for(int colNum = 0; colNum < (dataset.get(0)).length; ++colNum) {
-            List<Double> column = new ArrayList<>();
+    /**
+     * Writes softmax of {@code xs} to {@code outputs}: exponents of elements normalized to sum 1.
+     * Max element is subtracted before exponentiation, so large values do not overflow.
+     */
+    public static void softmax(double[] xs, double[] outputs) {
+        double max = Double.NEGATIVE_INFINITY;
+        for (double x : xs) {
+            max = Math.max(max, x);
+        }
+        double sum = 0.0;
+        for (int i = 0; i < xs.length; i++) {
+            outputs[i] = Math.exp(xs[i] - max);
+            sum += outputs[i];
+        }
+        for (int i = 0; i < xs.length; i++) {
+            outputs[i] /= sum;
+        }
+    }
+
+    /**
+     * Single precision variant of {@link #softmax(double[], double[])}, {@code xs} is overwritten by result.
+     */
+    public static void softmax(float[] xs) {
+        float max = Float.NEGATIVE_INFINITY;
+        for (float x : xs) {
+            max = Math.max(max, x);
+        }
+        double sum = 0.0;
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = (float) Math.exp(xs[i] - max);
+            sum += xs[i];
+        }
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = (float) (xs[i] / sum);
+        }
+    }
+
+    /**
+     * Scales each column of {@code dataset} to range [0, 1] by its minimum and maximum.
+     * Modified to return scaling, so other data can be scaled in the same way
+     * by {@link #scaleFeatures(double[], double[][])}.
+     *
+     * @return array of minimums of columns at index 0 and differences of maximums and minimums at index 1.
+     */
+    public static double[][] normalizeByFeatureScaling(List<double[]> dataset) {
+        int columns = dataset.get(0).length;
+        double[] minimums = new double[columns];
+        double[] differences = new double[columns];
+        for(int colNum = 0; colNum < columns; ++colNum) {
+            double maximum = Double.NEGATIVE_INFINITY;
+            double minimum = Double.POSITIVE_INFINITY;
             for (double[] row : dataset) {
-                column.add(row[colNum]);
+                maximum = Math.max(maximum, row[colNum]);
+                minimum = Math.min(minimum, row[colNum]);
             }
-            double maximum = Collections.max(column);
-            double minimum = Collections.min(column);
             double difference = maximum - minimum;
-            //Modified to exclude division by zero.
-            difference = difference == 0.0 ? Double.MIN_VALUE : difference;
-            double[] row;
-            for (double[] doubles : dataset) {
-                row = doubles;
-                row[colNum] = (row[colNum] - minimum) / difference;
-            }
+            //Modified to exclude division by zero, constant column is only shifted to 0.
+            minimums[colNum] = minimum;
+            differences[colNum] = difference == 0.0 ? 1.0 : difference;
+        }
+        double[][] scaling = {minimums, differences};
+        for (double[] row : dataset) {
+            scaleFeatures(row, scaling);
         }
+        return scaling;
+    }
 
+    /**
+     * Scales {@code row} in place by {@code scaling} returned by {@link #normalizeByFeatureScaling(List)}.
+     * Results are clamped to range [0, 1] of scaled data, so values out of range of scaled data,
+     * in particular in columns that were constant, do not overflow.
+     */
+    public static void scaleFeatures(double[] row, double[][] scaling) {
+        double[] minimums = scaling[0];
+        double[] differences = scaling[1];
+        for (int i = 0; i < row.length; i++) {
+            row[i] = Math.min(1.0, Math.max(0.0, (row[i] - minimums[i]) / differences[i]));
+        }
     }
 }
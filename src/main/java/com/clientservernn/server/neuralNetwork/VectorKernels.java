@@ -0,0 +1,162 @@
+package com.clientservernn.server.neuralNetwork;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The class {@code VectorKernels} implements {@link Kernels} by SIMD instructions
+ * of Vector API from incubator module {@code jdk.incubator.vector}.
+ * The module is optional, it is required to be added at startup by
+ * {@code --add-modules jdk.incubator.vector}, otherwise this class can not be loaded
+ * and {@link ScalarKernels} used instead. Species of 8-bit kernel are held by
+ * separate class {@link Int8Species}, if they can not be created only that kernel
+ * falls back to scalar loop and other kernels still use vectors.
+ *
+ * @author  Yauheni Slabko
+ * @since   1.0
+ */
+final class VectorKernels implements Kernels {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Float> FLOAT_SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    /**
+     * The {@code true} if {@link Int8Species} are created, else 8-bit kernel is scalar.
+     */
+    private static final boolean INT8_VECTORS = int8Vectors();
+
+    private static final Kernels SCALAR = new ScalarKernels();
+
+    /**
+     * The species of 8-bit kernel. Bytes are loaded into vector with the same number
+     * of lanes as {@code INT_SPECIES}, so they are widened to one vector of ints.
+     * The smallest shape is 64 bits, so for 128-bit ints bytes of 64-bit vector
+     * are widened to {@code PARTS} vectors of ints.
+     */
+    private static final class Int8Species {
+        static final VectorSpecies<Integer> INT_SPECIES = IntVector.SPECIES_PREFERRED;
+        static final VectorSpecies<Byte> BYTE_SPECIES = VectorSpecies.of(byte.class,
+                VectorShape.forBitSize(Math.max(VectorShape.S_64_BIT.vectorBitSize(), INT_SPECIES.length() * Byte.SIZE)));
+        static final int PARTS = BYTE_SPECIES.length() / INT_SPECIES.length();
+    }
+
+    private static boolean int8Vectors() {
+        try {
+            return Int8Species.PARTS > 0;
+        } catch (LinkageError | RuntimeException error) {
+            //8-bit species can not be created, 8-bit kernel falls back to scalar loop.
+            return false;
+        }
+    }
+
+    @Override
+    public double dotProduct(double[] xs, int xOffset, double[] ys, int yOffset, int length) {
+        DoubleVector sums = DoubleVector.zero(SPECIES);
+        int bound = SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector x = DoubleVector.fromArray(SPECIES, xs, xOffset + i);
+            DoubleVector y = DoubleVector.fromArray(SPECIES, ys, yOffset + i);
+            sums = x.fma(y, sums);
+        }
+        double sum = sums.reduceLanes(VectorOperators.ADD);
+        for (; i < length; ++i) {
+            sum += xs[xOffset + i] * ys[yOffset + i];
+        }
+        return sum;
+    }
+
+    @Override
+    public void dotProduct4(double[] xs, int xOffset, double[][] ys, int yIndex, int length, double[] results) {
+        double[] y0 = ys[yIndex];
+        double[] y1 = ys[yIndex + 1];
+        double[] y2 = ys[yIndex + 2];
+        double[] y3 = ys[yIndex + 3];
+        DoubleVector sums0 = DoubleVector.zero(SPECIES);
+        DoubleVector sums1 = DoubleVector.zero(SPECIES);
+        DoubleVector sums2 = DoubleVector.zero(SPECIES);
+        DoubleVector sums3 = DoubleVector.zero(SPECIES);
+        int bound = SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector x = DoubleVector.fromArray(SPECIES, xs, xOffset + i);
+            sums0 = x.fma(DoubleVector.fromArray(SPECIES, y0, i), sums0);
+            sums1 = x.fma(DoubleVector.fromArray(SPECIES, y1, i), sums1);
+            sums2 = x.fma(DoubleVector.fromArray(SPECIES, y2, i), sums2);
+            sums3 = x.fma(DoubleVector.fromArray(SPECIES, y3, i), sums3);
+        }
+        double sum0 = sums0.reduceLanes(VectorOperators.ADD);
+        double sum1 = sums1.reduceLanes(VectorOperators.ADD);
+        double sum2 = sums2.reduceLanes(VectorOperators.ADD);
+        double sum3 = sums3.reduceLanes(VectorOperators.ADD);
+        for (; i < length; ++i) {
+            double x = xs[xOffset + i];
+            sum0 += x * y0[i];
+            sum1 += x * y1[i];
+            sum2 += x * y2[i];
+            sum3 += x * y3[i];
+        }
+        results[0] = sum0;
+        results[1] = sum1;
+        results[2] = sum2;
+        results[3] = sum3;
+    }
+
+    @Override
+    public float dotProduct(float[] xs, int xOffset, float[] ys, int yOffset, int length) {
+        FloatVector sums = FloatVector.zero(FLOAT_SPECIES);
+        int bound = FLOAT_SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < bound; i += FLOAT_SPECIES.length()) {
+            FloatVector x = FloatVector.fromArray(FLOAT_SPECIES, xs, xOffset + i);
+            FloatVector y = FloatVector.fromArray(FLOAT_SPECIES, ys, yOffset + i);
+            sums = x.fma(y, sums);
+        }
+        float sum = sums.reduceLanes(VectorOperators.ADD);
+        for (; i < length; ++i) {
+            sum += xs[xOffset + i] * ys[yOffset + i];
+        }
+        return sum;
+    }
+
+    @Override
+    public int dotProduct(byte[] xs, int xOffset, byte[] ys, int yOffset, int length) {
+        if (!INT8_VECTORS) {
+            return SCALAR.dotProduct(xs, xOffset, ys, yOffset, length);
+        }
+        VectorSpecies<Byte> byteSpecies = Int8Species.BYTE_SPECIES;
+        VectorSpecies<Integer> intSpecies = Int8Species.INT_SPECIES;
+        IntVector sums = IntVector.zero(intSpecies);
+        int bound = byteSpecies.loopBound(length);
+        int i = 0;
+        for (; i < bound; i += byteSpecies.length()) {
+            ByteVector x = ByteVector.fromArray(byteSpecies, xs, xOffset + i);
+            ByteVector y = ByteVector.fromArray(byteSpecies, ys, yOffset + i);
+            for (int part = 0; part < Int8Species.PARTS; part++) {
+                IntVector xPart = (IntVector) x.convertShape(VectorOperators.B2I, intSpecies, part);
+                IntVector yPart = (IntVector) y.convertShape(VectorOperators.B2I, intSpecies, part);
+                sums = xPart.mul(yPart).add(sums);
+            }
+        }
+        int sum = sums.reduceLanes(VectorOperators.ADD);
+        for (; i < length; ++i) {
+            sum += xs[xOffset + i] * ys[yOffset + i];
+        }
+        return sum;
+    }
+
+    /**
+     * Implemented by plain loop, because it is auto-vectorized by JIT compiler,
+     * explicit vector implementation measured by {@code KernelsBenchmark} was slower.
+     */
+    @Override
+    public void addScaled(double[] target, int targetOffset, double[] source, int sourceOffset, double scale, int length) {
+        for (int i = 0; i < length; ++i) {
+            target[targetOffset + i] += scale * source[sourceOffset + i];
+        }
+    }
+}
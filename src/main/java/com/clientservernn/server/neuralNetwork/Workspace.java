@@ -0,0 +1,77 @@
+package com.clientservernn.server.neuralNetwork;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The class {@code Workspace} holds state of one forward and backward pass
+ * through layers of {@link Network}: outputs, weighted sums and deltas of each layer,
+ * and gradients accumulated over mini-batch.
+ * Weights are not stored here, so any number of workspaces can be used
+ * with one network at the same time, for example one per worker thread.
+ * Arrays of layer {@code i} are stored at index {@code i}, arrays of input layer
+ * are empty, its outputs are reference to network input.
+ * Workspace used only for recognition does not contain gradients arrays.
+ *
+ * @author  Yauheni Slabko
+ * @since   1.0
+ */
+final class Workspace {
+    final double[][] outputs;
+    final double[][] weightedSums;
+    final double[][] deltas;
+    final double[][] weightGradients;
+    final double[][] biasGradients;
+
+    /**
+     * The buffer for network input converted from image data.
+     */
+    final double[] input;
+
+    Workspace(List<Layer> layers) {
+        this(layers, true);
+    }
+
+    /**
+     * Allocate the new {@code Workspace} for given {@code layers}.
+     * If {@code training} is {@code false}, gradients arrays are {@code null}.
+     */
+    Workspace(List<Layer> layers, boolean training) {
+        int size = layers.size();
+        this.outputs = new double[size][];
+        this.weightedSums = new double[size][];
+        this.deltas = new double[size][];
+        this.weightGradients = training ? new double[size][] : null;
+        this.biasGradients = training ? new double[size][] : null;
+        this.input = new double[layers.get(0).numNeurons];
+        for (int i = 0; i < size; i++) {
+            Layer layer = layers.get(i);
+            int neurons = layer.previousLayer.isPresent() ? layer.numNeurons : 0;
+            this.outputs[i] = new double[neurons];
+            this.weightedSums[i] = new double[neurons];
+            this.deltas[i] = new double[neurons];
+            if (training) {
+                this.weightGradients[i] = new double[layer.weights.length];
+                this.biasGradients[i] = new double[neurons];
+            }
+        }
+    }
+
+    /**
+     * Adds gradients accumulated in {@code other} workspace to gradients of this workspace.
+     * @param other workspace of the same network.
+     */
+    void addGradients(Workspace other) {
+        for (int i = 0; i < this.weightGradients.length; i++) {
+            Util.addScaled(this.weightGradients[i], 0, other.weightGradients[i], 0, 1.0, this.weightGradients[i].length);
+            Util.addScaled(this.biasGradients[i], 0, other.biasGradients[i], 0, 1.0, this.biasGradients[i].length);
+        }
+    }
+
+    void clearGradients() {
+        for (int i = 0; i < this.weightGradients.length; i++) {
+            Arrays.fill(this.weightGradients[i], 0.0);
+            Arrays.fill(this.biasGradients[i], 0.0);
+        }
+    }
+}
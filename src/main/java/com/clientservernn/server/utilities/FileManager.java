@@ -35,6 +35,11 @@ public final class  FileManager {
      */
     static final Path dir=Paths.get(directory);
 
+    /**
+     * The constant holding directory of trained models, next to {@code directory}.
+     */
+    static final String modelDirectory = "src\\main\\resources\\com\\clientservernn\\server\\Models\\";
+
     /**
      * The {@link ArrayList} that contains all current reading and written files as {@link Path}.
      * Operation of reading {@code loadObject()} and writing {@code saveAsObject()} are synchronized by Path.
@@ -199,4 +204,124 @@ public final class  FileManager {
         currentPathList.remove(current);
         return Optional.ofNullable(requested);
     }
+
+    /**
+     * Returns {@link Optional} with {@link Properties} loaded from sub path
+     * {@code charset} relatively current {@code directory} with {@code name}
+     * and extension ".properties". If file does not exist or can not be read
+     * returns empty {@link Optional}.
+     *
+     * @param charset the requested charset.
+     * @param name the requested name.
+     * @return the {@link Optional} with loaded properties or empty.
+     */
+    public static Optional<Properties> loadProperties(String charset, String name) {
+        String extension=".properties";
+        Path current=Paths.get(dir.toString(),charset,name+extension);
+        if (!Files.isRegularFile(current)) {
+            return Optional.empty();
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(current)) {
+            properties.load(reader);
+        } catch (IOException exception) {
+            return Optional.empty();
+        }
+        return Optional.of(properties);
+    }
+
+    /**
+     * Returns path of newest model file of {@code charset} in {@code modelDirectory}.
+     * Model files are named "charset.version.model", file "charset.model" is version 0.
+     * If charset has no model returns path of version 0. Creates {@code modelDirectory}
+     * if it does not exist.
+     *
+     * @param charset the requested charset.
+     * @return path of model file, file may not exist.
+     * @throws IOException if directory can not be created or read.
+     */
+    public static Path getModelPath(String charset) throws IOException {
+        Path models = Paths.get(modelDirectory);
+        Files.createDirectories(models);
+        Path newest = models.resolve(charset + ".model");
+        long version = -1;
+        for (Path path : listModels(models, charset)) {
+            long current = modelVersion(charset, path);
+            if (current > version) {
+                version = current;
+                newest = path;
+            }
+        }
+        return newest;
+    }
+
+    /**
+     * Returns path of new model file of {@code charset} in {@code modelDirectory},
+     * its version follows version of newest model. Saved model never replaces file
+     * which may be mapped to memory by loaded model.
+     *
+     * @param charset the requested charset.
+     * @return path of model file that does not exist.
+     * @throws IOException if directory can not be created or read.
+     */
+    public static Path newModelPath(String charset) throws IOException {
+        Path newest = getModelPath(charset);
+        long version = Files.exists(newest) ? modelVersion(charset, newest) + 1 : 1;
+        return newest.resolveSibling(charset + "." + version + ".model");
+    }
+
+    /**
+     * Deletes model files of {@code charset} older than {@code current}.
+     * File that can not be deleted, for example still mapped to memory on Windows,
+     * is left and deleted by next call.
+     *
+     * @param charset the requested charset.
+     * @param current the path of newest model file, it is kept.
+     */
+    public static void deleteOldModels(String charset, Path current) {
+        long version = modelVersion(charset, current);
+        try {
+            for (Path path : listModels(current.getParent(), charset)) {
+                if (modelVersion(charset, path) < version) {
+                    try {
+                        Files.deleteIfExists(path);
+                    } catch (IOException exception) {
+                        //file is in use, it is deleted later
+                    }
+                }
+            }
+        } catch (IOException exception) {
+            //old models are deleted later
+        }
+    }
+
+    private static List<Path> listModels(Path models, String charset) throws IOException {
+        List<Path> paths = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(models, charset + ".*model")) {
+            for (Path path : stream) {
+                paths.add(path);
+            }
+        }
+        return paths;
+    }
+
+    /**
+     * Returns version of model file {@code path} of {@code charset} or -1 if it is not model of charset.
+     */
+    private static long modelVersion(String charset, Path path) {
+        String name = path.getFileName().toString();
+        if (name.equals(charset + ".model")) {
+            return 0;
+        }
+        String prefix = charset + ".";
+        String suffix = ".model";
+        if (!name.startsWith(prefix) || !name.endsWith(suffix) || name.length() <= prefix.length() + suffix.length()) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length()));
+        } catch (NumberFormatException exception) {
+            return -1;
+        }
+    }
 }
@@ -329,7 +329,25 @@ public final class RawCharData {
     public static double[] getDoublesArrayRefactored(byte[] imageArray) throws NullPointerException {
         Objects.requireNonNull(imageArray);
         //The network input is an array of double.
-        double[] doublesArray = new double[imageArray.length];
+        return getDoublesArrayRefactored(imageArray, new double[imageArray.length]);
+    }
+
+    /**
+     * Writes refactored initial {@code imageArray} to given {@code doublesArray}
+     * in the same way as {@link #getDoublesArrayRefactored(byte[])} without allocation.
+     *
+     * @param   imageArray
+     *         initial byte array.
+     * @param   doublesArray
+     *         array for result, not shorter than {@code imageArray}.
+     *
+     * @return  {@code doublesArray}.
+     * @throws NullPointerException if any param is null.
+     *
+     */
+    public static double[] getDoublesArrayRefactored(byte[] imageArray, double[] doublesArray) throws NullPointerException {
+        Objects.requireNonNull(imageArray);
+        Objects.requireNonNull(doublesArray);
         //In imageArray white color is 0xFF, and black is 0x00. In this case max signal (black)
         //has min value. For uses in neural network data should be modified in such a way, that
         //max signal (black) will have a max value. For this used operation of logical bitwise no (~).
@@ -339,6 +357,44 @@ public final class RawCharData {
         return doublesArray;
     }
 
+    /**
+     * Returns {@code float} array represents refactored initial {@code imageArray}
+     * in the same way as {@link #getDoublesArrayRefactored(byte[])}.
+     *
+     * @param   imageArray
+     *         initial byte array.
+     *
+     * @return  {@code float} array represents refactored initial {@code imageArray}.
+     * @throws NullPointerException if {@code imageArray} is null.
+     *
+     */
+    public static float[] getFloatsArrayRefactored(byte[] imageArray) throws NullPointerException {
+        Objects.requireNonNull(imageArray);
+        return getFloatsArrayRefactored(imageArray, new float[imageArray.length]);
+    }
+
+    /**
+     * Writes refactored initial {@code imageArray} to given {@code floatsArray}
+     * in the same way as {@link #getFloatsArrayRefactored(byte[])} without allocation.
+     *
+     * @param   imageArray
+     *         initial byte array.
+     * @param   floatsArray
+     *         array for result, not shorter than {@code imageArray}.
+     *
+     * @return  {@code floatsArray}.
+     * @throws NullPointerException if any param is null.
+     *
+     */
+    public static float[] getFloatsArrayRefactored(byte[] imageArray, float[] floatsArray) throws NullPointerException {
+        Objects.requireNonNull(imageArray);
+        Objects.requireNonNull(floatsArray);
+        for(int i = 0; i < imageArray.length; ++i) {
+            floatsArray[i] = (~imageArray[i] & 0xFF);
+        }
+        return floatsArray;
+    }
+
     /**
      * Returns size of {@code datalist} of {@code RawCharData}
      * corresponds given {@code charset} and {@code character}.
@@ -1,6 +1,7 @@
 module ServerNeuronNet {
     requires javafx.controls;
     requires javafx.fxml;
+    requires static jdk.incubator.vector;
 
 
 
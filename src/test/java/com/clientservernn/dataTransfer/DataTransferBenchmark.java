@@ -0,0 +1,98 @@
+package com.clientservernn.dataTransfer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static com.clientservernn.dataTransfer.ImageDataUtil.DATA_HEIGHT;
+import static com.clientservernn.dataTransfer.ImageDataUtil.DATA_WIDTH;
+
+/**
+ * The class {@code DataTransferBenchmark} contains JMH benchmarks comparing encoding by
+ * {@link DataTransfer#toByteArray()} and decoding by {@link DataTransfer#fromByteArray(byte[])}
+ * of typical requests and responses with {@link DataTransfer#serializedVersionID} (1.01)
+ * and {@link DataTransfer#versionID} (1.02).
+ * It is compiled with tests, benchmark classes are generated by annotation processor
+ * of JMH, and can be run from command line without server:
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.includeScope=test -Dmdep.outputFile=target/test-classpath.txt
+ * java -cp target/test-classes:target/classes:$(cat target/test-classpath.txt) org.openjdk.jmh.Main DataTransferBenchmark
+ * </pre>
+ *
+ * @author  Yauheni Slabko
+ * @since   1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DataTransferBenchmark {
+
+    /**
+     * The transfer: request of recognition of glyph, response with candidates
+     * or response to recognition of page.
+     */
+    @Param({"request", "response", "page"})
+    public String transfer;
+
+    @Param({"1.01", "1.02"})
+    public double version;
+
+    private DataTransfer dataTransfer;
+    private byte[] bytes;
+
+    @Setup
+    public void setUp() throws IOException {
+        Random random = new Random(42L);
+        this.dataTransfer = switch (this.transfer) {
+            case "request" -> {
+                byte[] glyph = new byte[DATA_WIDTH * DATA_HEIGHT];
+                random.nextBytes(glyph);
+                yield new DataTransfer(new ImageData(glyph, DATA_WIDTH, DATA_HEIGHT), Command.RECOGNIZE, "ENGLISH_CHAR");
+            }
+            case "response" -> {
+                String[] candidates = new String[21];
+                candidates[0] = "It is definitely letter: A, probability is: 9.87E-1";
+                for (int i = 1; i < candidates.length; i += 2) {
+                    candidates[i] = String.valueOf((char) ('A' + i));
+                    candidates[i + 1] = Double.toString(random.nextDouble());
+                }
+                yield new DataTransfer(null, Command.RECOGNIZE, 10, candidates);
+            }
+            case "page" -> {
+                String[] page = new String[100];
+                for (int i = 0; i < page.length; i++) {
+                    page[i] = (char) ('a' + i % 26) + ", 9.5E-1";
+                }
+                yield new DataTransfer(null, Command.RECOGNIZE_PAGE, page.length, page);
+            }
+            default -> throw new IllegalArgumentException("Unknown transfer: " + this.transfer);
+        };
+        this.dataTransfer.setVersion(this.version);
+        this.bytes = this.dataTransfer.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        return this.dataTransfer.toByteArray();
+    }
+
+    @Benchmark
+    public DataTransfer decode() throws IOException {
+        return DataTransfer.fromByteArray(this.bytes);
+    }
+}
@@ -0,0 +1,184 @@
+package com.clientservernn.dataTransfer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests of framing of {@link DataTransfer} by {@link DataTransfer#read(InputStream)}
+ * and of messages of {@link DataTransfer#versionID} and {@link DataTransfer#serializedVersionID}.
+ *
+ * @author  Yauheni Slabko
+ * @since   1.0
+ */
+class DataTransferTest {
+
+    static DataTransfer transfer(int transferCode, String... message) {
+        byte[] imageArgb = new byte[12];
+        Arrays.fill(imageArgb, (byte) transferCode);
+        DataTransfer dataTransfer = new DataTransfer(new ImageData(imageArgb, 4, 3), Command.RECOGNIZE, 7, message);
+        dataTransfer.setTransferCode(transferCode);
+        return dataTransfer;
+    }
+
+    static DataTransfer serialized(DataTransfer dataTransfer) {
+        dataTransfer.setVersion(DataTransfer.serializedVersionID);
+        return dataTransfer;
+    }
+
+    static byte[] concat(DataTransfer... dataTransfers) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        for (DataTransfer dataTransfer : dataTransfers) {
+            dataTransfer.write(outputStream);
+        }
+        return outputStream.toByteArray();
+    }
+
+    static void assertTransferEquals(DataTransfer expected, DataTransfer actual) {
+        assertEquals(expected.command, actual.command);
+        assertEquals(expected.getTransferCode(), actual.getTransferCode());
+        assertEquals(expected.getPosition(), actual.getPosition());
+        assertEquals(expected.getVersion(), actual.getVersion());
+        assertArrayEquals(expected.getMessage(), actual.getMessage());
+        assertArrayEquals(expected.getImageData().imageArgb, actual.getImageData().imageArgb);
+        assertEquals(expected.getImageData().width, actual.getImageData().width);
+        assertEquals(expected.getImageData().height, actual.getImageData().height);
+    }
+
+    /**
+     * The stream returning at most {@code chunk} bytes by each read, as socket returns split frames.
+     */
+    private static InputStream chunked(byte[] bytes, int chunk) {
+        InputStream source = new ByteArrayInputStream(bytes);
+        return new InputStream() {
+            @Override
+            public int read() throws IOException {
+                return source.read();
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return source.read(b, off, Math.min(len, chunk));
+            }
+        };
+    }
+
+    @Test
+    void readsFrameSplitIntoSmallReads() throws IOException {
+        DataTransfer expected = transfer(3, "split", null);
+        InputStream inputStream = chunked(concat(expected), 1);
+        assertTransferEquals(expected, DataTransfer.read(inputStream));
+        assertNull(DataTransfer.read(inputStream));
+    }
+
+    @Test
+    void readsPipelinedFrames() throws IOException {
+        DataTransfer first = transfer(1, "first");
+        DataTransfer second = transfer(2);
+        DataTransfer third = transfer(3, "third", "");
+        InputStream inputStream = chunked(concat(first, second, third), 5);
+        assertTransferEquals(first, DataTransfer.read(inputStream));
+        assertTransferEquals(second, DataTransfer.read(inputStream));
+        assertTransferEquals(third, DataTransfer.read(inputStream));
+        assertNull(DataTransfer.read(inputStream));
+    }
+
+    @Test
+    void failsOnTruncatedHeader() throws IOException {
+        byte[] bytes = concat(transfer(1, "header"));
+        InputStream inputStream = new ByteArrayInputStream(bytes, 0, DataTransfer.HEADER_SIZE - 1);
+        assertThrows(EOFException.class, () -> DataTransfer.read(inputStream));
+    }
+
+    @Test
+    void failsOnTruncatedBody() throws IOException {
+        byte[] bytes = concat(transfer(1, "body"));
+        InputStream inputStream = new ByteArrayInputStream(bytes, 0, bytes.length - 1);
+        assertThrows(EOFException.class, () -> DataTransfer.read(inputStream));
+    }
+
+    @Test
+    void rejectsOversizedFrame() throws IOException {
+        byte[] bytes = concat(transfer(1, "oversized"));
+        ByteBuffer.wrap(bytes).putInt(Double.BYTES, DataTransfer.MAX_SIZE + 1);
+        IOException exception = assertThrows(IOException.class, () -> DataTransfer.read(new ByteArrayInputStream(bytes)));
+        assertEquals(IOException.class, exception.getClass());
+    }
+
+    @Test
+    void rejectsFrameSmallerThanHeader() throws IOException {
+        byte[] bytes = concat(transfer(1));
+        ByteBuffer.wrap(bytes).putInt(Double.BYTES, DataTransfer.HEADER_SIZE - 1);
+        assertThrows(IOException.class, () -> DataTransfer.read(new ByteArrayInputStream(bytes)));
+    }
+
+    @Test
+    void readsMixedVersionFrames() throws IOException {
+        DataTransfer compact = transfer(1, "compact", null, "");
+        DataTransfer previous = serialized(transfer(2, "serialized", null, ""));
+        DataTransfer noMessage = serialized(transfer(3));
+        InputStream inputStream = chunked(concat(compact, previous, noMessage, transfer(4, "last")), 7);
+        assertTransferEquals(compact, DataTransfer.read(inputStream));
+        assertTransferEquals(previous, DataTransfer.read(inputStream));
+        assertTransferEquals(noMessage, DataTransfer.read(inputStream));
+        assertTransferEquals(transfer(4, "last"), DataTransfer.read(inputStream));
+        assertNull(DataTransfer.read(inputStream));
+    }
+
+    @Test
+    void encodesMessageSameInBothVersions() throws IOException {
+        String[] message = {"ascii", "\u00e9\u00df", "\u4e2d\u6587", "\ud83d\ude00", "", null};
+        DataTransfer compact = DataTransfer.fromByteArray(transfer(1, message).toByteArray());
+        DataTransfer previous = DataTransfer.fromByteArray(serialized(transfer(1, message)).toByteArray());
+        assertEquals(DataTransfer.versionID, compact.getVersion());
+        assertEquals(DataTransfer.serializedVersionID, previous.getVersion());
+        assertArrayEquals(previous.getMessage(), compact.getMessage());
+        assertArrayEquals(message, compact.getMessage());
+    }
+
+    @Test
+    void compactMessageIsSmaller() throws IOException {
+        assertTrue(transfer(1, "name").toByteArray().length < serialized(transfer(1, "name")).toByteArray().length);
+    }
+
+    @Test
+    void rejectsUnsupportedVersion() throws IOException {
+        byte[] bytes = concat(transfer(1, "version"));
+        ByteBuffer.wrap(bytes).putDouble(0, 1.03);
+        assertThrows(IOException.class, () -> DataTransfer.read(new ByteArrayInputStream(bytes)));
+        assertThrows(IllegalArgumentException.class, () -> transfer(1).setVersion(1.03));
+    }
+
+    @Test
+    void negotiatesVersionOfferedByServer() {
+        assertEquals(DataTransfer.versionID, DataTransfer.negotiatedVersion(
+                new DataTransfer(null, Command.USER_DATA, "name", String.valueOf(DataTransfer.versionID))));
+        assertEquals(DataTransfer.versionID, DataTransfer.negotiatedVersion(
+                new DataTransfer(null, Command.USER_DATA, "name", "1.5")));
+    }
+
+    @Test
+    void fallsBackToSerializedVersion() {
+        assertEquals(DataTransfer.serializedVersionID, DataTransfer.negotiatedVersion(null));
+        assertEquals(DataTransfer.serializedVersionID, DataTransfer.negotiatedVersion(
+                new DataTransfer(null, Command.USER_DATA, "name")));
+        assertEquals(DataTransfer.serializedVersionID, DataTransfer.negotiatedVersion(
+                new DataTransfer(null, Command.USER_DATA, "name", "not a version")));
+        assertEquals(DataTransfer.serializedVersionID, DataTransfer.negotiatedVersion(
+                new DataTransfer(null, Command.USER_DATA, "name", String.valueOf(DataTransfer.serializedVersionID))));
+        assertEquals(DataTransfer.serializedVersionID, DataTransfer.negotiatedVersion(
+                new DataTransfer(null, Command.EXCEPTION, "name", String.valueOf(DataTransfer.versionID))));
+    }
+}
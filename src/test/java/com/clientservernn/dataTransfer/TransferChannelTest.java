@@ -0,0 +1,254 @@
+package com.clientservernn.dataTransfer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.Pipe;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static com.clientservernn.dataTransfer.DataTransferTest.assertTransferEquals;
+import static com.clientservernn.dataTransfer.DataTransferTest.concat;
+import static com.clientservernn.dataTransfer.DataTransferTest.serialized;
+import static com.clientservernn.dataTransfer.DataTransferTest.transfer;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of {@link TransferChannel}: frames read by {@code read()} and {@code poll()},
+ * written by {@code write()} and {@code flush()}, and UTF-8 encoding of messages.
+ *
+ * @author  Yauheni Slabko
+ * @since   1.0
+ */
+class TransferChannelTest {
+
+    private static final String[] STRINGS = {"", "ascii", "\u00e9\u00df\u07ff", "\u0800\u4e2d\uffff",
+            "\ud83d\ude00", "a\ud800", "\ud800b", "\udc00", "\ud800\ud800\udc00", "\udbff\udfff"};
+
+    /**
+     * Returns frame with image larger than pooled buffer.
+     */
+    private static DataTransfer large(int transferCode) {
+        byte[] imageArgb = new byte[300 * 300];
+        new Random(transferCode).nextBytes(imageArgb);
+        DataTransfer dataTransfer = new DataTransfer(new ImageData(imageArgb, 300, 300), Command.LEARN, 1, "large");
+        dataTransfer.setTransferCode(transferCode);
+        return dataTransfer;
+    }
+
+    private static Pipe pipe() throws IOException {
+        Pipe pipe = Pipe.open();
+        pipe.source().configureBlocking(false);
+        pipe.sink().configureBlocking(false);
+        return pipe;
+    }
+
+    /**
+     * Writes {@code bytes} to pipe by {@code chunk} and polls frames after each chunk.
+     */
+    private static List<DataTransfer> pollChunked(byte[] bytes, int chunk) throws IOException {
+        Pipe pipe = pipe();
+        List<DataTransfer> read = new ArrayList<>();
+        try (TransferChannel channel = new TransferChannel(pipe.source(), pipe.sink())) {
+            for (int offset = 0; offset < bytes.length; offset += chunk) {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, Math.min(chunk, bytes.length - offset));
+                while (buffer.hasRemaining()) {
+                    //pipe accepts less than large frame
+                    pipe.sink().write(buffer);
+                    while (channel.poll()) {
+                        read.add(channel.toDataTransfer());
+                    }
+                }
+                assertFalse(channel.isEnded());
+            }
+            pipe.sink().close();
+            assertFalse(channel.poll());
+            assertTrue(channel.isEnded());
+        }
+        return read;
+    }
+
+    @Test
+    void utf8LengthIsLengthOfBytes() {
+        for (String string : STRINGS) {
+            assertEquals(string.getBytes(StandardCharsets.UTF_8).length, TransferChannel.utf8Length(string), string);
+        }
+    }
+
+    @Test
+    void putUtf8PutsSameBytes() {
+        for (String string : STRINGS) {
+            ByteBuffer buffer = ByteBuffer.allocate(TransferChannel.utf8Length(string));
+            TransferChannel.putUtf8(buffer, string);
+            assertFalse(buffer.hasRemaining(), string);
+            assertArrayEquals(string.getBytes(StandardCharsets.UTF_8), buffer.array(), string);
+        }
+    }
+
+    @Test
+    void putUtf8PutsSameBytesForRandomStrings() {
+        Random random = new Random(1);
+        for (int i = 0; i < 1000; i++) {
+            char[] chars = new char[random.nextInt(20)];
+            for (int j = 0; j < chars.length; j++) {
+                chars[j] = (char) (random.nextBoolean() ? random.nextInt(0x10000) : 0xD800 + random.nextInt(0x800));
+            }
+            String string = new String(chars);
+            byte[] expected = string.getBytes(StandardCharsets.UTF_8);
+            ByteBuffer buffer = ByteBuffer.allocate(TransferChannel.utf8Length(string));
+            TransferChannel.putUtf8(buffer, string);
+            assertArrayEquals(expected, buffer.array());
+        }
+    }
+
+    @Test
+    void writesSameBytesAsDataTransfer() throws IOException {
+        DataTransfer[] dataTransfers = {transfer(1, STRINGS), transfer(2), serialized(transfer(3, "serialized")), large(4)};
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (TransferChannel channel = new TransferChannel(Channels.newChannel(new ByteArrayInputStream(new byte[0])),
+                Channels.newChannel(outputStream))) {
+            for (DataTransfer dataTransfer : dataTransfers) {
+                assertTrue(channel.write(dataTransfer));
+            }
+        }
+        assertArrayEquals(concat(dataTransfers), outputStream.toByteArray());
+    }
+
+    @Test
+    void readsPipelinedAndMixedVersionFrames() throws IOException {
+        DataTransfer[] dataTransfers = {transfer(1, "first", null), serialized(transfer(2, "serialized")), large(3), transfer(4)};
+        byte[] bytes = concat(dataTransfers);
+        try (TransferChannel channel = new TransferChannel(Channels.newChannel(new ByteArrayInputStream(bytes)),
+                Channels.newChannel(new ByteArrayOutputStream()))) {
+            for (DataTransfer dataTransfer : dataTransfers) {
+                assertTrue(channel.read());
+                assertEquals(dataTransfer.command, channel.getCommand());
+                assertEquals(dataTransfer.getVersion(), channel.getVersion());
+                assertArrayEquals(dataTransfer.getMessage(), channel.getMessage());
+                assertTransferEquals(dataTransfer, channel.toDataTransfer());
+            }
+            assertFalse(channel.read());
+        }
+    }
+
+    @Test
+    void pollReturnsFramesSplitIntoChunks() throws IOException {
+        DataTransfer[] dataTransfers = {transfer(1, "first"), serialized(transfer(2, "serialized")), large(3),
+                transfer(4, "\u00e9\u00df", "\u4e2d\u6587", "\ud83d\ude00", null)};
+        byte[] bytes = concat(dataTransfers);
+        for (int chunk : new int[]{1, 7, DataTransfer.HEADER_SIZE, 1000, bytes.length}) {
+            List<DataTransfer> read = pollChunked(bytes, chunk);
+            assertEquals(dataTransfers.length, read.size());
+            for (int i = 0; i < dataTransfers.length; i++) {
+                assertTransferEquals(dataTransfers[i], read.get(i));
+            }
+        }
+    }
+
+    @Test
+    void pollReturnsFalseUntilFrameIsComplete() throws IOException {
+        byte[] bytes = concat(transfer(1, "incomplete"));
+        Pipe pipe = pipe();
+        try (TransferChannel channel = new TransferChannel(pipe.source(), pipe.sink())) {
+            assertFalse(channel.poll());
+            assertThrows(IllegalStateException.class, channel::getCommand);
+            pipe.sink().write(ByteBuffer.wrap(bytes, 0, bytes.length - 1));
+            assertFalse(channel.poll());
+            assertFalse(channel.isEnded());
+            pipe.sink().write(ByteBuffer.wrap(bytes, bytes.length - 1, 1));
+            assertTrue(channel.poll());
+            assertEquals(1, channel.getTransferCode());
+            assertFalse(channel.poll());
+        }
+    }
+
+    @Test
+    void pollFailsOnTruncatedFrame() throws IOException {
+        for (DataTransfer dataTransfer : new DataTransfer[]{transfer(1, "truncated"), large(2)}) {
+            byte[] bytes = concat(dataTransfer);
+            Pipe pipe = pipe();
+            try (TransferChannel channel = new TransferChannel(pipe.source(), pipe.sink())) {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, bytes.length - 1);
+                while (buffer.hasRemaining()) {
+                    pipe.sink().write(buffer);
+                    assertFalse(channel.poll());
+                }
+                pipe.sink().close();
+                assertThrows(EOFException.class, channel::poll);
+                assertTrue(channel.isEnded());
+            }
+        }
+    }
+
+    @Test
+    void readFailsOnTruncatedFrame() throws IOException {
+        byte[] bytes = concat(transfer(1, "truncated"));
+        try (TransferChannel channel = new TransferChannel(Channels.newChannel(new ByteArrayInputStream(bytes, 0, bytes.length - 1)),
+                Channels.newChannel(new ByteArrayOutputStream()))) {
+            assertThrows(EOFException.class, channel::read);
+        }
+    }
+
+    @Test
+    void rejectsOversizedFrame() throws IOException {
+        byte[] bytes = concat(transfer(1, "oversized"));
+        ByteBuffer.wrap(bytes).putInt(Double.BYTES, DataTransfer.MAX_SIZE + 1);
+        Pipe pipe = pipe();
+        pipe.sink().write(ByteBuffer.wrap(bytes));
+        try (TransferChannel channel = new TransferChannel(pipe.source(), pipe.sink())) {
+            IOException exception = assertThrows(IOException.class, channel::poll);
+            assertEquals(IOException.class, exception.getClass());
+        }
+    }
+
+    @Test
+    void flushWritesRestOfFrameWhenChannelAcceptsIt() throws IOException {
+        Pipe pipe = pipe();
+        DataTransfer[] dataTransfers = {large(1), large(2), transfer(3, "small")};
+        List<DataTransfer> read = new ArrayList<>();
+        try (TransferChannel writer = new TransferChannel(pipe.source(), pipe.sink());
+             TransferChannel reader = new TransferChannel(pipe.source(), pipe.sink())) {
+            assertTrue(writer.flush());
+            for (DataTransfer dataTransfer : dataTransfers) {
+                boolean flushed = writer.write(dataTransfer);
+                if (!flushed) {
+                    assertThrows(IllegalStateException.class, () -> writer.write(dataTransfer));
+                }
+                while (!flushed) {
+                    while (reader.poll()) {
+                        read.add(reader.toDataTransfer());
+                    }
+                    flushed = writer.flush();
+                }
+                assertTrue(writer.flush());
+            }
+            while (reader.poll()) {
+                read.add(reader.toDataTransfer());
+            }
+        }
+        assertEquals(dataTransfers.length, read.size());
+        for (int i = 0; i < dataTransfers.length; i++) {
+            assertTransferEquals(dataTransfers[i], read.get(i));
+        }
+    }
+
+    @Test
+    void rejectsUseAfterClose() throws IOException {
+        Pipe pipe = pipe();
+        TransferChannel channel = new TransferChannel(pipe.source(), pipe.sink());
+        channel.close();
+        assertThrows(IllegalStateException.class, channel::poll);
+        assertThrows(IllegalStateException.class, () -> channel.write(transfer(1)));
+    }
+}
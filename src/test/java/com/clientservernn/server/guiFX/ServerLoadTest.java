@@ -0,0 +1,193 @@
+package com.clientservernn.server.guiFX;
+
+import com.clientservernn.dataTransfer.Command;
+import com.clientservernn.dataTransfer.DataTransfer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The class {@code ServerLoadTest} shows how {@link Server} scales with number of connected clients
+ * in each {@link ServerMode}. For each number of clients server is started on free port, all clients
+ * connect and stay idle, then each of them sends {@code requests} of {@link Command#USER_DATA}.
+ * Printed are time of connection of all clients, number of live threads and used heap while
+ * clients are idle, round trips per second under load and number of refreshes of table of clients.
+ * Refresher does the same work as {@link ServerController#handleRefreshAction()}: it is passed
+ * to single thread standing for JavaFX application thread, which copies and sorts clients of server. Requests of clients are sent by few
+ * driver threads, each of them writes request to all its clients before reading their responses,
+ * so server has requests of many clients at once. If server fails to serve clients, for example
+ * can not create more threads, failure is printed instead of results.
+ * It is compiled with tests, not into server module, and can be run from command line without GUI:
+ * <pre>
+ * java -p target/classes --patch-module ServerNeuronNet=target/test-classes -m ServerNeuronNet/com.clientservernn.server.guiFX.ServerLoadTest [mode|ALL] [requests] [clients...]
+ * </pre>
+ *
+ * @author  Yauheni Slabko
+ * @since   1.0
+ */
+public final class ServerLoadTest {
+
+    private static final int DRIVERS = 8;
+    private static final long TIMEOUT = 30_000L;
+
+    private ServerLoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<ServerMode> modes = args.length > 0 && !args[0].equalsIgnoreCase("ALL")
+                ? List.of(ServerMode.valueOf(args[0].toUpperCase(Locale.ROOT))) : List.of(ServerMode.values());
+        int requests = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int[] clients = {100, 1000, 2000};
+        if (args.length > 2) {
+            clients = new int[args.length - 2];
+            for (int i = 2; i < args.length; i++) {
+                clients[i - 2] = Integer.parseInt(args[i]);
+            }
+        }
+        //ClientThread prints every transfer, only results are printed.
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        out.printf("%18s %8s %12s %8s %10s %14s %10s%n", "mode", "clients", "connect ms", "threads", "heap MB", "round trips/s", "refreshes");
+        for (ServerMode mode : modes) {
+            for (int count : clients) {
+                try {
+                    out.println(run(mode, count, requests));
+                } catch (Throwable throwable) {
+                    out.printf("%18s %8d failed: %s%n", mode, count, throwable);
+                }
+                System.gc();
+                Thread.sleep(500);
+            }
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Performs test of server in {@code mode} with {@code count} clients and returns line of results.
+     */
+    private static String run(ServerMode mode, int count, int requests) throws Exception {
+        AtomicReference<Server> reference = new AtomicReference<>();
+        AtomicInteger refreshes = new AtomicInteger();
+        ExecutorService application = Executors.newSingleThreadExecutor();
+        Server server = new Server(() -> {
+            application.execute(() -> {
+                try {
+                    new ArrayList<>(reference.get().getClientItems()).stream().sorted(ComparableTo::compareByIndex).toList();
+                } catch (ConcurrentModificationException exception) {
+                    //list of client threads is changed meanwhile
+                }
+                refreshes.incrementAndGet();
+            });
+            return null;
+        }, mode);
+        reference.set(server);
+        int port = server.start(0);
+        List<Socket> sockets = new ArrayList<>(count);
+        ExecutorService drivers = Executors.newFixedThreadPool(DRIVERS);
+        try {
+            int threadsBefore = Thread.activeCount();
+            long heapBefore = usedHeap();
+            long start = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+                socket.setTcpNoDelay(true);
+                sockets.add(socket);
+            }
+            awaitClients(server, count);
+            long connect = (System.nanoTime() - start) / 1_000_000;
+            int threads = Thread.activeCount() - threadsBefore;
+            double heap = (usedHeap() - heapBefore) / (1024.0 * 1024.0);
+
+            List<Future<?>> futures = new ArrayList<>();
+            start = System.nanoTime();
+            for (int d = 0; d < DRIVERS; d++) {
+                List<Socket> slice = sockets.subList(d * count / DRIVERS, (d + 1) * count / DRIVERS);
+                futures.add(drivers.submit(() -> {
+                    drive(slice, requests);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            double roundTrips = (double) count * requests / seconds;
+            return String.format("%18s %8d %12d %8d %10.1f %14.0f %10d", mode, count, connect, threads, heap, roundTrips, refreshes.get());
+        } finally {
+            drivers.shutdownNow();
+            application.shutdownNow();
+            application.awaitTermination(1, TimeUnit.SECONDS);
+            for (Socket socket : sockets) {
+                socket.close();
+            }
+            try {
+                awaitClients(server, 0);
+            } catch (IOException exception) {
+                //clients left in list are stopped by server
+            }
+            server.stop();
+            //ClientThread.stop() interrupts caller thread.
+            Thread.interrupted();
+        }
+    }
+
+    /**
+     * Sends {@code requests} by each of {@code sockets} and checks responses.
+     */
+    private static void drive(List<Socket> sockets, int requests) throws IOException {
+        for (int r = 0; r < requests; r++) {
+            for (int i = 0; i < sockets.size(); i++) {
+                DataTransfer request = new DataTransfer(null, Command.USER_DATA, "unsigned");
+                request.setTransferCode(r * sockets.size() + i);
+                request.write(sockets.get(i).getOutputStream());
+            }
+            for (int i = 0; i < sockets.size(); i++) {
+                InputStream inputStream = sockets.get(i).getInputStream();
+                DataTransfer response = DataTransfer.read(inputStream);
+                if (response == null || response.command != Command.USER_DATA
+                        || response.getTransferCode() != r * sockets.size() + i) {
+                    throw new IOException("Unexpected response: " + response);
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits until server has {@code count} connected clients.
+     */
+    private static void awaitClients(Server server, int count) throws Exception {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        int clients = -1;
+        while (clients != count) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new IOException("Server has " + clients + " clients of " + count);
+            }
+            Thread.sleep(10);
+            try {
+                clients = server.getClientItems().size();
+            } catch (ConcurrentModificationException exception) {
+                //list of client threads is changed meanwhile
+            }
+        }
+    }
+
+    private static long usedHeap() {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
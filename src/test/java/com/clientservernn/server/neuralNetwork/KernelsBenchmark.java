@@ -0,0 +1,78 @@
+package com.clientservernn.server.neuralNetwork;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The class {@code KernelsBenchmark} contains JMH benchmarks comparing {@link ScalarKernels}
+ * and kernels selected by {@link Util}, {@link VectorKernels} since benchmark is forked
+ * with module {@code jdk.incubator.vector}. Size 100 corresponds to current network input.
+ * It is compiled with tests, benchmark classes are generated by annotation processor
+ * of JMH, and can be run from command line without server:
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.includeScope=test -Dmdep.outputFile=target/test-classpath.txt
+ * java -cp target/test-classes:target/classes:$(cat target/test-classpath.txt) org.openjdk.jmh.Main KernelsBenchmark
+ * </pre>
+ *
+ * @author  Yauheni Slabko
+ * @since   1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class KernelsBenchmark {
+
+    @Param({"scalar", "selected"})
+    public String kernels;
+
+    @Param({"100", "1000", "10000", "100000"})
+    public int size;
+
+    private Kernels selected;
+    private double[] xs;
+    private double[] ys;
+    private double[] target;
+    private byte[] bytes;
+
+    @Setup
+    public void setUp() {
+        this.selected = this.kernels.equals("scalar") ? new ScalarKernels() : Util.KERNELS;
+        Random random = new Random(42L);
+        this.xs = random.doubles(this.size).toArray();
+        this.ys = random.doubles(this.size).toArray();
+        this.target = this.xs.clone();
+        this.bytes = new byte[this.size];
+        random.nextBytes(this.bytes);
+    }
+
+    @Benchmark
+    public double dotProduct() {
+        return this.selected.dotProduct(this.xs, 0, this.ys, 0, this.size);
+    }
+
+    @Benchmark
+    public double[] addScaled() {
+        this.selected.addScaled(this.target, 0, this.ys, 0, 1e-9, this.size);
+        return this.target;
+    }
+
+    @Benchmark
+    public int int8DotProduct() {
+        return this.selected.dotProduct(this.bytes, 0, this.bytes, 0, this.size);
+    }
+}
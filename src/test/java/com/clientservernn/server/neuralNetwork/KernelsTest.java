@@ -0,0 +1,48 @@
+package com.clientservernn.server.neuralNetwork;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests of {@link Util#KERNELS}: kernels selected at startup give same results
+ * as {@link ScalarKernels}, vector kernels are selected if module {@code jdk.incubator.vector} is present.
+ *
+ * @author  Yauheni Slabko
+ * @since   1.0
+ */
+class KernelsTest {
+
+    private static final Kernels SCALAR = new ScalarKernels();
+
+    @Test
+    void selectsVectorKernelsIfModuleIsPresent() {
+        boolean vectors = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+        assertEquals(vectors ? "VectorKernels" : "ScalarKernels", Util.KERNELS.getClass().getSimpleName());
+    }
+
+    @Test
+    void int8DotProductIsSameAsScalar() {
+        Random random = new Random(1L);
+        for (int length = 0; length < 300; length++) {
+            byte[] xs = new byte[length + 3];
+            byte[] ys = new byte[length];
+            random.nextBytes(xs);
+            random.nextBytes(ys);
+            assertEquals(SCALAR.dotProduct(xs, 3, ys, 0, length), Util.KERNELS.dotProduct(xs, 3, ys, 0, length), "length " + length);
+        }
+    }
+
+    @Test
+    void doubleDotProductIsCloseToScalar() {
+        Random random = new Random(2L);
+        for (int length = 0; length < 300; length++) {
+            double[] xs = random.doubles(length + 3, -1.0, 1.0).toArray();
+            double[] ys = random.doubles(length, -1.0, 1.0).toArray();
+            //order of summation of vector kernels differs
+            assertEquals(SCALAR.dotProduct(xs, 3, ys, 0, length), Util.KERNELS.dotProduct(xs, 3, ys, 0, length), 1e-12, "length " + length);
+        }
+    }
+}
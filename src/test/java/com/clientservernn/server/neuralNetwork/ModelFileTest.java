@@ -0,0 +1,94 @@
+package com.clientservernn.server.neuralNetwork;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+
+import static com.clientservernn.dataTransfer.ImageDataUtil.DATA_HEIGHT;
+import static com.clientservernn.dataTransfer.ImageDataUtil.DATA_WIDTH;
+import static com.clientservernn.server.neuralNetwork.NetworkCommanderTest.CHARACTERS;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests of {@link ModelFile}: model written from {@link Network} and mapped
+ * back as {@link MappedNetwork} has same weights, scaling and outputs.
+ *
+ * @author  Yauheni Slabko
+ * @since   1.0
+ */
+class ModelFileTest {
+
+    private static final int IMAGES = 20;
+
+    private static final double[][] SCALING = Util.normalizeByFeatureScaling(
+            NetworkCommanderTest.data().stream().map(pair -> pair.getValue()).toList());
+
+    private static Network<String> network(Topology topology) {
+        Network<String> network = new Network<>(topology.layerStructure(DATA_WIDTH * DATA_HEIGHT, CHARACTERS.size()),
+                topology.getLearningRate(), topology.newActivations(), topology.getLoss(),
+                topology.getOptimizer().newOptimizer(), new Random(1L));
+        network.setInputScaling(SCALING);
+        return network;
+    }
+
+    private static Topology topology(String hiddenLayers, String loss) {
+        Properties properties = new Properties();
+        properties.setProperty("hiddenLayers", hiddenLayers);
+        properties.setProperty("loss", loss);
+        return Topology.parse(properties);
+    }
+
+    private static MappedNetwork roundTrip(Network<String> network, Topology topology, Path path) throws IOException {
+        ModelFile.of(network, 7L, topology, CHARACTERS).write(path);
+        return ModelFile.map(path);
+    }
+
+    @Test
+    void mappedModelHasSameWeightsAndScaling(@TempDir Path directory) throws IOException {
+        Topology topology = topology("16,8", "SQUARED_ERROR");
+        Network<String> network = network(topology);
+        MappedNetwork model = roundTrip(network, topology, directory.resolve("network.model"));
+
+        assertEquals(7L, model.trainDate);
+        assertEquals(CHARACTERS, model.characters);
+        assertArrayEquals(topology.layerStructure(DATA_WIDTH * DATA_HEIGHT, CHARACTERS.size()), model.layerStructure());
+        List<Layer> layers = network.getLayers();
+        for (int i = 1; i < layers.size(); i++) {
+            assertArrayEquals(layers.get(i).weights, model.readWeights(i - 1));
+            assertArrayEquals(layers.get(i).biases, model.readBiases(i - 1));
+        }
+        assertArrayEquals(SCALING, model.readInputScaling());
+
+        Network<String> copy = network(topology("16,8", "SQUARED_ERROR"));
+        model.copyTo(copy);
+        for (int i = 1; i < layers.size(); i++) {
+            assertArrayEquals(layers.get(i).weights, copy.getLayers().get(i).weights);
+        }
+    }
+
+    @Test
+    void mappedModelRecognizesSameAsNetwork(@TempDir Path directory) throws IOException {
+        for (String loss : new String[]{"SQUARED_ERROR", "CROSS_ENTROPY"}) {
+            Topology topology = topology("32", loss);
+            Network<String> network = network(topology);
+            MappedNetwork model = roundTrip(network, topology, directory.resolve(loss + ".model"));
+            Random random = new Random(3L);
+            double[] expected = new double[CHARACTERS.size()];
+            double[] actual = new double[CHARACTERS.size()];
+            for (int i = 0; i < IMAGES; i++) {
+                byte[] image = new byte[DATA_WIDTH * DATA_HEIGHT];
+                random.nextBytes(image);
+                network.getCheck(image, expected);
+                model.getCheck(image, actual);
+                //order of summation of kernels of heap network may differ
+                assertArrayEquals(expected, actual, 1e-12, loss);
+            }
+        }
+    }
+}
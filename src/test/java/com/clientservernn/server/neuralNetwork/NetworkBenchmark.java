@@ -0,0 +1,511 @@
+package com.clientservernn.server.neuralNetwork;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static com.clientservernn.dataTransfer.ImageDataUtil.DATA_HEIGHT;
+import static com.clientservernn.dataTransfer.ImageDataUtil.DATA_WIDTH;
+
+/**
+ * The class {@code NetworkBenchmark} contains simple benchmarks of neural network
+ * on generated data, results are printed to standard output. Kernels are measured
+ * by JMH benchmark {@link KernelsBenchmark}.
+ * It is compiled with tests, not into server module, and can be run from command line without server:
+ * <pre>
+ * java -p target/classes --patch-module ServerNeuronNet=target/test-classes -m ServerNeuronNet/com.clientservernn.server.neuralNetwork.NetworkBenchmark train [samples] [batchSize] [epochs]
+ * java -p target/classes --patch-module ServerNeuronNet=target/test-classes -m ServerNeuronNet/com.clientservernn.server.neuralNetwork.NetworkBenchmark precision [samples] [epochs] [hiddenLayers]
+ * java -p target/classes --patch-module ServerNeuronNet=target/test-classes -m ServerNeuronNet/com.clientservernn.server.neuralNetwork.NetworkBenchmark activation [samples] [epochs]
+ * java -p target/classes --patch-module ServerNeuronNet=target/test-classes -m ServerNeuronNet/com.clientservernn.server.neuralNetwork.NetworkBenchmark topology [samples] [epochs] [noise] [learningRate] [hiddenLayers...]
+ * java -p target/classes --patch-module ServerNeuronNet=target/test-classes -m ServerNeuronNet/com.clientservernn.server.neuralNetwork.NetworkBenchmark loss [samples] [maxEpochs] [noise] [targetAccuracy] [hiddenLayers]
+ * java -p target/classes --patch-module ServerNeuronNet=target/test-classes -m ServerNeuronNet/com.clientservernn.server.neuralNetwork.NetworkBenchmark optimizer [samples] [maxEpochs] [noise] [targetAccuracy] [hiddenLayers] [loss]
+ * java -p target/classes --patch-module ServerNeuronNet=target/test-classes -m ServerNeuronNet/com.clientservernn.server.neuralNetwork.NetworkBenchmark model [charsets] [hiddenLayers]
+ * java -p target/classes --patch-module ServerNeuronNet=target/test-classes -m ServerNeuronNet/com.clientservernn.server.neuralNetwork.NetworkBenchmark batch [hiddenLayers] [batchSizes...]
+ * </pre>
+ *
+ * @author  Yauheni Slabko
+ * @since   1.0
+ */
+public final class NetworkBenchmark {
+
+    /**
+     * The number of outputs of benchmarked network, about size of larger alphabets.
+     */
+    private static final int OUTPUTS = 64;
+
+    private static final long SEED = 42L;
+
+    private NetworkBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        String benchmark = args.length > 0 ? args[0] : "train";
+        switch (benchmark) {
+            case "train" -> {
+                int samples = args.length > 1 ? Integer.parseInt(args[1]) : 4096;
+                int batchSize = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+                int epochs = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+                trainScaling(samples, batchSize, epochs);
+            }
+            case "precision" -> {
+                int samples = args.length > 1 ? Integer.parseInt(args[1]) : 4096;
+                int epochs = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+                String hiddenLayers = args.length > 3 ? args[3] : "-";
+                precision(samples, epochs, hiddenLayers);
+            }
+            case "activation" -> {
+                int samples = args.length > 1 ? Integer.parseInt(args[1]) : 4096;
+                int epochs = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+                activation(samples, epochs);
+            }
+            case "topology" -> {
+                int samples = args.length > 1 ? Integer.parseInt(args[1]) : 4096;
+                int epochs = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+                double noise = args.length > 3 ? Double.parseDouble(args[3]) : 1.0;
+                double learningRate = args.length > 4 ? Double.parseDouble(args[4]) : Topology.DEFAULT.getLearningRate();
+                String[] hiddenLayers = args.length > 5 ? Arrays.copyOfRange(args, 5, args.length)
+                        : new String[]{"-", "16", "32", "64", "128", "64,32"};
+                topology(samples, epochs, noise, learningRate, hiddenLayers);
+            }
+            case "loss" -> {
+                int samples = args.length > 1 ? Integer.parseInt(args[1]) : 4096;
+                int maxEpochs = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+                double noise = args.length > 3 ? Double.parseDouble(args[3]) : 1.0;
+                double target = args.length > 4 ? Double.parseDouble(args[4]) : 0.9;
+                String hiddenLayers = args.length > 5 ? args[5] : "-";
+                loss(samples, maxEpochs, noise, target, hiddenLayers);
+            }
+            case "optimizer" -> {
+                int samples = args.length > 1 ? Integer.parseInt(args[1]) : 4096;
+                int maxEpochs = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+                double noise = args.length > 3 ? Double.parseDouble(args[3]) : 1.0;
+                double target = args.length > 4 ? Double.parseDouble(args[4]) : 0.8;
+                String hiddenLayers = args.length > 5 ? args[5] : "64";
+                Loss loss = args.length > 6 ? Loss.valueOf(args[6]) : Loss.SQUARED_ERROR;
+                optimizer(samples, maxEpochs, noise, target, hiddenLayers, loss);
+            }
+            case "model" -> {
+                int charsets = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+                String hiddenLayers = args.length > 2 ? args[2] : "256";
+                model(charsets, hiddenLayers);
+            }
+            case "batch" -> {
+                String hiddenLayers = args.length > 1 ? args[1] : "128";
+                int[] batchSizes = args.length > 2 ? Arrays.stream(args, 2, args.length).mapToInt(Integer::parseInt).toArray()
+                        : new int[]{1, 8, 32, 128, 512};
+                batch(hiddenLayers, batchSizes);
+            }
+            default -> throw new IllegalArgumentException("Unknown benchmark: " + benchmark);
+        }
+    }
+
+    /**
+     * Trains network on 80% of generated samples, then compares accuracy on the rest of samples,
+     * time of recognition and size of weights of double precision network, its {@link FloatNetwork}
+     * copy and its {@link QuantizedNetwork} copy. Accuracy drop of each copy is share of test samples
+     * recognized differently from double precision network.
+     */
+    public static void precision(int samples, int epochs, String hiddenLayers) {
+        List<double[]> inputs = new ArrayList<>();
+        List<double[]> expects = new ArrayList<>();
+        generate(samples, inputs, expects);
+        int trainSize = samples * 4 / 5;
+        Properties properties = new Properties();
+        properties.setProperty("hiddenLayers", hiddenLayers.equals("-") ? "" : hiddenLayers);
+        int[] structure = Topology.parse(properties).layerStructure(DATA_WIDTH * DATA_HEIGHT, OUTPUTS);
+        Network<Integer> network = new Network<>(structure, 0.1, Util::sigmoid, Util::derivativeSigmoid, new Random(SEED));
+        for (int i = 0; i < epochs; i++) {
+            network.train(inputs.subList(0, trainSize), expects.subList(0, trainSize), 16);
+        }
+        FloatNetwork<Integer> floatNetwork = new FloatNetwork<>(network);
+        QuantizedNetwork<Integer> quantizedNetwork = new QuantizedNetwork<>(network);
+        List<double[]> testInputs = inputs.subList(trainSize, samples);
+        List<float[]> floatInputs = new ArrayList<>();
+        for (double[] input : testInputs) {
+            float[] floatInput = new float[input.length];
+            for (int i = 0; i < input.length; i++) {
+                floatInput[i] = (float) input[i];
+            }
+            floatInputs.add(floatInput);
+        }
+        int doubleCorrect = 0;
+        int floatCorrect = 0;
+        int quantizedCorrect = 0;
+        int floatAgreed = 0;
+        int quantizedAgreed = 0;
+        for (int i = 0; i < testInputs.size(); i++) {
+            int expected = maxIndex(expects.get(trainSize + i));
+            int doubleResult = maxIndex(network.getOutputs(testInputs.get(i)));
+            float[] floatOutputs = floatNetwork.getOutputs(floatInputs.get(i));
+            double[] floatResults = new double[floatOutputs.length];
+            for (int j = 0; j < floatOutputs.length; j++) {
+                floatResults[j] = floatOutputs[j];
+            }
+            int floatResult = maxIndex(floatResults);
+            int quantizedResult = maxIndex(quantizedNetwork.getOutputs(testInputs.get(i)));
+            doubleCorrect += doubleResult == expected ? 1 : 0;
+            floatCorrect += floatResult == expected ? 1 : 0;
+            quantizedCorrect += quantizedResult == expected ? 1 : 0;
+            floatAgreed += doubleResult == floatResult ? 1 : 0;
+            quantizedAgreed += doubleResult == quantizedResult ? 1 : 0;
+        }
+        long doubleBytes = 0;
+        for (Layer layer : network.getLayers()) {
+            doubleBytes += (long) (layer.weights.length + layer.biases.length) * Double.BYTES;
+        }
+        int repeats = Math.max(1, 200_000 / testInputs.size());
+        double doubleTime = time(repeats, () -> testInputs.forEach(network::getOutputs)) / testInputs.size();
+        double floatTime = time(repeats, () -> floatInputs.forEach(floatNetwork::getOutputs)) / testInputs.size();
+        double quantizedTime = time(repeats, () -> testInputs.forEach(quantizedNetwork::getOutputs)) / testInputs.size();
+        double size = testInputs.size();
+        System.out.printf("Test samples: %d, epochs: %d, layers: %s%n", testInputs.size(), epochs, Arrays.toString(structure));
+        System.out.printf("%10s %10s %10s %14s %14s%n", "precision", "accuracy", "drop", "ns per sample", "weight bytes");
+        System.out.printf("%10s %10.4f %10.4f %14.1f %14d%n", Precision.DOUBLE, doubleCorrect / size, 0.0, doubleTime, doubleBytes);
+        System.out.printf("%10s %10.4f %10.4f %14.1f %14d%n", Precision.FLOAT, floatCorrect / size, 1.0 - floatAgreed / size, floatTime, doubleBytes / 2);
+        System.out.printf("%10s %10.4f %10.4f %14.1f %14d%n", Precision.INT8, quantizedCorrect / size, 1.0 - quantizedAgreed / size, quantizedTime, quantizedNetwork.weightBytes());
+    }
+
+    /**
+     * Compares {@link TableSigmoid} with exact {@link Sigmoid} and with pair of functions
+     * of {@link Util} that recalculates sigmoid for derivative: max absolute error on
+     * range [-20, 20], time of one evaluation, and time of training epoch and accuracy of networks
+     * trained with each of them on 80% of generated samples.
+     */
+    public static void activation(int samples, int epochs) {
+        Activation functions = Activation.of(Util::sigmoid, Util::derivativeSigmoid);
+        Activation exact = new Sigmoid();
+        Activation table = new TableSigmoid();
+        String[] names = {"Util::sigmoid", Sigmoid.class.getSimpleName(), TableSigmoid.class.getSimpleName()};
+        double maxError = 0.0;
+        for (double x = -20.0; x <= 20.0; x += 1e-4) {
+            maxError = Math.max(maxError, Math.abs(exact.apply(x) - table.apply(x)));
+        }
+        System.out.printf("Max error of %s: %.3e, bound %.1e%n", TableSigmoid.class.getSimpleName(), maxError, TableSigmoid.MAX_ERROR);
+        double[] xs = new Random(SEED).doubles(10_000, -8.0, 8.0).toArray();
+        List<double[]> inputs = new ArrayList<>();
+        List<double[]> expects = new ArrayList<>();
+        generate(samples, inputs, expects);
+        int trainSize = samples * 4 / 5;
+        System.out.printf("%14s %14s %14s %10s%n", "activation", "ns per call", "ms per epoch", "accuracy");
+        Activation[] activations = {functions, exact, table};
+        for (int a = 0; a < activations.length; a++) {
+            Activation activation = activations[a];
+            double[] sink = new double[1];
+            double callTime = time(200, () -> {
+                for (double x : xs) {
+                    sink[0] += activation.apply(x);
+                }
+            }) / xs.length;
+            //Warm up on separate network, so both networks are trained equally.
+            new Network<Integer>(new int[]{DATA_WIDTH * DATA_HEIGHT, OUTPUTS}, 0.1, activation, new Random(SEED))
+                    .train(inputs.subList(0, trainSize), expects.subList(0, trainSize), 16);
+            Network<Integer> network = new Network<>(new int[]{DATA_WIDTH * DATA_HEIGHT, OUTPUTS}, 0.1, activation, new Random(SEED));
+            long start = System.nanoTime();
+            for (int i = 0; i < epochs; i++) {
+                network.train(inputs.subList(0, trainSize), expects.subList(0, trainSize), 16);
+            }
+            double epochTime = (System.nanoTime() - start) / 1e6 / epochs;
+            int correct = 0;
+            for (int i = trainSize; i < samples; i++) {
+                correct += maxIndex(network.getOutputs(inputs.get(i))) == maxIndex(expects.get(i)) ? 1 : 0;
+            }
+            System.out.printf("%14s %14.2f %14.2f %10.4f%n", names[a],
+                    sink[0] == 0.0 ? -1 : callTime, epochTime, (double) correct / (samples - trainSize));
+        }
+    }
+
+    /**
+     * Trains network of each topology on 80% of samples generated with given {@code noise}
+     * and reports accuracy on the rest of samples, number of weights, time of training epoch
+     * and time of recognition of one sample, so the cheapest topology reaching required accuracy
+     * can be selected.
+     *
+     * @param hiddenLayers sizes of hidden layers of each topology separated by commas,
+     *                     {@code "-"} for topology without hidden layers.
+     */
+    public static void topology(int samples, int epochs, double noise, double learningRate, String[] hiddenLayers) {
+        List<double[]> inputs = new ArrayList<>();
+        List<double[]> expects = new ArrayList<>();
+        generate(samples, noise, inputs, expects);
+        int trainSize = samples * 4 / 5;
+        List<double[]> testInputs = inputs.subList(trainSize, samples);
+        System.out.printf("Samples: %d, epochs: %d, noise: %.2f, learning rate: %s%n", samples, epochs, noise, learningRate);
+        System.out.printf("%12s %10s %14s %14s %10s%n", "hidden", "weights", "ms per epoch", "ns per sample", "accuracy");
+        for (String hidden : hiddenLayers) {
+            Properties properties = new Properties();
+            properties.setProperty("hiddenLayers", hidden.equals("-") ? "" : hidden);
+            properties.setProperty("learningRate", String.valueOf(learningRate));
+            Topology topology = Topology.parse(properties);
+            int[] structure = topology.layerStructure(DATA_WIDTH * DATA_HEIGHT, OUTPUTS);
+            Network<Integer> network = new Network<>(structure, topology.getLearningRate(), topology.newActivations(), topology.getLoss(), new Random(SEED));
+            long start = System.nanoTime();
+            //Weights are updated after each sample as by default in NetworkCommander.
+            for (int i = 0; i < epochs; i++) {
+                network.train(inputs.subList(0, trainSize), expects.subList(0, trainSize));
+            }
+            double epochTime = (System.nanoTime() - start) / 1e6 / epochs;
+            int correct = 0;
+            for (int i = trainSize; i < samples; i++) {
+                correct += maxIndex(network.getOutputs(inputs.get(i))) == maxIndex(expects.get(i)) ? 1 : 0;
+            }
+            int repeats = Math.max(1, 200_000 / testInputs.size());
+            double sampleTime = time(repeats, () -> testInputs.forEach(network::getOutputs)) / testInputs.size();
+            int weights = 0;
+            for (int i = 1; i < structure.length; i++) {
+                weights += structure[i - 1] * structure[i];
+            }
+            System.out.printf("%12s %10d %14.2f %14.1f %10.4f%n", hidden, weights, epochTime, sampleTime, (double) correct / testInputs.size());
+        }
+    }
+
+    /**
+     * Trains networks with each {@link Loss} on 80% of samples generated with given {@code noise}
+     * until accuracy on the rest of samples reaches {@code target} or {@code maxEpochs} is reached,
+     * and reports number of epochs, accuracy after them and time of training.
+     *
+     * @param hiddenLayers sizes of hidden layers separated by commas, {@code "-"} for no hidden layers.
+     */
+    public static void loss(int samples, int maxEpochs, double noise, double target, String hiddenLayers) {
+        List<double[]> inputs = new ArrayList<>();
+        List<double[]> expects = new ArrayList<>();
+        generate(samples, noise, inputs, expects);
+        int trainSize = samples * 4 / 5;
+        System.out.printf("Samples: %d, noise: %.2f, target accuracy: %.4f, hidden: %s%n", samples, noise, target, hiddenLayers);
+        System.out.printf("%14s %8s %10s %10s%n", "loss", "epochs", "accuracy", "ms");
+        for (Loss loss : Loss.values()) {
+            Properties properties = new Properties();
+            properties.setProperty("hiddenLayers", hiddenLayers.equals("-") ? "" : hiddenLayers);
+            properties.setProperty("loss", loss.name());
+            System.out.printf("%14s %s%n", loss, converge(Topology.parse(properties), inputs, expects, trainSize, maxEpochs, target));
+        }
+    }
+
+    /**
+     * Same as {@link #loss(int, int, double, double, String)} for each {@link OptimizerType}
+     * with its default learning rate and given {@code loss}.
+     */
+    public static void optimizer(int samples, int maxEpochs, double noise, double target, String hiddenLayers, Loss loss) {
+        List<double[]> inputs = new ArrayList<>();
+        List<double[]> expects = new ArrayList<>();
+        generate(samples, noise, inputs, expects);
+        int trainSize = samples * 4 / 5;
+        System.out.printf("Samples: %d, noise: %.2f, target accuracy: %.4f, hidden: %s, loss: %s%n", samples, noise, target, hiddenLayers, loss);
+        System.out.printf("%14s %8s %10s %10s%n", "optimizer", "epochs", "accuracy", "ms");
+        for (OptimizerType optimizer : OptimizerType.values()) {
+            Properties properties = new Properties();
+            properties.setProperty("hiddenLayers", hiddenLayers.equals("-") ? "" : hiddenLayers);
+            properties.setProperty("loss", loss.name());
+            properties.setProperty("optimizer", optimizer.name());
+            System.out.printf("%14s %s%n", optimizer, converge(Topology.parse(properties), inputs, expects, trainSize, maxEpochs, target));
+        }
+    }
+
+    /**
+     * Trains network of given {@code topology} on first {@code trainSize} samples until accuracy
+     * on the rest of samples reaches {@code target} or {@code maxEpochs} is reached.
+     * Returns number of epochs, accuracy and time of training in milliseconds as table columns.
+     */
+    private static String converge(Topology topology, List<double[]> inputs, List<double[]> expects, int trainSize, int maxEpochs, double target) {
+        Network<Integer> network = new Network<>(topology.layerStructure(DATA_WIDTH * DATA_HEIGHT, OUTPUTS), topology.getLearningRate(),
+                topology.newActivations(), topology.getLoss(), topology.getOptimizer().newOptimizer(), new Random(SEED));
+        int epochs = 0;
+        double accuracy = 0.0;
+        long start = System.nanoTime();
+        while (epochs < maxEpochs && accuracy < target) {
+            network.train(inputs.subList(0, trainSize), expects.subList(0, trainSize));
+            epochs++;
+            int correct = 0;
+            for (int i = trainSize; i < inputs.size(); i++) {
+                correct += maxIndex(network.getOutputs(inputs.get(i))) == maxIndex(expects.get(i)) ? 1 : 0;
+            }
+            accuracy = (double) correct / (inputs.size() - trainSize);
+        }
+        return String.format("%8d %10.4f %10.1f", epochs, accuracy, (System.nanoTime() - start) / 1e6);
+    }
+
+    /**
+     * Writes {@code charsets} model files of networks with given {@code hiddenLayers} to temporary
+     * directory, then compares time of loading all of them by mapping with {@link ModelFile#map}
+     * and by copying weights on heap, and time of recognition by heap and mapped network.
+     */
+    public static void model(int charsets, String hiddenLayers) {
+        Properties properties = new Properties();
+        properties.setProperty("hiddenLayers", hiddenLayers.equals("-") ? "" : hiddenLayers);
+        Topology topology = Topology.parse(properties);
+        List<String> characters = new ArrayList<>();
+        for (int i = 0; i < OUTPUTS; i++) {
+            characters.add(String.valueOf((char) ('A' + i)));
+        }
+        int[] structure = topology.layerStructure(DATA_WIDTH * DATA_HEIGHT, OUTPUTS);
+        try {
+            Path directory = Files.createTempDirectory("models");
+            List<Path> paths = new ArrayList<>();
+            Network<String> network = null;
+            for (int i = 0; i < charsets; i++) {
+                network = new Network<>(structure, topology.getLearningRate(), topology.newActivations(), topology.getLoss(), topology.getOptimizer().newOptimizer(), new Random(SEED + i));
+                Path path = directory.resolve(i + ".model");
+                ModelFile.of(network, 0L, topology, characters).write(path);
+                paths.add(path);
+            }
+            //Warm up of both ways of loading.
+            ModelFile.map(paths.get(0)).copyTo(network);
+            long start = System.nanoTime();
+            List<MappedNetwork> mapped = new ArrayList<>();
+            for (Path path : paths) {
+                mapped.add(ModelFile.map(path));
+            }
+            double mapTime = (System.nanoTime() - start) / 1e6;
+            start = System.nanoTime();
+            for (Path path : paths) {
+                network = new Network<>(structure, topology.getLearningRate(), topology.newActivations(), topology.getLoss(), topology.getOptimizer().newOptimizer(), new Random(SEED));
+                ModelFile.map(path).copyTo(network);
+            }
+            double copyTime = (System.nanoTime() - start) / 1e6;
+            MappedNetwork model = mapped.get(mapped.size() - 1);
+            Network<String> heap = network;
+            double[] input = new Random(SEED).doubles(structure[0]).toArray();
+            double heapTime = time(100_000, () -> heap.getOutputs(input));
+            double mappedTime = time(100_000, () -> model.getOutputs(input));
+            System.out.printf("Models: %d, topology: %s, file size: %d bytes%n", charsets, topology, Files.size(paths.get(0)));
+            System.out.printf("%8s %12s %14s%n", "weights", "load ms", "ns per sample");
+            System.out.printf("%8s %12.2f %14.1f%n", "heap", copyTime, heapTime);
+            System.out.printf("%8s %12.2f %14.1f%n", "mapped", mapTime, mappedTime);
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    /**
+     * Compares time of recognition of images one by one by {@link Network#getCheck(byte[], double[])}
+     * and in batches of given sizes by {@link Network#getChecks(byte[][], double[][])}.
+     */
+    public static void batch(String hiddenLayers, int[] batchSizes) {
+        Properties properties = new Properties();
+        properties.setProperty("hiddenLayers", hiddenLayers.equals("-") ? "" : hiddenLayers);
+        Topology topology = Topology.parse(properties);
+        int[] structure = topology.layerStructure(DATA_WIDTH * DATA_HEIGHT, OUTPUTS);
+        Network<Integer> network = new Network<>(structure, topology.getLearningRate(), topology.newActivations(), topology.getLoss(), topology.getOptimizer().newOptimizer(), new Random(SEED));
+        Random random = new Random(SEED);
+        System.out.printf("Layers: %s%n", Arrays.toString(structure));
+        System.out.printf("%8s %16s %16s%n", "batch", "single ns", "batched ns");
+        for (int batchSize : batchSizes) {
+            byte[][] images = new byte[batchSize][DATA_WIDTH * DATA_HEIGHT];
+            for (byte[] image : images) {
+                random.nextBytes(image);
+            }
+            double[][] results = new double[batchSize][OUTPUTS];
+            int repeats = Math.max(10, 20_000 / batchSize);
+            double single = time(repeats, () -> {
+                for (int i = 0; i < batchSize; i++) {
+                    network.getCheck(images[i], results[i]);
+                }
+            }) / batchSize;
+            double batched = time(repeats, () -> network.getChecks(images, results, batchSize)) / batchSize;
+            System.out.printf("%8d %16.1f %16.1f%n", batchSize, single, batched);
+        }
+    }
+
+    /**
+     * Returns average time in nanoseconds of one run of {@code task} measured after warm up.
+     */
+    private static double time(int repeats, Runnable task) {
+        for (int i = 0; i < repeats; i++) {
+            task.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < repeats; i++) {
+            task.run();
+        }
+        return (double) (System.nanoTime() - start) / repeats;
+    }
+
+    private static int maxIndex(double[] values) {
+        int index = 0;
+        for (int i = 1; i < values.length; i++) {
+            if (values[i] > values[index]) {
+                index = i;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Measures time of training epoch for number of workers from 1 up to available processors,
+     * doubled on each step. Networks are equally seeded, so printed checksum of
+     * weights after training should be the same for all numbers of workers.
+     */
+    public static void trainScaling(int samples, int batchSize, int epochs) {
+        List<double[]> inputs = new ArrayList<>();
+        List<double[]> expects = new ArrayList<>();
+        generate(samples, inputs, expects);
+        int processors = Runtime.getRuntime().availableProcessors();
+        List<Integer> workerCounts = new ArrayList<>();
+        for (int workers = 1; workers < processors; workers *= 2) {
+            workerCounts.add(workers);
+        }
+        workerCounts.add(processors);
+        double singleTime = 0.0;
+        System.out.printf("Training: samples %d, batch %d, epochs %d%n", samples, batchSize, epochs);
+        System.out.printf("%8s %14s %8s %10s%n", "workers", "ms per epoch", "speedup", "checksum");
+        for (int workers : workerCounts) {
+            ForkJoinPool pool = new ForkJoinPool(workers);
+            Network<Integer> network = new Network<>(new int[]{DATA_WIDTH * DATA_HEIGHT, OUTPUTS}, 0.1, Util::sigmoid, Util::derivativeSigmoid, new Random(SEED));
+            //Warm up.
+            network.train(inputs, expects, batchSize, pool);
+            long start = System.nanoTime();
+            for (int i = 0; i < epochs; i++) {
+                network.train(inputs, expects, batchSize, pool);
+            }
+            double time = (System.nanoTime() - start) / 1e6 / epochs;
+            pool.shutdown();
+            singleTime = workers == 1 ? time : singleTime;
+            System.out.printf("%8d %14.2f %8.2f %10s%n", workers, time, singleTime / time, checksum(network));
+        }
+    }
+
+    /**
+     * Fills {@code inputs} with images data scaled to [0, 1] and
+     * {@code expects} with their classifications. Each image is random prototype image
+     * of its class with added noise.
+     */
+    static void generate(int samples, List<double[]> inputs, List<double[]> expects) {
+        generate(samples, 0.3, inputs, expects);
+    }
+
+    /**
+     * Same as {@link #generate(int, List, List)}, {@code noise} is standard deviation
+     * of added gaussian noise.
+     */
+    static void generate(int samples, double noise, List<double[]> inputs, List<double[]> expects) {
+        Random random = new Random(SEED);
+        double[][] prototypes = new double[OUTPUTS][];
+        for (int i = 0; i < OUTPUTS; i++) {
+            prototypes[i] = random.doubles(DATA_WIDTH * DATA_HEIGHT).map(Math::rint).toArray();
+        }
+        for (int i = 0; i < samples; i++) {
+            int character = random.nextInt(OUTPUTS);
+            double[] input = new double[DATA_WIDTH * DATA_HEIGHT];
+            for (int j = 0; j < input.length; j++) {
+                input[j] = Math.min(1.0, Math.max(0.0, prototypes[character][j] + random.nextGaussian() * noise));
+            }
+            inputs.add(input);
+            double[] expected = new double[OUTPUTS];
+            expected[character] = 1.0;
+            expects.add(expected);
+        }
+    }
+
+    /**
+     * Returns hash of all weights of {@code network}.
+     */
+    private static String checksum(Network<Integer> network) {
+        return Integer.toHexString(network.toString().hashCode());
+    }
+}
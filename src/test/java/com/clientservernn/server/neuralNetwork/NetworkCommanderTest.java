@@ -0,0 +1,222 @@
+package com.clientservernn.server.neuralNetwork;
+
+import com.clientservernn.common.CharsetList;
+import com.clientservernn.dataTransfer.ImageData;
+import javafx.util.Pair;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.clientservernn.dataTransfer.ImageDataUtil.DATA_HEIGHT;
+import static com.clientservernn.dataTransfer.ImageDataUtil.DATA_WIDTH;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of {@link NetworkCommander} on generated training data.
+ *
+ * @author  Yauheni Slabko
+ * @since   1.0
+ */
+class NetworkCommanderTest {
+
+    static final List<String> CHARACTERS = List.of("A", "B", "C");
+    private static final int SAMPLES = 10;
+    private static final int THREADS = 8;
+
+    /**
+     * Returns new copy of generated training data, same for every call.
+     */
+    static List<Pair<String, double[]>> data() {
+        Random random = new Random(42L);
+        List<Pair<String, double[]>> data = new ArrayList<>();
+        for (String character : CHARACTERS) {
+            for (int i = 0; i < SAMPLES; i++) {
+                double[] pixels = new double[DATA_WIDTH * DATA_HEIGHT];
+                for (int j = 0; j < pixels.length; j++) {
+                    pixels[j] = random.nextDouble();
+                }
+                data.add(new Pair<>(character, pixels));
+            }
+        }
+        return data;
+    }
+
+    static NetworkCommander commander(long seed) {
+        return commander(seed, new Properties());
+    }
+
+    static NetworkCommander commander(long seed, Properties properties) {
+        properties.putIfAbsent("hiddenLayers", "8");
+        return new NetworkCommander(CharsetList.ENGLISH_CHAR, Topology.parse(properties), seed, CHARACTERS, NetworkCommanderTest::data);
+    }
+
+    private static double[] scaled(double[] row, double[][] scaling) {
+        double[] copy = row.clone();
+        Util.scaleFeatures(copy, scaling);
+        return copy;
+    }
+
+    /**
+     * Returns {@code count} random standard images.
+     */
+    private static List<ImageData> images(int count) {
+        Random random = new Random(5L);
+        List<ImageData> images = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            byte[] imageArgb = new byte[DATA_WIDTH * DATA_HEIGHT];
+            random.nextBytes(imageArgb);
+            images.add(new ImageData(imageArgb, DATA_WIDTH, DATA_HEIGHT));
+        }
+        return images;
+    }
+
+    @Test
+    void trainingOfLoadedModelUsesScalingOfModel(@TempDir Path directory) throws IOException {
+        NetworkCommander source = commander(1L);
+        source.train();
+        Path model = directory.resolve("source.model");
+        source.saveModel(model);
+        double[][] scaling = ModelFile.map(model).readInputScaling();
+
+        Path own = directory.resolve("own.model");
+        commander(2L).saveModel(own);
+        assertFalse(Arrays.deepEquals(scaling, ModelFile.map(own).readInputScaling()), "splits must differ");
+
+        NetworkCommander commander = commander(2L);
+        commander.loadModel(model);
+        commander.train();
+        Path trained = directory.resolve("trained.model");
+        commander.saveModel(trained);
+        assertArrayEquals(scaling, ModelFile.map(trained).readInputScaling());
+
+        List<double[]> expected = data().stream().map(pair -> scaled(pair.getValue(), scaling)).toList();
+        List<Pair<String, double[]>> used = new ArrayList<>(commander.trainData);
+        used.addAll(commander.validationData);
+        for (Pair<String, double[]> pair : used) {
+            assertTrue(expected.stream().anyMatch(row -> Arrays.equals(row, pair.getValue())),
+                    "training and validation data must be scaled by scaling of model");
+        }
+    }
+
+    @Test
+    void batchedRecognitionIsSameAsSingle() {
+        List<ImageData> images = images(33);
+        for (Precision precision : Precision.values()) {
+            Properties properties = new Properties();
+            properties.setProperty("precision", precision.name());
+            NetworkCommander commander = commander(1L, properties);
+            commander.train();
+            for (int count : new int[]{1, 3, 4, 7, images.size()}) {
+                List<HashMap<String, Double>> batch = commander.checkAll(images.subList(0, count));
+                assertEquals(count, batch.size());
+                for (int i = 0; i < count; i++) {
+                    assertEquals(commander.checkAll(images.get(i)), batch.get(i), precision + " image " + i + " of " + count);
+                }
+            }
+        }
+    }
+
+    @Test
+    void concurrentRecognitionOnSharedModelIsSameAsSequential(@TempDir Path directory) throws Exception {
+        List<ImageData> images = images(16);
+        Path model = directory.resolve("shared.model");
+        commander(1L).saveModel(model);
+        NetworkCommander loaded = commander(2L);
+        loaded.loadModel(model);
+        List<NetworkCommander> commanders = new ArrayList<>(List.of(loaded));
+        for (Precision precision : Precision.values()) {
+            Properties properties = new Properties();
+            properties.setProperty("precision", precision.name());
+            NetworkCommander commander = commander(1L, properties);
+            commander.train();
+            commanders.add(commander);
+        }
+        for (NetworkCommander commander : commanders) {
+            List<double[]> expected = new ArrayList<>();
+            for (ImageData image : images) {
+                expected.add(commander.recognize(image).scores.clone());
+            }
+            ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+            try {
+                CyclicBarrier barrier = new CyclicBarrier(THREADS);
+                List<Future<?>> futures = new ArrayList<>();
+                for (int t = 0; t < THREADS; t++) {
+                    int seed = t;
+                    futures.add(executor.submit(() -> {
+                        Random random = new Random(seed);
+                        barrier.await();
+                        for (int iteration = 0; iteration < 200; iteration++) {
+                            int from = random.nextInt(images.size());
+                            int to = from + 1 + random.nextInt(images.size() - from);
+                            List<RecognitionResult> results = commander.recognizeAll(images.subList(from, to));
+                            for (int i = from; i < to; i++) {
+                                assertArrayEquals(expected.get(i), results.get(i - from).scores);
+                            }
+                            assertArrayEquals(expected.get(from), commander.recognize(images.get(from)).scores);
+                        }
+                        return null;
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } finally {
+                executor.shutdown();
+            }
+        }
+    }
+
+    @Test
+    void trainingIsSameForAnyParallelism(@TempDir Path directory) throws IOException {
+        MappedNetwork[] models = new MappedNetwork[2];
+        int[] parallelisms = {1, 4};
+        for (int i = 0; i < models.length; i++) {
+            Properties properties = new Properties();
+            properties.setProperty("batchSize", "16");
+            properties.setProperty("parallelism", String.valueOf(parallelisms[i]));
+            NetworkCommander commander = commander(1L, properties);
+            for (int epoch = 0; epoch < 3; epoch++) {
+                commander.train();
+            }
+            Path model = directory.resolve("parallelism" + parallelisms[i] + ".model");
+            commander.saveModel(model);
+            models[i] = ModelFile.map(model);
+        }
+        for (int layer = 0; layer < models[0].layerCount(); layer++) {
+            assertArrayEquals(models[0].readWeights(layer), models[1].readWeights(layer));
+            assertArrayEquals(models[0].readBiases(layer), models[1].readBiases(layer));
+        }
+    }
+
+    @Test
+    void loadsModelTrainedWithOtherSettingsOfTraining(@TempDir Path directory) throws IOException {
+        Path model = directory.resolve("source.model");
+        commander(1L).saveModel(model);
+        Properties properties = new Properties();
+        properties.setProperty("learningRate", "0.5");
+        properties.setProperty("optimizer", "ADAM");
+        properties.setProperty("batchSize", "4");
+        commander(2L, properties).loadModel(model);
+
+        properties = new Properties();
+        properties.setProperty("hiddenLayers", "9");
+        NetworkCommander other = commander(2L, properties);
+        assertThrows(IOException.class, () -> other.loadModel(model));
+    }
+}
@@ -0,0 +1,88 @@
+package com.clientservernn.server.neuralNetwork;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/**
+ * Tests of {@link Network}: training by tasks of {@link ForkJoinPool} gives
+ * same weights for any parallelism.
+ *
+ * @author  Yauheni Slabko
+ * @since   1.0
+ */
+class NetworkTest {
+
+    private static final int[] LAYER_STRUCTURE = {20, 12, 5};
+    private static final int SAMPLES = 200;
+
+    private final List<double[]> inputs = new ArrayList<>();
+    private final List<double[]> expects = new ArrayList<>();
+
+    NetworkTest() {
+        Random random = new Random(3L);
+        for (int i = 0; i < SAMPLES; i++) {
+            this.inputs.add(random.doubles(LAYER_STRUCTURE[0]).toArray());
+            double[] expect = new double[LAYER_STRUCTURE[2]];
+            expect[random.nextInt(expect.length)] = 1.0;
+            this.expects.add(expect);
+        }
+    }
+
+    private static Network<String> network(OptimizerType optimizer) {
+        return new Network<>(LAYER_STRUCTURE, optimizer.getDefaultLearningRate(),
+                new Activation[]{ActivationType.SIGMOID.newActivation(), ActivationType.SIGMOID.newActivation()},
+                Loss.SQUARED_ERROR, optimizer.newOptimizer(), new Random(1L));
+    }
+
+    /**
+     * Trains network by {@code epochs} epochs in pool of {@code parallelism} workers.
+     */
+    private Network<String> train(OptimizerType optimizer, int batchSize, int parallelism, int epochs) {
+        Network<String> network = network(optimizer);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            for (int epoch = 0; epoch < epochs; epoch++) {
+                network.train(this.inputs, this.expects, batchSize, pool);
+            }
+        } finally {
+            pool.shutdown();
+        }
+        return network;
+    }
+
+    private static void assertSameWeights(Network<String> expected, Network<String> actual) {
+        List<Layer> expectedLayers = expected.getLayers();
+        List<Layer> actualLayers = actual.getLayers();
+        for (int i = 1; i < expectedLayers.size(); i++) {
+            assertArrayEquals(expectedLayers.get(i).weights, actualLayers.get(i).weights, "weights of layer " + i);
+            assertArrayEquals(expectedLayers.get(i).biases, actualLayers.get(i).biases, "biases of layer " + i);
+        }
+    }
+
+    @Test
+    void parallelTrainingGivesSameWeightsForAnyParallelism() {
+        for (OptimizerType optimizer : OptimizerType.values()) {
+            for (int batchSize : new int[]{Network.PARALLEL_LEAF_SIZE * 4, Network.PARALLEL_LEAF_SIZE * 5 + 3, SAMPLES}) {
+                Network<String> single = this.train(optimizer, batchSize, 1, 3);
+                for (int parallelism : new int[]{2, 3, 8}) {
+                    assertSameWeights(single, this.train(optimizer, batchSize, parallelism, 3));
+                }
+            }
+        }
+    }
+
+    @Test
+    void smallBatchesAreTrainedSameAsWithoutPool() {
+        Network<String> network = network(OptimizerType.SGD);
+        for (int epoch = 0; epoch < 3; epoch++) {
+            network.train(this.inputs, this.expects, Network.PARALLEL_LEAF_SIZE);
+        }
+        assertSameWeights(network, this.train(OptimizerType.SGD, Network.PARALLEL_LEAF_SIZE, 4, 3));
+    }
+}
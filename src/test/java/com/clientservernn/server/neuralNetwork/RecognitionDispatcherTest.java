@@ -0,0 +1,106 @@
+package com.clientservernn.server.neuralNetwork;
+
+import com.clientservernn.dataTransfer.ImageData;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static com.clientservernn.dataTransfer.ImageDataUtil.DATA_HEIGHT;
+import static com.clientservernn.dataTransfer.ImageDataUtil.DATA_WIDTH;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of {@link RecognitionDispatcher}: requests recognized in submitting thread
+ * and by executor give same scores as {@link NetworkCommander#recognize(ImageData)}.
+ *
+ * @author  Yauheni Slabko
+ * @since   1.0
+ */
+class RecognitionDispatcherTest {
+
+    private static ImageData image(long seed) {
+        byte[] imageArgb = new byte[DATA_WIDTH * DATA_HEIGHT];
+        new Random(seed).nextBytes(imageArgb);
+        return new ImageData(imageArgb, DATA_WIDTH, DATA_HEIGHT);
+    }
+
+    /**
+     * Returns name of thread recognizing and copy of scores.
+     */
+    private static Recognized read(RecognitionResult result) {
+        return new Recognized(Thread.currentThread().getName(), result.scores.clone());
+    }
+
+    private record Recognized(String thread, double[] scores) {
+    }
+
+    @Test
+    void recognizesSingleRequestInSubmittingThreadWhileIdle() {
+        NetworkCommander network = NetworkCommanderTest.commander(1L);
+        ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "executor"));
+        try (RecognitionDispatcher dispatcher = new RecognitionDispatcher(Duration.ofMillis(1), 64, 0, executor)) {
+            CompletableFuture<Recognized> future = dispatcher.submit(network, image(1L), RecognitionDispatcherTest::read);
+            assertTrue(future.isDone());
+            assertEquals(Thread.currentThread().getName(), future.join().thread());
+            assertArrayEquals(network.recognize(image(1L)).scores, future.join().scores());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void recognizesCheapNetworksInSubmittingThread() {
+        List<NetworkCommander> networks = List.of(NetworkCommanderTest.commander(1L), NetworkCommanderTest.commander(2L));
+        long weights = networks.get(0).getWeightCount();
+        assertEquals((DATA_WIDTH * DATA_HEIGHT + 1) * 8 + (8 + 1) * NetworkCommanderTest.CHARACTERS.size(), weights);
+        ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "executor"));
+        try (RecognitionDispatcher dispatcher = new RecognitionDispatcher(Duration.ofMillis(1), 64, weights, executor)) {
+            List<CompletableFuture<Recognized>> futures = dispatcher.submitAll(networks, image(2L), RecognitionDispatcherTest::read);
+            for (int i = 0; i < networks.size(); i++) {
+                assertTrue(futures.get(i).isDone());
+                assertEquals(Thread.currentThread().getName(), futures.get(i).join().thread());
+                assertArrayEquals(networks.get(i).recognize(image(2L)).scores, futures.get(i).join().scores());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void recognizesOtherRequestsByExecutor() {
+        List<NetworkCommander> networks = List.of(NetworkCommanderTest.commander(1L), NetworkCommanderTest.commander(2L));
+        ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "executor"));
+        try (RecognitionDispatcher dispatcher = new RecognitionDispatcher(Duration.ofMillis(1), 64, 0, executor)) {
+            List<CompletableFuture<Recognized>> futures = dispatcher.submitAll(networks, image(3L), RecognitionDispatcherTest::read);
+            for (int i = 0; i < networks.size(); i++) {
+                assertEquals("executor", futures.get(i).join().thread());
+                assertArrayEquals(networks.get(i).recognize(image(3L)).scores, futures.get(i).join().scores());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void failsRequestsAfterClose() {
+        NetworkCommander network = NetworkCommanderTest.commander(1L);
+        RecognitionDispatcher dispatcher = new RecognitionDispatcher(Duration.ofMillis(1), 64);
+        dispatcher.close();
+        CompletableFuture<Recognized> future = dispatcher.submit(network, image(4L), RecognitionDispatcherTest::read);
+        CompletionException exception = assertThrows(CompletionException.class, future::join);
+        assertInstanceOf(IllegalStateException.class, exception.getCause());
+        assertNotEquals(0, dispatcher.getCheapWeights());
+        assertThrows(IllegalArgumentException.class, () -> dispatcher.setCheapWeights(-1));
+    }
+}